@@ -0,0 +1,43 @@
+package org.jsense.benchmarks;
+
+import org.jsense.AccelerometerEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building {@link org.jsense.AccelerometerEvent}s. One operation is one event.
+ *
+ * @author Markus Wüstenberg
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccelerometerEventBenchmark {
+
+    private final AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+    private long timestamp;
+
+    @Benchmark
+    public AccelerometerEvent build() {
+        timestamp++;
+        return builder.reset()
+                .setAbsoluteTimestampMillis(timestamp)
+                .setRelativeTimestamp(timestamp)
+                .setX(timestamp)
+                .setY(-timestamp)
+                .setZ(1)
+                .build();
+    }
+}
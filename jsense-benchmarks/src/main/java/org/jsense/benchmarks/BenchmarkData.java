@@ -0,0 +1,42 @@
+package org.jsense.benchmarks;
+
+import org.jsense.AccelerometerEvent;
+
+import java.util.Random;
+
+/**
+ * Creates reproducible input data for the benchmarks.
+ *
+ * @author Markus Wüstenberg
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 20140509L;
+    private static final long START = 1399593600000L;
+    private static final long SAMPLE_INTERVAL_MILLIS = 10L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final float GRAVITY = 9.81f;
+
+    private BenchmarkData() {
+
+    }
+
+    /**
+     * Create events like those from a 100 Hz accelerometer, with ordered timestamps and noisy values.
+     */
+    static AccelerometerEvent[] newEvents(int count) {
+        Random random = new Random(SEED);
+        AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+        AccelerometerEvent[] events = new AccelerometerEvent[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = builder.reset()
+                    .setAbsoluteTimestampMillis(START + i * SAMPLE_INTERVAL_MILLIS)
+                    .setRelativeTimestamp(i * SAMPLE_INTERVAL_MILLIS * NANOS_PER_MILLI + random.nextInt(1000))
+                    .setX((float) random.nextGaussian())
+                    .setY((float) random.nextGaussian())
+                    .setZ(GRAVITY + (float) random.nextGaussian())
+                    .build();
+        }
+        return events;
+    }
+}
@@ -0,0 +1,89 @@
+package org.jsense.benchmarks;
+
+import com.google.common.io.ByteStreams;
+import org.jsense.AccelerometerEvent;
+import org.jsense.serialize.AsyncSerializer;
+import org.jsense.serialize.PbAccelerometerEventSerializer;
+import org.jsense.serialize.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks many threads serializing {@link org.jsense.AccelerometerEvent}s through one shared
+ * {@link org.jsense.serialize.Serializer}, comparing the synchronized {@link PbAccelerometerEventSerializer} with an
+ * {@link org.jsense.serialize.AsyncSerializer}. One operation is one serialized event.
+ *
+ * @author Markus Wüstenberg
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ConcurrentSerializerBenchmark {
+
+    @Param({"1000"})
+    private int inputSize;
+
+    private AccelerometerEvent[] events;
+
+    private Serializer<AccelerometerEvent> synchronizedSerializer;
+    private Serializer<AccelerometerEvent> asyncSerializer;
+
+    @Setup
+    public void setUp() {
+        events = BenchmarkData.newEvents(inputSize);
+        synchronizedSerializer = new PbAccelerometerEventSerializer(ByteStreams.nullOutputStream());
+        asyncSerializer = AsyncSerializer.<AccelerometerEvent>newBuilder()
+                .setSerializer(PbAccelerometerEventSerializer.newSingleWriterSerializer(ByteStreams.nullOutputStream()))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        synchronizedSerializer.close();
+        asyncSerializer.close();
+    }
+
+    @Benchmark
+    public Serializer<AccelerometerEvent> synchronizedSerializer(Producer producer) throws IOException {
+        return synchronizedSerializer.serialize(producer.nextEvent(events));
+    }
+
+    @Benchmark
+    public Serializer<AccelerometerEvent> asyncSerializer(Producer producer) throws IOException {
+        return asyncSerializer.serialize(producer.nextEvent(events));
+    }
+
+    /**
+     * The position of each thread in the events.
+     */
+    @State(Scope.Thread)
+    public static class Producer {
+
+        private int index;
+
+        private AccelerometerEvent nextEvent(AccelerometerEvent[] events) {
+            if (index == events.length) {
+                index = 0;
+            }
+            return events[index++];
+        }
+    }
+}
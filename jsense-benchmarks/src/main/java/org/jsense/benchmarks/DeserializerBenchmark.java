@@ -0,0 +1,152 @@
+package org.jsense.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import org.jsense.AccelerometerEvent;
+import org.jsense.ReadableAccelerometerEvent;
+import org.jsense.serialize.Cursor;
+import org.jsense.serialize.BinaryAccelerometerEventDeserializer;
+import org.jsense.serialize.BinaryAccelerometerEventSerializer;
+import org.jsense.serialize.CompressedAccelerometerEventDeserializer;
+import org.jsense.serialize.CompressedAccelerometerEventSerializer;
+import org.jsense.serialize.Deserializer;
+import org.jsense.serialize.PbAccelerometerEventBatchDeserializer;
+import org.jsense.serialize.PbAccelerometerEventBatchSerializer;
+import org.jsense.serialize.PbAccelerometerEventDeserializer;
+import org.jsense.serialize.PbAccelerometerEventSerializer;
+import org.jsense.serialize.Serializer;
+import org.jsense.serialize.SimpleAccelerometerEventDeserializer;
+import org.jsense.serialize.SimpleAccelerometerEventSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the {@link org.jsense.serialize.Deserializer}s for {@link org.jsense.AccelerometerEvent}s, reading from
+ * memory. One operation is one deserialized event, so the score is in events per second, and
+ * {@code gc.alloc.rate.norm} is in bytes allocated per event. When the input is used up, a new
+ * {@link org.jsense.serialize.Deserializer} is opened on it, and that cost is spread over {@code inputSize} events.
+ * The cursor benchmarks read the same input with a {@link org.jsense.serialize.Cursor} instead.
+ *
+ * @author Markus Wüstenberg
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeserializerBenchmark {
+
+    @Param({"1000", "100000"})
+    private int inputSize;
+
+    private byte[] simpleInput, pbInput, pbBatchInput, binaryInput, compressedInput;
+    private Iterator<AccelerometerEvent> simpleEvents, pbEvents, pbBatchEvents, binaryEvents, compressedEvents;
+    private Cursor<ReadableAccelerometerEvent> simpleCursor, pbCursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        ImmutableList<AccelerometerEvent> events = ImmutableList.copyOf(BenchmarkData.newEvents(inputSize));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serializer<AccelerometerEvent> serializer = new SimpleAccelerometerEventSerializer(out);
+        serializer.serialize(events).close();
+        simpleInput = out.toByteArray();
+
+        out = new ByteArrayOutputStream();
+        serializer = new PbAccelerometerEventSerializer(out);
+        serializer.serialize(events).close();
+        pbInput = out.toByteArray();
+
+        out = new ByteArrayOutputStream();
+        serializer = new PbAccelerometerEventBatchSerializer(out);
+        serializer.serialize(events).close();
+        pbBatchInput = out.toByteArray();
+
+        out = new ByteArrayOutputStream();
+        serializer = new BinaryAccelerometerEventSerializer(out);
+        serializer.serialize(events).close();
+        binaryInput = out.toByteArray();
+
+        out = new ByteArrayOutputStream();
+        serializer = new CompressedAccelerometerEventSerializer(out);
+        serializer.serialize(events).close();
+        compressedInput = out.toByteArray();
+    }
+
+    @Benchmark
+    public AccelerometerEvent simple() throws IOException {
+        if (simpleEvents == null || !simpleEvents.hasNext()) {
+            simpleEvents = open(new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(simpleInput)));
+        }
+        return simpleEvents.next();
+    }
+
+    @Benchmark
+    public AccelerometerEvent protocolBuffers() throws IOException {
+        if (pbEvents == null || !pbEvents.hasNext()) {
+            pbEvents = open(new PbAccelerometerEventDeserializer(new ByteArrayInputStream(pbInput)));
+        }
+        return pbEvents.next();
+    }
+
+    @Benchmark
+    public ReadableAccelerometerEvent simpleCursor() throws IOException {
+        if (simpleCursor == null || !simpleCursor.next()) {
+            simpleCursor = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(simpleInput)).cursor();
+            simpleCursor.next();
+        }
+        return simpleCursor.get();
+    }
+
+    @Benchmark
+    public ReadableAccelerometerEvent protocolBuffersCursor() throws IOException {
+        if (pbCursor == null || !pbCursor.next()) {
+            pbCursor = new PbAccelerometerEventDeserializer(new ByteArrayInputStream(pbInput)).cursor();
+            pbCursor.next();
+        }
+        return pbCursor.get();
+    }
+
+    @Benchmark
+    public AccelerometerEvent protocolBuffersBatch() throws IOException {
+        if (pbBatchEvents == null || !pbBatchEvents.hasNext()) {
+            pbBatchEvents = open(new PbAccelerometerEventBatchDeserializer(new ByteArrayInputStream(pbBatchInput)));
+        }
+        return pbBatchEvents.next();
+    }
+
+    @Benchmark
+    public AccelerometerEvent binary() throws IOException {
+        if (binaryEvents == null || !binaryEvents.hasNext()) {
+            binaryEvents = open(new BinaryAccelerometerEventDeserializer(new ByteArrayInputStream(binaryInput)));
+        }
+        return binaryEvents.next();
+    }
+
+    @Benchmark
+    public AccelerometerEvent compressed() throws IOException {
+        if (compressedEvents == null || !compressedEvents.hasNext()) {
+            compressedEvents = open(new CompressedAccelerometerEventDeserializer(new ByteArrayInputStream(compressedInput)));
+        }
+        return compressedEvents.next();
+    }
+
+    private static Iterator<AccelerometerEvent> open(Deserializer<AccelerometerEvent> deserializer) throws IOException {
+        return deserializer.deserialize().iterator();
+    }
+}
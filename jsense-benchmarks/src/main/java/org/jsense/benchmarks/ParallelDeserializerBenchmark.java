@@ -0,0 +1,91 @@
+package org.jsense.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import org.jsense.AccelerometerEvent;
+import org.jsense.serialize.Deserializer;
+import org.jsense.serialize.ParallelSimpleAccelerometerEventDeserializer;
+import org.jsense.serialize.SimpleAccelerometerEventDeserializer;
+import org.jsense.serialize.SimpleAccelerometerEventSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading a file of {@link org.jsense.AccelerometerEvent}s in the simple format, sequentially with the
+ * {@link org.jsense.serialize.SimpleAccelerometerEventDeserializer}, and in parallel on all processors with the
+ * {@link org.jsense.serialize.ParallelSimpleAccelerometerEventDeserializer}. One operation is one deserialized event,
+ * so the score is in events per second.
+ *
+ * @author Markus Wüstenberg
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelDeserializerBenchmark {
+
+    private static final int INPUT_SIZE = 1000000;
+
+    private File file;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("jsense-benchmark", ".csv");
+        new SimpleAccelerometerEventSerializer(new BufferedOutputStream(new FileOutputStream(file)))
+                .serialize(ImmutableList.copyOf(BenchmarkData.newEvents(INPUT_SIZE)))
+                .close();
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUT_SIZE)
+    public void sequential(Blackhole blackhole) throws IOException {
+        consume(new SimpleAccelerometerEventDeserializer(new FileInputStream(file)), blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUT_SIZE)
+    public void parallel(Blackhole blackhole) throws IOException {
+        consume(ParallelSimpleAccelerometerEventDeserializer.newBuilder()
+                .setFile(file)
+                .setExecutor(executor)
+                .build(), blackhole);
+    }
+
+    private static void consume(Deserializer<AccelerometerEvent> deserializer, Blackhole blackhole) throws IOException {
+        for (AccelerometerEvent event : deserializer.deserialize()) {
+            blackhole.consume(event);
+        }
+        deserializer.close();
+    }
+}
@@ -0,0 +1,134 @@
+package org.jsense.benchmarks;
+
+import com.google.common.io.ByteStreams;
+import org.jsense.AccelerometerEvent;
+import org.jsense.metrics.SerializerMetrics;
+import org.jsense.serialize.BinaryAccelerometerEventSerializer;
+import org.jsense.serialize.CompressedAccelerometerEventSerializer;
+import org.jsense.serialize.PbAccelerometerEventBatchSerializer;
+import org.jsense.serialize.PbAccelerometerEventSerializer;
+import org.jsense.serialize.Serializer;
+import org.jsense.serialize.SimpleAccelerometerEventSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the {@link org.jsense.serialize.Serializer}s for {@link org.jsense.AccelerometerEvent}s, writing to a sink
+ * that discards the output. One operation is one serialized event, so the score is in events per second, and
+ * {@code gc.alloc.rate.norm} is in bytes allocated per event.
+ *
+ * @author Markus Wüstenberg
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    @Param({"1000", "100000"})
+    private int inputSize;
+
+    private AccelerometerEvent[] events;
+    private int index;
+
+    private Serializer<AccelerometerEvent> simpleSerializer;
+    private Serializer<AccelerometerEvent> simpleSingleWriterSerializer;
+    private Serializer<AccelerometerEvent> simpleMeteredSerializer;
+    private Serializer<AccelerometerEvent> pbSerializer;
+    private Serializer<AccelerometerEvent> pbSingleWriterSerializer;
+    private Serializer<AccelerometerEvent> pbBatchSerializer;
+    private Serializer<AccelerometerEvent> binarySerializer;
+    private Serializer<AccelerometerEvent> compressedSerializer;
+
+    @Setup
+    public void setUp() {
+        events = BenchmarkData.newEvents(inputSize);
+        simpleSerializer = new SimpleAccelerometerEventSerializer(ByteStreams.nullOutputStream());
+        simpleSingleWriterSerializer = SimpleAccelerometerEventSerializer.newSingleWriterSerializer(ByteStreams.nullOutputStream());
+        SerializerMetrics metrics = new SerializerMetrics();
+        simpleMeteredSerializer = metrics.meter(new SimpleAccelerometerEventSerializer(metrics.meter(ByteStreams.nullOutputStream())));
+        pbSerializer = new PbAccelerometerEventSerializer(ByteStreams.nullOutputStream());
+        pbSingleWriterSerializer = PbAccelerometerEventSerializer.newSingleWriterSerializer(ByteStreams.nullOutputStream());
+        pbBatchSerializer = new PbAccelerometerEventBatchSerializer(ByteStreams.nullOutputStream());
+        binarySerializer = new BinaryAccelerometerEventSerializer(ByteStreams.nullOutputStream());
+        compressedSerializer = new CompressedAccelerometerEventSerializer(ByteStreams.nullOutputStream());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        simpleSerializer.close();
+        simpleSingleWriterSerializer.close();
+        simpleMeteredSerializer.close();
+        pbSerializer.close();
+        pbSingleWriterSerializer.close();
+        pbBatchSerializer.close();
+        binarySerializer.close();
+        compressedSerializer.close();
+    }
+
+    @Benchmark
+    public Serializer<AccelerometerEvent> simple() throws IOException {
+        return simpleSerializer.serialize(nextEvent());
+    }
+
+    @Benchmark
+    public Serializer<AccelerometerEvent> simpleSingleWriter() throws IOException {
+        return simpleSingleWriterSerializer.serialize(nextEvent());
+    }
+
+    /**
+     * The simple {@link org.jsense.serialize.Serializer} with {@link org.jsense.metrics.SerializerMetrics}, to compare
+     * with {@link #simple()} for the overhead of the metrics.
+     */
+    @Benchmark
+    public Serializer<AccelerometerEvent> simpleMetered() throws IOException {
+        return simpleMeteredSerializer.serialize(nextEvent());
+    }
+
+    @Benchmark
+    public Serializer<AccelerometerEvent> protocolBuffers() throws IOException {
+        return pbSerializer.serialize(nextEvent());
+    }
+
+    @Benchmark
+    public Serializer<AccelerometerEvent> protocolBuffersSingleWriter() throws IOException {
+        return pbSingleWriterSerializer.serialize(nextEvent());
+    }
+
+    @Benchmark
+    public Serializer<AccelerometerEvent> protocolBuffersBatch() throws IOException {
+        return pbBatchSerializer.serialize(nextEvent());
+    }
+
+    @Benchmark
+    public Serializer<AccelerometerEvent> binary() throws IOException {
+        return binarySerializer.serialize(nextEvent());
+    }
+
+    @Benchmark
+    public Serializer<AccelerometerEvent> compressed() throws IOException {
+        return compressedSerializer.serialize(nextEvent());
+    }
+
+    private AccelerometerEvent nextEvent() {
+        if (index == events.length) {
+            index = 0;
+        }
+        return events[index++];
+    }
+}
@@ -0,0 +1,68 @@
+package org.jsense.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import org.jsense.AccelerometerEvent;
+import org.jsense.compute.SampleBasedSlidingWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks iterating a {@link org.jsense.compute.SampleBasedSlidingWindow}. One operation is a full pass over all
+ * windows and their samples, so the score is in nanoseconds per pass. Dividing by {@code inputSize} gives the cost per
+ * sample, which should not grow with {@code inputSize}.
+ *
+ * @author Markus Wüstenberg
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SlidingWindowBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int inputSize;
+
+    @Param({"32", "128"})
+    private int windowSize;
+
+    @Param({"1", "4"})
+    private int overlap;
+
+    private List<AccelerometerEvent> events;
+
+    @Setup
+    public void setUp() {
+        events = ImmutableList.copyOf(BenchmarkData.newEvents(inputSize));
+    }
+
+    @Benchmark
+    public float pass() {
+        SampleBasedSlidingWindow<AccelerometerEvent> slidingWindow = SampleBasedSlidingWindow.<AccelerometerEvent>newBuilder()
+                .setSize(windowSize)
+                .setStep(windowSize / overlap)
+                .add(events)
+                .build();
+
+        float sum = 0;
+        for (Iterable<AccelerometerEvent> window : slidingWindow) {
+            for (AccelerometerEvent event : window) {
+                sum += event.getX();
+            }
+        }
+        return sum;
+    }
+}
@@ -13,37 +13,58 @@ import org.joda.time.ReadableInstant;
  * Sample values are in m/s^2. The absolute timestamp is often for synchronising with other samples, and the relative
  * timestamp is for comparing with samples from the same dataset with higher precision.
  * <p>
+ * The absolute timestamp is stored as milliseconds since the epoch, see {@link #getAbsoluteTimestampMillis()}. The
+ * {@link org.joda.time.Instant} returned by {@link #getAbsoluteTimestamp()} is created on demand, so code handling many
+ * events should prefer the milliseconds.
+ * <p>
  * This class is thread-safe and immutable.
  *
+ * @see org.jsense.MutableAccelerometerEvent
  * @author Markus Wüstenberg
  */
 @Beta
-public final class AccelerometerEvent {
+public final class AccelerometerEvent implements ReadableAccelerometerEvent {
 
-    private final Instant absoluteTimestamp;
+    private final long absoluteTimestamp;
     private final boolean hasRelativeTimestamp;
     private final long relativeTimestamp;
     private final float x, y, z;
 
     private AccelerometerEvent(Builder builder) {
-        absoluteTimestamp = builder.absoluteTimestamp;
-        hasRelativeTimestamp = builder.hasRelativeTimestamp;
+        this(builder.absoluteTimestamp, builder.hasRelativeTimestamp, builder.relativeTimestamp, builder.x, builder.y, builder.z);
+    }
+
+    /**
+     * Create an {@code AccelerometerEvent} directly from its values, for {@link MutableAccelerometerEvent#toAccelerometerEvent()}.
+     */
+    AccelerometerEvent(long absoluteTimestamp, boolean hasRelativeTimestamp, long relativeTimestamp, float x, float y, float z) {
+        this.absoluteTimestamp = absoluteTimestamp;
+        this.hasRelativeTimestamp = hasRelativeTimestamp;
         if (hasRelativeTimestamp) {
-            relativeTimestamp = builder.relativeTimestamp;
+            this.relativeTimestamp = relativeTimestamp;
         } else {
-            relativeTimestamp = 0;
+            this.relativeTimestamp = 0;
         }
-        x = builder.x;
-        y = builder.y;
-        z = builder.z;
+        this.x = x;
+        this.y = y;
+        this.z = z;
     }
 
     /**
-     * Get the absolute timestamp in milliseconds as an {@link org.joda.time.Instant}.
+     * Get the absolute timestamp in milliseconds as an {@link org.joda.time.Instant}, which is created on every call.
      *
      * @return The absolute timestamp.
      */
     public Instant getAbsoluteTimestamp() {
+        return new Instant(absoluteTimestamp);
+    }
+
+    /**
+     * Get the absolute timestamp in milliseconds since the epoch, 1970-01-01T00:00:00Z.
+     *
+     * @return The absolute timestamp in milliseconds.
+     */
+    public long getAbsoluteTimestampMillis() {
         return absoluteTimestamp;
     }
 
@@ -94,6 +115,16 @@ public final class AccelerometerEvent {
         return z;
     }
 
+    /**
+     * Return this {@code AccelerometerEvent}, as it is already immutable.
+     *
+     * @return This {@code AccelerometerEvent}.
+     */
+    @Override
+    public AccelerometerEvent toAccelerometerEvent() {
+        return this;
+    }
+
     /**
      * Get a new {@link Builder} for building an {@code AccelerometerEvent}.
      *
@@ -114,6 +145,9 @@ public final class AccelerometerEvent {
 
         AccelerometerEvent that = (AccelerometerEvent) o;
 
+        if (absoluteTimestamp != that.absoluteTimestamp) {
+            return false;
+        }
         if (hasRelativeTimestamp != that.hasRelativeTimestamp) {
             return false;
         }
@@ -129,9 +163,6 @@ public final class AccelerometerEvent {
         if (Float.compare(that.z, z) != 0) {
             return false;
         }
-        if (!absoluteTimestamp.equals(that.absoluteTimestamp)) {
-            return false;
-        }
 
         return true;
     }
@@ -144,7 +175,7 @@ public final class AccelerometerEvent {
     @Override
     public String toString() {
         Objects.ToStringHelper toStringHelper = Objects.toStringHelper(this)
-                .add("absoluteTimestamp", absoluteTimestamp)
+                .add("absoluteTimestamp", getAbsoluteTimestamp())
                 .add("hasRelativeTimestamp", hasRelativeTimestamp);
 
         if (hasRelativeTimestamp) {
@@ -166,14 +197,25 @@ public final class AccelerometerEvent {
      */
     public static final class Builder {
 
-        private Instant absoluteTimestamp;
+        private long absoluteTimestamp;
         private long relativeTimestamp;
         private float x, y, z;
         private boolean hasAbsoluteTimestamp, hasRelativeTimestamp, hasX, hasY, hasZ;
 
         public Builder setAbsoluteTimestamp(ReadableInstant absoluteTimestamp) {
             Preconditions.checkNotNull(absoluteTimestamp);
-            this.absoluteTimestamp = absoluteTimestamp.toInstant();
+            return setAbsoluteTimestampMillis(absoluteTimestamp.getMillis());
+        }
+
+        /**
+         * Set the absolute timestamp in milliseconds since the epoch, 1970-01-01T00:00:00Z, without creating an
+         * {@link org.joda.time.Instant}.
+         *
+         * @param absoluteTimestamp The absolute timestamp in milliseconds.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder setAbsoluteTimestampMillis(long absoluteTimestamp) {
+            this.absoluteTimestamp = absoluteTimestamp;
             hasAbsoluteTimestamp = true;
             return this;
         }
@@ -203,7 +245,7 @@ public final class AccelerometerEvent {
         }
 
         public Builder reset() {
-            absoluteTimestamp = null;
+            absoluteTimestamp = 0;
             relativeTimestamp = 0;
             x = 0;
             y = 0;
@@ -0,0 +1,361 @@
+package org.jsense;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.UnmodifiableIterator;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@code AccelerometerEventBatch} is a sequence of three-axis accelerometer samples, stored column by column in
+ * primitive arrays instead of as one {@link AccelerometerEvent} object per sample.
+ * <p>
+ * Holding many samples in a batch uses a fraction of the memory of the equivalent {@link AccelerometerEvent}s, and
+ * puts no pressure on the garbage collector. The indexed accessors such as {@link #getX(int)} don't allocate. A batch
+ * is also an {@link java.lang.Iterable} over {@link AccelerometerEvent}s, so it can be given directly to a
+ * {@link org.jsense.serialize.Serializer} or a {@link org.jsense.compute.SampleBasedSlidingWindow}, and created from a
+ * {@link org.jsense.serialize.Deserializer} with {@link #copyOf(Iterable)}. Events are only created when iterating or
+ * calling {@link #get(int)}.
+ * <p>
+ * This class is thread-safe and immutable.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class AccelerometerEventBatch implements Iterable<AccelerometerEvent> {
+
+    private static final int BITS_PER_WORD_SHIFT = 6;
+
+    private final long[] absoluteTimestamps;
+    private final long[] relativeTimestamps;
+    private final long[] hasRelativeTimestamps;
+    private final float[] x, y, z;
+    private final int offset, size;
+
+    private AccelerometerEventBatch(long[] absoluteTimestamps, long[] relativeTimestamps, long[] hasRelativeTimestamps,
+                                    float[] x, float[] y, float[] z, int offset, int size) {
+        this.absoluteTimestamps = absoluteTimestamps;
+        this.relativeTimestamps = relativeTimestamps;
+        this.hasRelativeTimestamps = hasRelativeTimestamps;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Get the number of samples in this batch.
+     *
+     * @return The number of samples.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return if this batch holds no samples.
+     *
+     * @return If the batch is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the absolute timestamp of a sample in milliseconds since the epoch.
+     *
+     * @param index The index of the sample.
+     * @return The absolute timestamp.
+     */
+    public long getAbsoluteTimestampMillis(int index) {
+        return absoluteTimestamps[offset + Preconditions.checkElementIndex(index, size)];
+    }
+
+    /**
+     * Return if there exists a relative timestamp for a sample.
+     *
+     * @param index The index of the sample.
+     * @return If a relative timestamp exists.
+     */
+    public boolean hasRelativeTimestamp(int index) {
+        return isSet(hasRelativeTimestamps, offset + Preconditions.checkElementIndex(index, size));
+    }
+
+    /**
+     * Get the relative timestamp of a sample in nanoseconds. This only makes sense if {@link #hasRelativeTimestamp(int)}
+     * returns true, and throws an {@link java.lang.IllegalStateException} if called anyway.
+     *
+     * @param index The index of the sample.
+     * @return The relative timestamp.
+     */
+    public long getRelativeTimestamp(int index) {
+        Preconditions.checkState(hasRelativeTimestamp(index), "No relative timestamp exists.");
+        return relativeTimestamps[offset + index];
+    }
+
+    /**
+     * Get the x-axis sample value in m/s^2.
+     *
+     * @param index The index of the sample.
+     * @return The x-axis sample value in m/s^2.
+     */
+    public float getX(int index) {
+        return x[offset + Preconditions.checkElementIndex(index, size)];
+    }
+
+    /**
+     * Get the y-axis sample value in m/s^2.
+     *
+     * @param index The index of the sample.
+     * @return The y-axis sample value in m/s^2.
+     */
+    public float getY(int index) {
+        return y[offset + Preconditions.checkElementIndex(index, size)];
+    }
+
+    /**
+     * Get the z-axis sample value in m/s^2.
+     *
+     * @param index The index of the sample.
+     * @return The z-axis sample value in m/s^2.
+     */
+    public float getZ(int index) {
+        return z[offset + Preconditions.checkElementIndex(index, size)];
+    }
+
+    /**
+     * Create an {@link AccelerometerEvent} for a sample.
+     *
+     * @param index The index of the sample.
+     * @return A new {@link AccelerometerEvent}.
+     */
+    public AccelerometerEvent get(int index) {
+        return toEvent(index, AccelerometerEvent.newBuilder());
+    }
+
+    /**
+     * Get the part of this batch between {@code fromIndex}, inclusive, and {@code toIndex}, exclusive. The returned
+     * batch shares the underlying arrays with this batch, so no samples are copied.
+     *
+     * @param fromIndex The index of the first sample, inclusive.
+     * @param toIndex The index of the last sample, exclusive.
+     * @return The part of this batch.
+     */
+    public AccelerometerEventBatch slice(int fromIndex, int toIndex) {
+        Preconditions.checkPositionIndexes(fromIndex, toIndex, size);
+        return new AccelerometerEventBatch(absoluteTimestamps, relativeTimestamps, hasRelativeTimestamps, x, y, z,
+                offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Returns an iterator that creates an {@link AccelerometerEvent} for each sample as it is reached.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<AccelerometerEvent> iterator() {
+        return new UnmodifiableIterator<AccelerometerEvent>() {
+            private final AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public AccelerometerEvent next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No more elements.");
+                }
+                return toEvent(index++, builder.reset());
+            }
+        };
+    }
+
+    /**
+     * Create a batch holding the given events, in order. This can be used for reading the output of a
+     * {@link org.jsense.serialize.Deserializer} into a batch.
+     *
+     * @param events The events.
+     * @return A new {@code AccelerometerEventBatch}.
+     */
+    public static AccelerometerEventBatch copyOf(Iterable<AccelerometerEvent> events) {
+        return newBuilder().add(events).build();
+    }
+
+    /**
+     * Get a new {@link Builder} for building an {@code AccelerometerEventBatch}.
+     *
+     * @return A new {@link Builder}.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        AccelerometerEventBatch that = (AccelerometerEventBatch) o;
+
+        if (size != that.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!sampleEquals(that, i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size;
+        for (int i = 0; i < size; i++) {
+            int j = offset + i;
+            boolean hasRelativeTimestamp = isSet(hasRelativeTimestamps, j);
+            result = 31 * result + Objects.hashCode(absoluteTimestamps[j], hasRelativeTimestamp,
+                    hasRelativeTimestamp ? relativeTimestamps[j] : 0L, x[j], y[j], z[j]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("size", size)
+                .toString();
+    }
+
+    private boolean sampleEquals(AccelerometerEventBatch that, int index) {
+        int i = offset + index;
+        int j = that.offset + index;
+        boolean hasRelativeTimestamp = isSet(hasRelativeTimestamps, i);
+        return absoluteTimestamps[i] == that.absoluteTimestamps[j]
+                && hasRelativeTimestamp == isSet(that.hasRelativeTimestamps, j)
+                && (!hasRelativeTimestamp || relativeTimestamps[i] == that.relativeTimestamps[j])
+                && Float.compare(x[i], that.x[j]) == 0
+                && Float.compare(y[i], that.y[j]) == 0
+                && Float.compare(z[i], that.z[j]) == 0;
+    }
+
+    private AccelerometerEvent toEvent(int index, AccelerometerEvent.Builder builder) {
+        int i = offset + Preconditions.checkElementIndex(index, size);
+        builder.setAbsoluteTimestampMillis(absoluteTimestamps[i])
+                .setX(x[i])
+                .setY(y[i])
+                .setZ(z[i]);
+        if (isSet(hasRelativeTimestamps, i)) {
+            builder.setRelativeTimestamp(relativeTimestamps[i]);
+        }
+        return builder.build();
+    }
+
+    private static boolean isSet(long[] bitmap, int index) {
+        return (bitmap[index >>> BITS_PER_WORD_SHIFT] & (1L << index)) != 0;
+    }
+
+    /**
+     * A {@code Builder} for the {@link AccelerometerEventBatch}.
+     * <p>
+     * Samples are appended to growing primitive arrays. A {@code Builder} can be used multiple times by calling the
+     * {@link #build()} method repeatedly, as each batch gets its own copy of the samples. The {@link #reset()} method
+     * can be used to remove all samples from the {@code Builder}.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] absoluteTimestamps = new long[INITIAL_CAPACITY];
+        private long[] relativeTimestamps = new long[INITIAL_CAPACITY];
+        private long[] hasRelativeTimestamps = new long[bitmapLength(INITIAL_CAPACITY)];
+        private float[] x = new float[INITIAL_CAPACITY];
+        private float[] y = new float[INITIAL_CAPACITY];
+        private float[] z = new float[INITIAL_CAPACITY];
+        private int size;
+
+        public Builder add(AccelerometerEvent event) {
+            Preconditions.checkNotNull(event);
+            if (event.hasRelativeTimestamp()) {
+                return add(event.getAbsoluteTimestampMillis(), event.getRelativeTimestamp(), event.getX(), event.getY(), event.getZ());
+            }
+            return add(event.getAbsoluteTimestampMillis(), event.getX(), event.getY(), event.getZ());
+        }
+
+        public Builder add(Iterable<AccelerometerEvent> events) {
+            Preconditions.checkNotNull(events);
+            for (AccelerometerEvent event : events) {
+                add(event);
+            }
+            return this;
+        }
+
+        public Builder add(long absoluteTimestampMillis, float x, float y, float z) {
+            ensureCapacity(size + 1);
+            set(size++, absoluteTimestampMillis, 0, x, y, z);
+            return this;
+        }
+
+        public Builder add(long absoluteTimestampMillis, long relativeTimestamp, float x, float y, float z) {
+            ensureCapacity(size + 1);
+            hasRelativeTimestamps[size >>> BITS_PER_WORD_SHIFT] |= 1L << size;
+            set(size++, absoluteTimestampMillis, relativeTimestamp, x, y, z);
+            return this;
+        }
+
+        public Builder reset() {
+            Arrays.fill(hasRelativeTimestamps, 0L);
+            size = 0;
+            return this;
+        }
+
+        public AccelerometerEventBatch build() {
+            return new AccelerometerEventBatch(
+                    Arrays.copyOf(absoluteTimestamps, size),
+                    Arrays.copyOf(relativeTimestamps, size),
+                    Arrays.copyOf(hasRelativeTimestamps, bitmapLength(size)),
+                    Arrays.copyOf(x, size),
+                    Arrays.copyOf(y, size),
+                    Arrays.copyOf(z, size),
+                    0,
+                    size);
+        }
+
+        private void set(int index, long absoluteTimestampMillis, long relativeTimestamp, float x, float y, float z) {
+            this.absoluteTimestamps[index] = absoluteTimestampMillis;
+            this.relativeTimestamps[index] = relativeTimestamp;
+            this.x[index] = x;
+            this.y[index] = y;
+            this.z[index] = z;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= absoluteTimestamps.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, absoluteTimestamps.length * 2);
+            absoluteTimestamps = Arrays.copyOf(absoluteTimestamps, newCapacity);
+            relativeTimestamps = Arrays.copyOf(relativeTimestamps, newCapacity);
+            hasRelativeTimestamps = Arrays.copyOf(hasRelativeTimestamps, bitmapLength(newCapacity));
+            x = Arrays.copyOf(x, newCapacity);
+            y = Arrays.copyOf(y, newCapacity);
+            z = Arrays.copyOf(z, newCapacity);
+        }
+
+        private static int bitmapLength(int size) {
+            return (size + Long.SIZE - 1) >>> BITS_PER_WORD_SHIFT;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.jsense;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@code MutableAccelerometerEvent} is a reusable {@link org.jsense.ReadableAccelerometerEvent}, which is filled
+ * again for every sample, for reading many events without allocating.
+ * <p>
+ * The deserializers fill one when read with a {@link org.jsense.serialize.Cursor}. To keep the values, call
+ * {@link #toAccelerometerEvent()}. As it is mutable, it doesn't override {@link #equals(Object)} and
+ * {@link #hashCode()}, so compare the {@link org.jsense.AccelerometerEvent}s instead.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.AccelerometerEvent
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class MutableAccelerometerEvent implements ReadableAccelerometerEvent {
+
+    private long absoluteTimestamp;
+    private boolean hasRelativeTimestamp;
+    private long relativeTimestamp;
+    private float x, y, z;
+
+    /**
+     * Set all values from another event.
+     *
+     * @param event The event to copy the values of.
+     * @return The {@code MutableAccelerometerEvent}, for method chaining.
+     */
+    public MutableAccelerometerEvent set(ReadableAccelerometerEvent event) {
+        Preconditions.checkNotNull(event);
+        absoluteTimestamp = event.getAbsoluteTimestampMillis();
+        hasRelativeTimestamp = event.hasRelativeTimestamp();
+        relativeTimestamp = hasRelativeTimestamp ? event.getRelativeTimestamp() : 0;
+        x = event.getX();
+        y = event.getY();
+        z = event.getZ();
+        return this;
+    }
+
+    public MutableAccelerometerEvent setAbsoluteTimestampMillis(long absoluteTimestamp) {
+        this.absoluteTimestamp = absoluteTimestamp;
+        return this;
+    }
+
+    public MutableAccelerometerEvent setRelativeTimestamp(long relativeTimestamp) {
+        this.relativeTimestamp = relativeTimestamp;
+        hasRelativeTimestamp = true;
+        return this;
+    }
+
+    public MutableAccelerometerEvent clearRelativeTimestamp() {
+        relativeTimestamp = 0;
+        hasRelativeTimestamp = false;
+        return this;
+    }
+
+    public MutableAccelerometerEvent setX(float x) {
+        this.x = x;
+        return this;
+    }
+
+    public MutableAccelerometerEvent setY(float y) {
+        this.y = y;
+        return this;
+    }
+
+    public MutableAccelerometerEvent setZ(float z) {
+        this.z = z;
+        return this;
+    }
+
+    @Override
+    public long getAbsoluteTimestampMillis() {
+        return absoluteTimestamp;
+    }
+
+    @Override
+    public boolean hasRelativeTimestamp() {
+        return hasRelativeTimestamp;
+    }
+
+    @Override
+    public long getRelativeTimestamp() {
+        Preconditions.checkState(hasRelativeTimestamp, "No relative timestamp exists.");
+        return relativeTimestamp;
+    }
+
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public float getZ() {
+        return z;
+    }
+
+    @Override
+    public AccelerometerEvent toAccelerometerEvent() {
+        return new AccelerometerEvent(absoluteTimestamp, hasRelativeTimestamp, relativeTimestamp, x, y, z);
+    }
+
+    @Override
+    public String toString() {
+        Objects.ToStringHelper toStringHelper = Objects.toStringHelper(this)
+                .add("absoluteTimestamp", absoluteTimestamp)
+                .add("hasRelativeTimestamp", hasRelativeTimestamp);
+
+        if (hasRelativeTimestamp) {
+            toStringHelper.add("relativeTimestamp", relativeTimestamp);
+        }
+
+        return toStringHelper
+                .add("x", x)
+                .add("y", y)
+                .add("z", z)
+                .toString();
+    }
+}
@@ -0,0 +1,68 @@
+package org.jsense;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A {@code ReadableAccelerometerEvent} is a read-only view of a sample from a three-axis accelerometer, implemented by
+ * both the immutable {@link org.jsense.AccelerometerEvent} and the reusable {@link org.jsense.MutableAccelerometerEvent}.
+ * <p>
+ * Code that only reads events, and doesn't keep them, can accept a {@code ReadableAccelerometerEvent} and so work
+ * without allocating an event per sample. Code that keeps an event must call {@link #toAccelerometerEvent()}, as the
+ * values of a mutable event may change.
+ *
+ * @see org.jsense.AccelerometerEvent
+ * @author Markus Wüstenberg
+ */
+@Beta
+public interface ReadableAccelerometerEvent {
+
+    /**
+     * Get the absolute timestamp in milliseconds since the epoch, 1970-01-01T00:00:00Z.
+     *
+     * @return The absolute timestamp in milliseconds.
+     */
+    long getAbsoluteTimestampMillis();
+
+    /**
+     * Return if there exists a relative timestamp.
+     *
+     * @return If a relative timestamp exists.
+     */
+    boolean hasRelativeTimestamp();
+
+    /**
+     * Get the relative timestamp in nanoseconds. This only makes sense if {@link #hasRelativeTimestamp()} returns true,
+     * and throws an {@link java.lang.IllegalStateException} if called anyway.
+     *
+     * @return The relative timestamp.
+     */
+    long getRelativeTimestamp();
+
+    /**
+     * Get the x-axis sample value in m/s^2.
+     *
+     * @return The x-axis sample value in m/s^2.
+     */
+    float getX();
+
+    /**
+     * Get the y-axis sample value in m/s^2.
+     *
+     * @return The y-axis sample value in m/s^2.
+     */
+    float getY();
+
+    /**
+     * Get the z-axis sample value in m/s^2.
+     *
+     * @return The z-axis sample value in m/s^2.
+     */
+    float getZ();
+
+    /**
+     * Get the values as an immutable {@link org.jsense.AccelerometerEvent}, which is this event itself if it is one.
+     *
+     * @return An {@link org.jsense.AccelerometerEvent} with the same values.
+     */
+    AccelerometerEvent toAccelerometerEvent();
+}
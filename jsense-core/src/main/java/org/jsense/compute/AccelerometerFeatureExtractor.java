@@ -0,0 +1,197 @@
+package org.jsense.compute;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.UnmodifiableIterator;
+import org.jsense.AccelerometerEvent;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@code AccelerometerFeatureExtractor} computes a vector of {@link Feature}s for each window of a
+ * {@link SampleBasedSlidingWindow} over {@link org.jsense.AccelerometerEvent}s.
+ * <p>
+ * The features are kept up to date as samples enter and leave the window, instead of being recomputed over the whole
+ * window, so each sample costs O(1) no matter the window size or overlap. The mean and variance use Welford's online
+ * algorithm, and the variance is the population variance.
+ * <p>
+ * Each feature vector is a new {@code double[]}, indexed by {@link Feature#ordinal()}, for example
+ * {@code vector[Feature.MEAN_X.ordinal()]}.
+ * <p>
+ * The {@code Iterator} does not support the {@code remove()} method, which throws
+ * an {@link UnsupportedOperationException} if called.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class AccelerometerFeatureExtractor implements Iterable<double[]> {
+
+    /**
+     * The features in a feature vector, in order. The magnitude is the Euclidean norm of the x, y and z sample values.
+     */
+    public enum Feature {
+        MEAN_X, VARIANCE_X, MIN_X, MAX_X,
+        MEAN_Y, VARIANCE_Y, MIN_Y, MAX_Y,
+        MEAN_Z, VARIANCE_Z, MIN_Z, MAX_Z,
+        MEAN_MAGNITUDE, VARIANCE_MAGNITUDE, MIN_MAGNITUDE, MAX_MAGNITUDE
+    }
+
+    private static final int FEATURES_PER_VALUE = 4;
+    private static final int VALUES = 4;
+
+    private final Iterable<AccelerometerEvent> data;
+    private final int size;
+    private final int step;
+
+    private AccelerometerFeatureExtractor(Builder builder) {
+        this.data = builder.data;
+        this.size = builder.size;
+        this.step = builder.hasStep ? builder.step : builder.size;
+    }
+
+    /**
+     * Returns the iterator, which can only be traversed once.
+     * @return the iterator
+     */
+    @Override
+    public Iterator<double[]> iterator() {
+        return new FeatureIterator();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * A {@code Builder} for the {@code AccelerometerFeatureExtractor}. The size and step are the same as for
+     * {@link SampleBasedSlidingWindow}.
+     */
+    public static final class Builder {
+
+        private int size, step;
+        private Iterable<AccelerometerEvent> data = ImmutableList.of();
+        private boolean hasSize, hasStep, hasData;
+
+        public Builder setSize(int size) {
+            Preconditions.checkArgument(size > 0, "Size must be positive.");
+            this.size = size;
+            hasSize = true;
+            return this;
+        }
+
+        public Builder setStep(int step) {
+            Preconditions.checkArgument(step > 0, "Step must be positive.");
+            this.step = step;
+            hasStep = true;
+            return this;
+        }
+
+        public Builder add(AccelerometerEvent event, AccelerometerEvent... events) {
+            Preconditions.checkNotNull(event);
+            Preconditions.checkNotNull(events);
+
+            hasData = true;
+
+            ImmutableList.Builder<AccelerometerEvent> listBuilder = ImmutableList.builder();
+            listBuilder.add(event);
+
+            if (events.length > 0) {
+                listBuilder.add(events);
+            }
+
+            data = Iterables.concat(data, listBuilder.build());
+
+            return this;
+        }
+
+        public Builder add(Iterable<AccelerometerEvent> events) {
+            Preconditions.checkNotNull(events);
+            if (Iterables.isEmpty(events)) {
+                return this;
+            }
+
+            hasData = true;
+            data = Iterables.concat(data, events);
+
+            return this;
+        }
+
+        public AccelerometerFeatureExtractor build() {
+            if (!hasSize || !hasData) {
+                throw new IllegalStateException("Size hasn't been set or no data supplied.");
+            }
+            return new AccelerometerFeatureExtractor(this);
+        }
+    }
+
+    /**
+     * An iterator over the feature vectors, driving a {@link SampleBasedSlidingWindow} and listening to its changes.
+     */
+    private class FeatureIterator extends UnmodifiableIterator<double[]> implements WindowListener<AccelerometerEvent> {
+
+        private final RunningStatistics[] statistics = new RunningStatistics[VALUES];
+        private final Iterator<Iterable<AccelerometerEvent>> windows;
+
+        FeatureIterator() {
+            for (int i = 0; i < VALUES; i++) {
+                statistics[i] = new RunningStatistics(size);
+            }
+            windows = SampleBasedSlidingWindow.<AccelerometerEvent>newBuilder()
+                    .setSize(size)
+                    .setStep(step)
+                    .add(data)
+                    .setListener(this)
+                    .build()
+                    .iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return windows.hasNext();
+        }
+
+        @Override
+        public double[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more elements.");
+            }
+            windows.next();
+
+            double[] features = new double[Feature.values().length];
+            for (int i = 0; i < VALUES; i++) {
+                int offset = i * FEATURES_PER_VALUE;
+                features[offset] = statistics[i].getMean();
+                features[offset + 1] = statistics[i].getVariance();
+                features[offset + 2] = statistics[i].getMin();
+                features[offset + 3] = statistics[i].getMax();
+            }
+            return features;
+        }
+
+        @Override
+        public void added(AccelerometerEvent event) {
+            statistics[0].add(event.getX());
+            statistics[1].add(event.getY());
+            statistics[2].add(event.getZ());
+            statistics[3].add(magnitude(event));
+        }
+
+        @Override
+        public void removed(AccelerometerEvent event) {
+            statistics[0].remove(event.getX());
+            statistics[1].remove(event.getY());
+            statistics[2].remove(event.getZ());
+            statistics[3].remove(magnitude(event));
+        }
+
+        private double magnitude(AccelerometerEvent event) {
+            double x = event.getX();
+            double y = event.getY();
+            double z = event.getZ();
+            return Math.sqrt(x * x + y * y + z * z);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.jsense.compute;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@code ParallelSampleBasedSlidingWindow} applies a computation to every window of a sliding window over a
+ * {@link java.util.List}, spreading the windows over the threads of an {@link java.util.concurrent.ExecutorService}.
+ * <p>
+ * The windows are the same as those of a {@link SampleBasedSlidingWindow} with the same size and step. They are split
+ * into chunks of consecutive windows, and each chunk is a task. As every window is a view of the shared, random access
+ * data, windows overlapping a chunk boundary see exactly the samples they would see in a sequential pass. The results
+ * are returned in window order.
+ * <p>
+ * Any {@link java.util.concurrent.ExecutorService} can be used, including a {@code ForkJoinPool} on Java 7 and later.
+ * The data must not be modified while the computation runs, and the computation must be thread-safe.
+ *
+ * @author Markus Wüstenberg
+ * @param <E> The type in the window.
+ */
+@Beta
+public final class ParallelSampleBasedSlidingWindow<E> {
+
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final List<E> data;
+    private final int size;
+    private final int step;
+    private final int chunkSize;
+
+    private ParallelSampleBasedSlidingWindow(Builder<E> builder) {
+        this.data = Collections.unmodifiableList(builder.data);
+        this.size = builder.size;
+        this.step = builder.hasStep ? builder.step : builder.size;
+        this.chunkSize = builder.hasChunkSize ? builder.chunkSize : defaultChunkSize(getWindowCount());
+    }
+
+    /**
+     * Get the number of windows.
+     *
+     * @return The number of windows.
+     */
+    public int getWindowCount() {
+        // Every window after the first must hold at least one sample that the previous window didn't
+        int first = Math.max(size, step);
+        if (data.size() <= first) {
+            return 1;
+        }
+        return 1 + (data.size() - first + step - 1) / step;
+    }
+
+    /**
+     * Apply a function to every window, in parallel, and block until all results are ready.
+     *
+     * @param function The function, which gets each window as a read-only {@link java.util.List}.
+     * @param executor The {@link java.util.concurrent.ExecutorService} to run the chunks of windows on.
+     * @param <R> The type of the results.
+     * @return The results, in window order.
+     * @throws InterruptedException If interrupted while waiting for the results.
+     * @throws ExecutionException If the function threw an exception for any window.
+     */
+    public <R> List<R> transform(final Function<? super List<E>, ? extends R> function, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        Preconditions.checkNotNull(function);
+        Preconditions.checkNotNull(executor);
+
+        int windows = getWindowCount();
+        List<Callable<List<R>>> tasks = Lists.newArrayList();
+        for (int from = 0; from < windows; from += chunkSize) {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min(from + chunkSize, windows);
+            tasks.add(new Callable<List<R>>() {
+                @Override
+                public List<R> call() {
+                    List<R> results = Lists.newArrayListWithCapacity(chunkTo - chunkFrom);
+                    for (int window = chunkFrom; window < chunkTo; window++) {
+                        int start = window * step;
+                        results.add(function.apply(data.subList(start, Math.min(start + size, data.size()))));
+                    }
+                    return results;
+                }
+            });
+        }
+
+        List<R> results = Lists.newArrayListWithCapacity(windows);
+        for (Future<List<R>> future : executor.invokeAll(tasks)) {
+            results.addAll(future.get());
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    public static <E> Builder<E> newBuilder() {
+        return new Builder<E>();
+    }
+
+    private static int defaultChunkSize(int windows) {
+        int chunks = Runtime.getRuntime().availableProcessors() * CHUNKS_PER_THREAD;
+        return Math.max((windows + chunks - 1) / chunks, 1);
+    }
+
+    /**
+     * A {@code Builder} for the {@code ParallelSampleBasedSlidingWindow}. The size and step are the same as for
+     * {@link SampleBasedSlidingWindow}.
+     * @param <E> The type in the window.
+     */
+    public static final class Builder<E> {
+
+        private int size, step, chunkSize;
+        private List<E> data = ImmutableList.of();
+        private boolean hasSize, hasStep, hasChunkSize;
+
+        public Builder<E> setSize(int size) {
+            Preconditions.checkArgument(size > 0, "Size must be positive.");
+            this.size = size;
+            hasSize = true;
+            return this;
+        }
+
+        public Builder<E> setStep(int step) {
+            Preconditions.checkArgument(step > 0, "Step must be positive.");
+            this.step = step;
+            hasStep = true;
+            return this;
+        }
+
+        /**
+         * Set the number of consecutive windows in each task. If not set, the windows are split into a few chunks per
+         * available processor.
+         *
+         * @param chunkSize The number of windows per task, which must be positive.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder<E> setChunkSize(int chunkSize) {
+            Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive.");
+            this.chunkSize = chunkSize;
+            hasChunkSize = true;
+            return this;
+        }
+
+        /**
+         * Set the data, which should support fast random access, such as an {@link java.util.ArrayList}.
+         *
+         * @param data The data.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder<E> setData(List<E> data) {
+            Preconditions.checkNotNull(data);
+            this.data = data;
+            return this;
+        }
+
+        public ParallelSampleBasedSlidingWindow<E> build() {
+            if (!hasSize || data.isEmpty()) {
+                throw new IllegalStateException("Size hasn't been set or no data supplied.");
+            }
+            return new ParallelSampleBasedSlidingWindow<E>(this);
+        }
+    }
+}
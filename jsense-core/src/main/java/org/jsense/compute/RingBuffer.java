@@ -0,0 +1,66 @@
+package org.jsense.compute;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A fixed-capacity first-in-first-out buffer backed by a circular array, so adding and removing elements never moves
+ * the other elements.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <E> The type in the buffer.
+ * @author Markus Wüstenberg
+ */
+final class RingBuffer<E> {
+
+    private final Object[] elements;
+    private int head, count;
+
+    RingBuffer(int capacity) {
+        Preconditions.checkArgument(capacity >= 0, "Capacity can't be negative.");
+        elements = new Object[capacity];
+    }
+
+    int size() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    boolean isFull() {
+        return count == elements.length;
+    }
+
+    /**
+     * Add an element after the newest element.
+     */
+    void add(E element) {
+        Preconditions.checkState(!isFull(), "The buffer is full.");
+        elements[(head + count) % elements.length] = element;
+        count++;
+    }
+
+    /**
+     * Remove and return the oldest element.
+     */
+    @SuppressWarnings("unchecked")
+    E remove() {
+        Preconditions.checkState(!isEmpty(), "The buffer is empty.");
+        E element = (E) elements[head];
+        elements[head] = null;
+        head = (head + 1) % elements.length;
+        count--;
+        return element;
+    }
+
+    /**
+     * Get an element by its position, where 0 is the oldest element.
+     */
+    @SuppressWarnings("unchecked")
+    E get(int index) {
+        Preconditions.checkElementIndex(index, count);
+        return (E) elements[(head + index) % elements.length];
+    }
+}
@@ -0,0 +1,130 @@
+package org.jsense.compute;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@code RunningStatistics} keeps the count, mean, variance, minimum and maximum of a sliding sequence of values, where
+ * values are added as the newest and removed as the oldest.
+ * <p>
+ * Every update is O(1), amortized for the minimum and maximum. The mean and variance are updated with Welford's
+ * algorithm and its inverse, and the minimum and maximum are kept in monotonic deques.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+final class RunningStatistics {
+
+    private final MonotonicDeque minimums;
+    private final MonotonicDeque maximums;
+    private long added, removed;
+    private double mean, squaredDistances;
+
+    /**
+     * @param capacity The maximum number of values held at any time.
+     */
+    RunningStatistics(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive.");
+        minimums = new MonotonicDeque(capacity, false);
+        maximums = new MonotonicDeque(capacity, true);
+    }
+
+    void add(double value) {
+        long count = getCount() + 1;
+        double delta = value - mean;
+        mean += delta / count;
+        squaredDistances += delta * (value - mean);
+        minimums.add(value, added);
+        maximums.add(value, added);
+        added++;
+    }
+
+    /**
+     * Remove the oldest value, which must be equal to {@code value}.
+     */
+    void remove(double value) {
+        Preconditions.checkState(getCount() > 0, "No values to remove.");
+        long count = getCount() - 1;
+        if (count == 0) {
+            mean = 0;
+            squaredDistances = 0;
+        } else {
+            double delta = value - mean;
+            mean -= delta / count;
+            squaredDistances -= delta * (value - mean);
+        }
+        minimums.remove(removed);
+        maximums.remove(removed);
+        removed++;
+    }
+
+    long getCount() {
+        return added - removed;
+    }
+
+    double getMean() {
+        return getCount() == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Get the population variance.
+     */
+    double getVariance() {
+        // Rounding errors from removing values may give slightly negative results
+        return getCount() == 0 ? Double.NaN : Math.max(squaredDistances / getCount(), 0);
+    }
+
+    double getMin() {
+        return getCount() == 0 ? Double.NaN : minimums.first();
+    }
+
+    double getMax() {
+        return getCount() == 0 ? Double.NaN : maximums.first();
+    }
+
+    /**
+     * A deque of values with their sequence numbers, kept monotonic so the first value is the extreme of the window.
+     */
+    private static final class MonotonicDeque {
+
+        private final double[] values;
+        private final long[] sequences;
+        private final boolean maximum;
+        private int head, count;
+
+        private MonotonicDeque(int capacity, boolean maximum) {
+            values = new double[capacity];
+            sequences = new long[capacity];
+            this.maximum = maximum;
+        }
+
+        private void add(double value, long sequence) {
+            while (count > 0 && dominates(value, values[index(count - 1)])) {
+                count--;
+            }
+            Preconditions.checkState(count < values.length, "Capacity exceeded.");
+            int i = index(count++);
+            values[i] = value;
+            sequences[i] = sequence;
+        }
+
+        private void remove(long sequence) {
+            if (count > 0 && sequences[head] == sequence) {
+                head = index(1);
+                count--;
+            }
+        }
+
+        private double first() {
+            return values[head];
+        }
+
+        private boolean dominates(double value, double other) {
+            return maximum ? value >= other : value <= other;
+        }
+
+        private int index(int offset) {
+            return (head + offset) % values.length;
+        }
+    }
+}
@@ -4,7 +4,9 @@ import com.google.common.annotations.Beta;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.UnmodifiableIterator;
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -12,9 +14,20 @@ import java.util.NoSuchElementException;
  * A {@code SampleBasedSlidingWindow} is a sliding window of a fixed size, optionally overlapping, working over
  * an ordered sequence of data.
  * <p>
- * The sliding window is lazy, and only loads more data when it is accessed through the iterator.
+ * Consecutive windows start {@code step} samples apart. The step defaults to the window size, which gives back-to-back
+ * windows. A smaller step gives overlapping windows, for example a size of 128 and a step of 32 gives 75% overlap. A
+ * larger step skips the samples between windows.
  * <p>
- * The last {@code ImmutableList&lt;E&gt;} returned by the {@code Iterator} may hold less samples than the window size.
+ * The sliding window is lazy, and only loads more data when it is accessed through the iterator. Each sample is read
+ * from the underlying data exactly once, into a buffer that is reused for every window, so a full pass is linear in
+ * the number of samples. Samples shared by overlapping windows are kept in the buffer, and are neither read nor copied
+ * again. A window returned by the {@code Iterator} is a read-only view of that buffer, and is only
+ * valid until the next call to {@code next()}. Reading it after that throws a
+ * {@link java.util.ConcurrentModificationException}. Copy it, for example with {@link ImmutableList#copyOf(Iterable)},
+ * to keep it around.
+ * <p>
+ * Every window holds at least one sample not held by the previous window. The last window returned by the
+ * {@code Iterator} may hold less samples than the window size.
  * <p>
  * The {@code Iterator} does not support the {@code remove()} method, which throws
  * an {@link UnsupportedOperationException} if called.
@@ -27,10 +40,14 @@ public final class SampleBasedSlidingWindow<E> implements Iterable<Iterable<E>>
 
     private final Iterable<E> data;
     private final int size;
+    private final int step;
+    private final WindowListener<? super E> listener;
 
     private SampleBasedSlidingWindow(Builder<E> builder) {
         this.data = Iterables.unmodifiableIterable(builder.data);
         this.size = builder.size;
+        this.step = builder.hasStep ? builder.step : builder.size;
+        this.listener = builder.listener;
     }
 
     /**
@@ -52,9 +69,10 @@ public final class SampleBasedSlidingWindow<E> implements Iterable<Iterable<E>>
      */
     public static final class Builder<E> {
 
-        private int size;
+        private int size, step;
         private Iterable<E> data = ImmutableList.of();
-        private boolean hasSize, hasData;
+        private WindowListener<? super E> listener;
+        private boolean hasSize, hasStep, hasData;
 
         public Builder<E> setSize(int size) {
             Preconditions.checkArgument(size >= 0, "Size can't be negative.");
@@ -63,6 +81,19 @@ public final class SampleBasedSlidingWindow<E> implements Iterable<Iterable<E>>
             return this;
         }
 
+        /**
+         * Set the number of samples between the starts of consecutive windows. If not set, the step is the window size.
+         *
+         * @param step The step, which must be positive.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder<E> setStep(int step) {
+            Preconditions.checkArgument(step > 0, "Step must be positive.");
+            this.step = step;
+            hasStep = true;
+            return this;
+        }
+
         public Builder<E> add(E element, E... elements) {
             Preconditions.checkNotNull(element);
             Preconditions.checkNotNull(elements);
@@ -93,6 +124,11 @@ public final class SampleBasedSlidingWindow<E> implements Iterable<Iterable<E>>
             return this;
         }
 
+        Builder<E> setListener(WindowListener<? super E> listener) {
+            this.listener = Preconditions.checkNotNull(listener);
+            return this;
+        }
+
         public SampleBasedSlidingWindow<E> build() {
             if (!hasSize || !hasData) {
                 throw new IllegalStateException("Size hasn't been set or no data supplied.");
@@ -104,13 +140,22 @@ public final class SampleBasedSlidingWindow<E> implements Iterable<Iterable<E>>
     /**
      * An iterator for the sliding window.
      */
-    private class SampleBasedSlidingWindowIterator implements Iterator<Iterable<E>> {
+    private class SampleBasedSlidingWindowIterator extends UnmodifiableIterator<Iterable<E>> {
 
-        private Iterable<E> skippedData = data;
+        private final Iterator<E> source = data.iterator();
+        private final RingBuffer<E> buffer = new RingBuffer<E>(size);
+        private boolean started;
+        private int pendingSkips;
+        private int generation;
 
         @Override
         public boolean hasNext() {
-            return !Iterables.isEmpty(skippedData);
+            // Skip the samples between windows, if the step is larger than the window
+            while (pendingSkips > 0 && source.hasNext()) {
+                source.next();
+                pendingSkips--;
+            }
+            return source.hasNext();
         }
 
         @Override
@@ -118,14 +163,66 @@ public final class SampleBasedSlidingWindow<E> implements Iterable<Iterable<E>>
             if (!hasNext()) {
                 throw new NoSuchElementException("No more elements.");
             }
-            Iterable<E> limitedData = Iterables.limit(skippedData, size);
-            skippedData = Iterables.skip(skippedData, size);
-            return limitedData;
+            if (started) {
+                generation++;
+                for (int i = Math.min(step, buffer.size()); i > 0; i--) {
+                    E element = buffer.remove();
+                    if (listener != null) {
+                        listener.removed(element);
+                    }
+                }
+            }
+            while (!buffer.isFull() && source.hasNext()) {
+                E element = source.next();
+                buffer.add(element);
+                if (listener != null) {
+                    listener.added(element);
+                }
+            }
+            pendingSkips = Math.max(step - size, 0);
+            started = true;
+            return new Window(buffer.size());
         }
 
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException("The remove operation is not supported by this iterator.");
+        /**
+         * A read-only view of the oldest {@code count} elements in the buffer, until the buffer moves on.
+         */
+        private final class Window implements Iterable<E> {
+
+            private final int count;
+            private final int windowGeneration = generation;
+
+            private Window(int count) {
+                this.count = count;
+            }
+
+            @Override
+            public Iterator<E> iterator() {
+                checkGeneration();
+                return new UnmodifiableIterator<E>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < count;
+                    }
+
+                    @Override
+                    public E next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException("No more elements.");
+                        }
+                        checkGeneration();
+                        return buffer.get(index++);
+                    }
+                };
+            }
+
+            private void checkGeneration() {
+                if (windowGeneration != generation) {
+                    throw new ConcurrentModificationException("The window has been read after the next call to next(), copy it to keep it.");
+                }
+            }
         }
     }
 }
@@ -0,0 +1,239 @@
+package org.jsense.compute;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.UnmodifiableIterator;
+import org.joda.time.ReadableDuration;
+import org.jsense.AccelerometerEvent;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@code TimeBasedSlidingWindow} is a sliding window of a fixed duration, optionally overlapping, working over an
+ * ordered sequence of {@link org.jsense.AccelerometerEvent}s.
+ * <p>
+ * A window holds the events with a timestamp in {@code [start, start + size)}, and consecutive windows start
+ * {@code step} apart, beginning at the timestamp of the first event. The step defaults to the window size. Either the
+ * absolute or the relative timestamps of the events can be used, see {@link Timestamp}. Because windows are defined by
+ * time and not by the number of samples, jitter and dropped samples don't shift the windows.
+ * <p>
+ * The sliding window is lazy, and works in a single pass over the data. Only the events inside the current window are
+ * buffered. A window returned by the {@code Iterator} is a read-only view of that buffer, and is only valid until the
+ * next call to {@code next()}. Copy it, for example with {@link ImmutableList#copyOf(Iterable)}, to keep it around.
+ * <p>
+ * Windows without any events, for example in a gap in the data, are skipped, and the last window is the first one that
+ * holds the last event. The events must be ordered by the timestamp used, and events that are earlier than the start
+ * of the current window are dropped.
+ * <p>
+ * The {@code Iterator} does not support the {@code remove()} method, which throws
+ * an {@link UnsupportedOperationException} if called.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class TimeBasedSlidingWindow implements Iterable<Iterable<AccelerometerEvent>> {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * Which timestamp of an {@link org.jsense.AccelerometerEvent} to use for the windows.
+     */
+    public enum Timestamp {
+        /**
+         * The absolute timestamp in milliseconds. This is the default.
+         */
+        ABSOLUTE,
+        /**
+         * The relative timestamp in nanoseconds. All events must have a relative timestamp.
+         */
+        RELATIVE
+    }
+
+    private final Iterable<AccelerometerEvent> data;
+    private final Timestamp timestamp;
+    private final long size;
+    private final long step;
+
+    private TimeBasedSlidingWindow(Builder builder) {
+        this.data = Iterables.unmodifiableIterable(builder.data);
+        this.timestamp = builder.timestamp;
+        long unit = timestamp == Timestamp.RELATIVE ? NANOS_PER_MILLI : 1L;
+        this.size = builder.size.getMillis() * unit;
+        this.step = (builder.step == null ? builder.size : builder.step).getMillis() * unit;
+    }
+
+    /**
+     * Returns the iterator, which can only be traversed once.
+     * @return the iterator
+     */
+    @Override
+    public Iterator<Iterable<AccelerometerEvent>> iterator() {
+        return new TimeBasedSlidingWindowIterator();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    private long getTimestamp(AccelerometerEvent event) {
+        if (timestamp == Timestamp.RELATIVE) {
+            return event.getRelativeTimestamp();
+        }
+        return event.getAbsoluteTimestampMillis();
+    }
+
+    /**
+     * A {@code Builder} for the {@code TimeBasedSlidingWindow}.
+     */
+    public static final class Builder {
+
+        private ReadableDuration size, step;
+        private Timestamp timestamp = Timestamp.ABSOLUTE;
+        private Iterable<AccelerometerEvent> data = ImmutableList.of();
+        private boolean hasData;
+
+        public Builder setSize(ReadableDuration size) {
+            Preconditions.checkNotNull(size);
+            Preconditions.checkArgument(size.getMillis() > 0, "Size must be positive.");
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * Set the duration between the starts of consecutive windows. If not set, the step is the window size.
+         *
+         * @param step The step, which must be positive.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder setStep(ReadableDuration step) {
+            Preconditions.checkNotNull(step);
+            Preconditions.checkArgument(step.getMillis() > 0, "Step must be positive.");
+            this.step = step;
+            return this;
+        }
+
+        public Builder setTimestamp(Timestamp timestamp) {
+            this.timestamp = Preconditions.checkNotNull(timestamp);
+            return this;
+        }
+
+        public Builder add(AccelerometerEvent event, AccelerometerEvent... events) {
+            Preconditions.checkNotNull(event);
+            Preconditions.checkNotNull(events);
+
+            hasData = true;
+
+            ImmutableList.Builder<AccelerometerEvent> listBuilder = ImmutableList.builder();
+            listBuilder.add(event);
+
+            if (events.length > 0) {
+                listBuilder.add(events);
+            }
+
+            data = Iterables.concat(data, listBuilder.build());
+
+            return this;
+        }
+
+        public Builder add(Iterable<AccelerometerEvent> events) {
+            Preconditions.checkNotNull(events);
+            if (Iterables.isEmpty(events)) {
+                return this;
+            }
+
+            hasData = true;
+            data = Iterables.concat(data, events);
+
+            return this;
+        }
+
+        public TimeBasedSlidingWindow build() {
+            if (size == null || !hasData) {
+                throw new IllegalStateException("Size hasn't been set or no data supplied.");
+            }
+            return new TimeBasedSlidingWindow(this);
+        }
+    }
+
+    /**
+     * An iterator for the sliding window.
+     */
+    private class TimeBasedSlidingWindowIterator extends UnmodifiableIterator<Iterable<AccelerometerEvent>> {
+
+        private final Iterator<AccelerometerEvent> source = data.iterator();
+        private final ArrayDeque<AccelerometerEvent> buffer = new ArrayDeque<AccelerometerEvent>();
+        private final Iterable<AccelerometerEvent> window = Iterables.unmodifiableIterable(buffer);
+        private AccelerometerEvent next;
+        private long windowStart;
+        private boolean started, prepared;
+
+        @Override
+        public boolean hasNext() {
+            prepare();
+            return next != null;
+        }
+
+        @Override
+        public Iterable<AccelerometerEvent> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more elements.");
+            }
+            prepared = false;
+
+            while (!buffer.isEmpty() && getTimestamp(buffer.getFirst()) < windowStart) {
+                buffer.removeFirst();
+            }
+            while (next != null && getTimestamp(next) < windowStart + size) {
+                buffer.addLast(next);
+                next = null;
+                peek();
+            }
+
+            return window;
+        }
+
+        /**
+         * Find the start of the next window, and drop the events before it that aren't buffered. The buffer itself is
+         * left alone, as the previous window is a view of it.
+         */
+        private void prepare() {
+            if (prepared) {
+                return;
+            }
+            prepared = true;
+
+            if (!started) {
+                if (peek() != null) {
+                    windowStart = getTimestamp(next);
+                    started = true;
+                }
+                return;
+            }
+
+            windowStart += step;
+            while (true) {
+                while (peek() != null && getTimestamp(next) < windowStart) {
+                    next = null;
+                }
+                boolean emptyBuffer = buffer.isEmpty() || getTimestamp(buffer.getLast()) < windowStart;
+                if (next == null || !emptyBuffer || getTimestamp(next) < windowStart + size) {
+                    return;
+                }
+                // Skip the empty windows in a gap. With a step larger than the size, the next event may fall between
+                // windows, so it is dropped and the gap is checked again.
+                windowStart += ((getTimestamp(next) - windowStart - size) / step + 1) * step;
+            }
+        }
+
+        private AccelerometerEvent peek() {
+            if (next == null && source.hasNext()) {
+                next = source.next();
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.jsense.compute;
+
+/**
+ * A {@code WindowListener} is notified when elements enter and leave a sliding window, so that it can keep state
+ * about the window up to date incrementally.
+ *
+ * @param <E> The type in the window.
+ * @author Markus Wüstenberg
+ */
+interface WindowListener<E> {
+
+    /**
+     * Called when an element enters the window, after the elements leaving it have been removed.
+     */
+    void added(E element);
+
+    /**
+     * Called when the oldest element leaves the window.
+     */
+    void removed(E element);
+}
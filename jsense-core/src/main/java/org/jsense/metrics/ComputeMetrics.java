@@ -0,0 +1,136 @@
+package org.jsense.metrics;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ForwardingIterator;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.util.Iterator;
+
+/**
+ * {@code ComputeMetrics} measure how many values a computation gives, and how long each takes to compute.
+ * <p>
+ * The computations in {@link org.jsense.compute} are lazy {@link java.lang.Iterable}s, such as
+ * {@link org.jsense.compute.SampleBasedSlidingWindow}, {@link org.jsense.compute.TimeBasedSlidingWindow} and
+ * {@link org.jsense.compute.AccelerometerFeatureExtractor}, where the work for a value is done when it is taken from
+ * the {@link java.util.Iterator}. Measure them by wrapping them:
+ * <pre>
+ * ComputeMetrics metrics = new ComputeMetrics();
+ * for (Iterable&lt;AccelerometerEvent&gt; window : metrics.meter(slidingWindow)) {
+ *     ...
+ * }
+ * </pre>
+ * For {@link org.jsense.compute.ParallelSampleBasedSlidingWindow}, wrap the function given to
+ * {@link org.jsense.compute.ParallelSampleBasedSlidingWindow#transform(com.google.common.base.Function, java.util.concurrent.ExecutorService)}
+ * instead.
+ * <p>
+ * Every value is timed with {@link System#nanoTime()}. If metrics are disabled, see
+ * {@link org.jsense.metrics.Metrics#isEnabled()}, nothing is wrapped.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class ComputeMetrics implements ComputeMetricsMXBean {
+
+    private final Counter valueCount = new Counter();
+    private final Histogram latency = new Histogram();
+
+    /**
+     * Wrap an {@link java.lang.Iterable}, to time taking every value from its {@link java.util.Iterator}s.
+     *
+     * @param values The {@link java.lang.Iterable} to measure.
+     * @param <T> The type of the values.
+     * @return The measured {@link java.lang.Iterable}, or the given one if metrics are disabled.
+     */
+    public <T> Iterable<T> meter(final Iterable<T> values) {
+        Preconditions.checkNotNull(values);
+        if (!Metrics.isEnabled()) {
+            return values;
+        }
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new MeteredIterator<T>(values.iterator());
+            }
+        };
+    }
+
+    /**
+     * Wrap a {@link com.google.common.base.Function}, to time every application of it.
+     *
+     * @param function The {@link com.google.common.base.Function} to measure.
+     * @param <F> The type of the input.
+     * @param <T> The type of the output.
+     * @return The measured {@link com.google.common.base.Function}, or the given one if metrics are disabled.
+     */
+    public <F, T> Function<F, T> meter(final Function<F, T> function) {
+        Preconditions.checkNotNull(function);
+        if (!Metrics.isEnabled()) {
+            return function;
+        }
+        return new Function<F, T>() {
+            @Override
+            public T apply(F input) {
+                long start = System.nanoTime();
+                T output = function.apply(input);
+                record(start);
+                return output;
+            }
+        };
+    }
+
+    /**
+     * Register these metrics as an MXBean with the platform {@link javax.management.MBeanServer}.
+     *
+     * @param name The name of the metrics, which must be unique among {@code ComputeMetrics}.
+     * @return The name of the MXBean, see {@link org.jsense.metrics.Metrics#unregister(javax.management.ObjectName)}.
+     * @throws JMException If registering fails, for example because the name is taken.
+     */
+    public ObjectName register(String name) throws JMException {
+        return Metrics.register(this, Preconditions.checkNotNull(name));
+    }
+
+    @Override
+    public long getValueCount() {
+        return valueCount.getCount();
+    }
+
+    @Override
+    public Histogram.Snapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    private void record(long start) {
+        latency.record(Math.max(System.nanoTime() - start, 0));
+        valueCount.increment();
+    }
+
+    /**
+     * An {@link java.util.Iterator} timing every value.
+     */
+    private final class MeteredIterator<T> extends ForwardingIterator<T> {
+
+        private final Iterator<T> iterator;
+
+        private MeteredIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        protected Iterator<T> delegate() {
+            return iterator;
+        }
+
+        @Override
+        public T next() {
+            long start = System.nanoTime();
+            T value = iterator.next();
+            record(start);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.jsense.metrics;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * The JMX view of {@link org.jsense.metrics.ComputeMetrics}.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public interface ComputeMetricsMXBean {
+
+    /**
+     * @return The number of values computed, such as windows or feature vectors.
+     */
+    long getValueCount();
+
+    /**
+     * @return The time taken to compute each value, in nanoseconds.
+     */
+    Histogram.Snapshot getLatency();
+}
@@ -0,0 +1,32 @@
+package org.jsense.metrics;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code Counter} counts events, such as values serialized or bytes written.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class Counter {
+
+    private final AtomicLong count = new AtomicLong();
+
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    public void add(long n) {
+        Preconditions.checkArgument(n >= 0, "Can't add a negative number.");
+        count.addAndGet(n);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+}
@@ -0,0 +1,263 @@
+package org.jsense.metrics;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ForwardingIterator;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.ReadableInstant;
+import org.jsense.serialize.Deserializer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * {@code DeserializerMetrics} measure the values deserialized by a {@link org.jsense.serialize.Deserializer}, the
+ * bytes it reads, its failures, and optionally how far behind it is.
+ * <p>
+ * Measure a {@link org.jsense.serialize.Deserializer} by wrapping it, and its input stream to count bytes:
+ * <pre>
+ * DeserializerMetrics metrics = new DeserializerMetrics();
+ * Deserializer&lt;AccelerometerEvent&gt; deserializer =
+ *         metrics.meter(new SimpleAccelerometerEventDeserializer(metrics.meter(in)));
+ * metrics.register("events");
+ * </pre>
+ * To see how far behind a live stream the {@link org.jsense.serialize.Deserializer} is, give a function for the
+ * timestamps of the values to {@link #meter(org.jsense.serialize.Deserializer, com.google.common.base.Function)}. The
+ * lag of a value is the current time, from {@link org.joda.time.DateTimeUtils#currentTimeMillis()}, minus its
+ * timestamp.
+ * <p>
+ * Counting values adds an atomic increment to every value. The wrapped input stream adds an atomic increment to every
+ * read, so wrap the stream below any buffering. If metrics are disabled, see
+ * {@link org.jsense.metrics.Metrics#isEnabled()}, nothing is wrapped.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class DeserializerMetrics implements DeserializerMetricsMXBean {
+
+    private final Counter valueCount = new Counter();
+    private final Counter byteCount = new Counter();
+    private final Counter failureCount = new Counter();
+    private final Histogram lag = new Histogram();
+    private volatile long lastLagMillis;
+
+    /**
+     * Wrap a {@link org.jsense.serialize.Deserializer}, to measure it with these metrics.
+     *
+     * @param deserializer The {@link org.jsense.serialize.Deserializer} to measure.
+     * @param <T> The type of data to be deserialized.
+     * @return The measured {@link org.jsense.serialize.Deserializer}, or the given one if metrics are disabled.
+     */
+    public <T> Deserializer<T> meter(Deserializer<T> deserializer) {
+        Preconditions.checkNotNull(deserializer);
+        if (!Metrics.isEnabled()) {
+            return deserializer;
+        }
+        return new MeteredDeserializer<T>(deserializer, null);
+    }
+
+    /**
+     * Wrap a {@link org.jsense.serialize.Deserializer}, to measure it with these metrics, including the lag of the
+     * values deserialized.
+     *
+     * @param deserializer The {@link org.jsense.serialize.Deserializer} to measure.
+     * @param timestamp The function giving the timestamp of a value.
+     * @param <T> The type of data to be deserialized.
+     * @return The measured {@link org.jsense.serialize.Deserializer}, or the given one if metrics are disabled.
+     */
+    public <T> Deserializer<T> meter(Deserializer<T> deserializer,
+                                     Function<? super T, ? extends ReadableInstant> timestamp) {
+        Preconditions.checkNotNull(deserializer);
+        Preconditions.checkNotNull(timestamp);
+        if (!Metrics.isEnabled()) {
+            return deserializer;
+        }
+        return new MeteredDeserializer<T>(deserializer, timestamp);
+    }
+
+    /**
+     * Wrap an {@link java.io.InputStream}, to count the bytes read from it.
+     *
+     * @param in The {@link java.io.InputStream} to count bytes for.
+     * @return The counting {@link java.io.InputStream}, or the given one if metrics are disabled.
+     */
+    public InputStream meter(InputStream in) {
+        Preconditions.checkNotNull(in);
+        if (!Metrics.isEnabled()) {
+            return in;
+        }
+        return new CountingInputStream(in);
+    }
+
+    /**
+     * Register these metrics as an MXBean with the platform {@link javax.management.MBeanServer}.
+     *
+     * @param name The name of the metrics, which must be unique among {@code DeserializerMetrics}.
+     * @return The name of the MXBean, see {@link org.jsense.metrics.Metrics#unregister(javax.management.ObjectName)}.
+     * @throws JMException If registering fails, for example because the name is taken.
+     */
+    public ObjectName register(String name) throws JMException {
+        return Metrics.register(this, Preconditions.checkNotNull(name));
+    }
+
+    @Override
+    public long getValueCount() {
+        return valueCount.getCount();
+    }
+
+    @Override
+    public long getByteCount() {
+        return byteCount.getCount();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failureCount.getCount();
+    }
+
+    @Override
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    @Override
+    public Histogram.Snapshot getLag() {
+        return lag.snapshot();
+    }
+
+    /**
+     * A {@link org.jsense.serialize.Deserializer} updating the metrics.
+     */
+    private final class MeteredDeserializer<T> implements Deserializer<T> {
+
+        private final Deserializer<T> deserializer;
+        private final Function<? super T, ? extends ReadableInstant> timestamp;
+
+        private MeteredDeserializer(Deserializer<T> deserializer,
+                                    Function<? super T, ? extends ReadableInstant> timestamp) {
+            this.deserializer = deserializer;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public Iterable<T> deserialize() throws IOException {
+            final Iterable<T> values;
+            try {
+                values = deserializer.deserialize();
+            } catch (IOException e) {
+                failureCount.increment();
+                throw e;
+            }
+            return new Iterable<T>() {
+                @Override
+                public Iterator<T> iterator() {
+                    return new MeteredIterator(values.iterator());
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                deserializer.close();
+            } catch (IOException e) {
+                failureCount.increment();
+                throw e;
+            }
+        }
+
+        /**
+         * An {@link java.util.Iterator} updating the metrics for every value.
+         */
+        private final class MeteredIterator extends ForwardingIterator<T> {
+
+            private final Iterator<T> iterator;
+
+            private MeteredIterator(Iterator<T> iterator) {
+                this.iterator = iterator;
+            }
+
+            @Override
+            protected Iterator<T> delegate() {
+                return iterator;
+            }
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    return iterator.hasNext();
+                } catch (RuntimeException e) {
+                    failureCount.increment();
+                    throw e;
+                }
+            }
+
+            @Override
+            public T next() {
+                T value;
+                try {
+                    value = iterator.next();
+                } catch (RuntimeException e) {
+                    failureCount.increment();
+                    throw e;
+                }
+                valueCount.increment();
+                if (timestamp != null) {
+                    long lagMillis = Math.max(DateTimeUtils.currentTimeMillis() - timestamp.apply(value).getMillis(), 0);
+                    lastLagMillis = lagMillis;
+                    lag.record(lagMillis);
+                }
+                return value;
+            }
+        }
+    }
+
+    /**
+     * An {@link java.io.InputStream} counting the bytes read.
+     */
+    private final class CountingInputStream extends FilterInputStream {
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                byteCount.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                byteCount.add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            if (skipped > 0) {
+                byteCount.add(skipped);
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
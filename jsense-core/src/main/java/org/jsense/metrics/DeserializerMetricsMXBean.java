@@ -0,0 +1,37 @@
+package org.jsense.metrics;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * The JMX view of {@link org.jsense.metrics.DeserializerMetrics}.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public interface DeserializerMetricsMXBean {
+
+    /**
+     * @return The number of values deserialized.
+     */
+    long getValueCount();
+
+    /**
+     * @return The number of bytes read, if the input stream is measured.
+     */
+    long getByteCount();
+
+    /**
+     * @return The number of failed calls.
+     */
+    long getFailureCount();
+
+    /**
+     * @return The lag of the last value deserialized, in milliseconds, if timestamps are measured.
+     */
+    long getLastLagMillis();
+
+    /**
+     * @return The lag of the values deserialized, in milliseconds, if timestamps are measured.
+     */
+    Histogram.Snapshot getLag();
+}
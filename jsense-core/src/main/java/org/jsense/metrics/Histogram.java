@@ -0,0 +1,188 @@
+package org.jsense.metrics;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@code Histogram} records the distribution of non-negative values, such as latencies in nanoseconds, in constant
+ * memory and time.
+ * <p>
+ * Like in HdrHistogram, the buckets are log-linear: values below 256 have a bucket each, and every following power of
+ * two is split into 128 buckets of equal width. So percentiles are accurate to within 1%, over the whole range of
+ * {@code long}, and recording a value is a few bit operations and atomic updates, without locks or allocation.
+ * The count, minimum, maximum and mean are exact.
+ * <p>
+ * Read the recorded values with {@link #snapshot()}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class Histogram {
+
+    private static final int PRECISION_BITS = 8;
+    private static final int HALF_BUCKET_COUNT = 1 << (PRECISION_BITS - 1);
+    private static final int LINEAR_BUCKET_COUNT = 2 * HALF_BUCKET_COUNT;
+    private static final int BUCKET_COUNT = (Long.SIZE - PRECISION_BITS + 1) * HALF_BUCKET_COUNT;
+    private static final double PERCENT = 100;
+    private static final double MEDIAN = 50;
+    private static final double PERCENTILE_99 = 99;
+    private static final double PERCENTILE_999 = 99.9;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Record a value.
+     *
+     * @param value The value, which can't be negative.
+     */
+    public void record(long value) {
+        Preconditions.checkArgument(value >= 0, "Can't record a negative value.");
+
+        sum.addAndGet(value);
+        updateMin(value);
+        updateMax(value);
+        counts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Take a snapshot of the recorded values. Values recorded while taking the snapshot may be left out.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = counts.get(i);
+            total += bucketCounts[i];
+        }
+        if (total == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+        }
+        long minimum = min.get();
+        long maximum = max.get();
+        double mean = (double) sum.get() / Math.max(count.get(), total);
+        return new Snapshot(total, minimum, maximum, mean,
+                valueAtPercentile(bucketCounts, total, minimum, maximum, MEDIAN),
+                valueAtPercentile(bucketCounts, total, minimum, maximum, PERCENTILE_99),
+                valueAtPercentile(bucketCounts, total, minimum, maximum, PERCENTILE_999));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+        return shift * HALF_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * The largest value in the bucket, which wraps around to {@link Long#MAX_VALUE} for the last bucket.
+     */
+    static long highestValueInBucket(int index) {
+        if (index < LINEAR_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / HALF_BUCKET_COUNT - 1;
+        long subBucket = index - shift * HALF_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static long valueAtPercentile(long[] bucketCounts, long total, long minimum, long maximum,
+                                          double percentile) {
+        long rank = Math.max((long) Math.ceil(percentile / PERCENT * total), 1);
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return Math.max(Math.min(highestValueInBucket(i), maximum), minimum);
+            }
+        }
+        return maximum;
+    }
+
+    private void updateMin(long value) {
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+    }
+
+    private void updateMax(long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * A {@code Snapshot} of the values recorded by a {@link Histogram}. All values are zero if nothing was recorded.
+     * <p>
+     * This class is immutable.
+     */
+    public static final class Snapshot {
+
+        private final long count;
+        private final long min;
+        private final long max;
+        private final double mean;
+        private final long median;
+        private final long percentile99;
+        private final long percentile999;
+
+        @ConstructorProperties({"count", "min", "max", "mean", "median", "percentile99", "percentile999"})
+        public Snapshot(long count, long min, long max, double mean, long median, long percentile99,
+                        long percentile999) {
+            this.count = count;
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.median = median;
+            this.percentile99 = percentile99;
+            this.percentile999 = percentile999;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getMedian() {
+            return median;
+        }
+
+        public long getPercentile99() {
+            return percentile99;
+        }
+
+        public long getPercentile999() {
+            return percentile999;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.jsense.metrics;
+
+import com.google.common.annotations.Beta;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Common settings and helpers for the metrics of jsense.
+ * <p>
+ * Metrics are collected by wrapping the {@link org.jsense.serialize.Serializer}s,
+ * {@link org.jsense.serialize.Deserializer}s, streams and computations to measure, see
+ * {@link org.jsense.metrics.SerializerMetrics}, {@link org.jsense.metrics.DeserializerMetrics} and
+ * {@link org.jsense.metrics.ComputeMetrics}. Unwrapped objects aren't measured, so they have no overhead.
+ * <p>
+ * Metrics can be turned off without changing code, by setting the system property {@code org.jsense.metrics.enabled}
+ * to {@code false}. The wrapping methods then return the objects given to them, so there is no overhead either.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class Metrics {
+
+    /**
+     * The domain of the names of the MXBeans registered by jsense.
+     */
+    public static final String JMX_DOMAIN = "org.jsense";
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("org.jsense.metrics.enabled"));
+
+    private Metrics() {
+
+    }
+
+    /**
+     * Check if metrics are enabled, which they are unless the system property {@code org.jsense.metrics.enabled} is
+     * {@code false}.
+     *
+     * @return If metrics are enabled.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Register an MXBean with the platform {@link javax.management.MBeanServer}, with a name like
+     * {@code org.jsense:type=SerializerMetrics,name="events"}.
+     */
+    static ObjectName register(Object mxBean, String name) throws JMException {
+        ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + mxBean.getClass().getSimpleName()
+                + ",name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(mxBean, objectName);
+        return objectName;
+    }
+
+    /**
+     * Unregister an MXBean registered by jsense, if it is still registered.
+     *
+     * @param objectName The name returned when registering.
+     * @throws JMException If unregistering fails.
+     */
+    public static void unregister(ObjectName objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.jsense.metrics;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import org.jsense.serialize.Serializer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@code SerializerMetrics} measure the values serialized by a {@link org.jsense.serialize.Serializer}, the bytes it
+ * writes, its failures, and how long {@code flush()} takes.
+ * <p>
+ * Measure a {@link org.jsense.serialize.Serializer} by wrapping it, and its output stream to count bytes:
+ * <pre>
+ * SerializerMetrics metrics = new SerializerMetrics();
+ * Serializer&lt;AccelerometerEvent&gt; serializer =
+ *         metrics.meter(new SimpleAccelerometerEventSerializer(metrics.meter(out)));
+ * metrics.register("events");
+ * </pre>
+ * Counting values adds an atomic increment to every call, and flushes are timed with {@link System#nanoTime()}. The
+ * wrapped output stream adds an atomic increment to every write, so wrap the stream below any buffering. If metrics
+ * are disabled, see {@link org.jsense.metrics.Metrics#isEnabled()}, nothing is wrapped.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class SerializerMetrics implements SerializerMetricsMXBean {
+
+    private final Counter valueCount = new Counter();
+    private final Counter byteCount = new Counter();
+    private final Counter failureCount = new Counter();
+    private final Histogram flushLatency = new Histogram();
+
+    /**
+     * Wrap a {@link org.jsense.serialize.Serializer}, to measure it with these metrics.
+     *
+     * @param serializer The {@link org.jsense.serialize.Serializer} to measure.
+     * @param <T> The type of data to be serialized.
+     * @return The measured {@link org.jsense.serialize.Serializer}, or the given one if metrics are disabled.
+     */
+    public <T> Serializer<T> meter(Serializer<T> serializer) {
+        Preconditions.checkNotNull(serializer);
+        if (!Metrics.isEnabled()) {
+            return serializer;
+        }
+        return new MeteredSerializer<T>(serializer);
+    }
+
+    /**
+     * Wrap an {@link java.io.OutputStream}, to count the bytes written to it.
+     *
+     * @param out The {@link java.io.OutputStream} to count bytes for.
+     * @return The counting {@link java.io.OutputStream}, or the given one if metrics are disabled.
+     */
+    public OutputStream meter(OutputStream out) {
+        Preconditions.checkNotNull(out);
+        if (!Metrics.isEnabled()) {
+            return out;
+        }
+        return new CountingOutputStream(out);
+    }
+
+    /**
+     * Register these metrics as an MXBean with the platform {@link javax.management.MBeanServer}.
+     *
+     * @param name The name of the metrics, which must be unique among {@code SerializerMetrics}.
+     * @return The name of the MXBean, see {@link org.jsense.metrics.Metrics#unregister(javax.management.ObjectName)}.
+     * @throws JMException If registering fails, for example because the name is taken.
+     */
+    public ObjectName register(String name) throws JMException {
+        return Metrics.register(this, Preconditions.checkNotNull(name));
+    }
+
+    @Override
+    public long getValueCount() {
+        return valueCount.getCount();
+    }
+
+    @Override
+    public long getByteCount() {
+        return byteCount.getCount();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failureCount.getCount();
+    }
+
+    @Override
+    public Histogram.Snapshot getFlushLatency() {
+        return flushLatency.snapshot();
+    }
+
+    /**
+     * A {@link org.jsense.serialize.Serializer} updating the metrics.
+     */
+    private final class MeteredSerializer<T> implements Serializer<T> {
+
+        private final Serializer<T> serializer;
+        private final Function<T, T> counter = new Function<T, T>() {
+            @Override
+            public T apply(T value) {
+                valueCount.increment();
+                return value;
+            }
+        };
+
+        private MeteredSerializer(Serializer<T> serializer) {
+            this.serializer = serializer;
+        }
+
+        @Override
+        public Serializer<T> serialize(T value) throws IOException {
+            try {
+                serializer.serialize(value);
+            } catch (IOException e) {
+                failureCount.increment();
+                throw e;
+            }
+            valueCount.increment();
+            return this;
+        }
+
+        @Override
+        public Serializer<T> serialize(Iterable<T> values) throws IOException {
+            Preconditions.checkNotNull(values);
+            try {
+                // Count the values as they are serialized, since they may only be iterable once
+                serializer.serialize(Iterables.transform(values, counter));
+            } catch (IOException e) {
+                failureCount.increment();
+                throw e;
+            }
+            return this;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            try {
+                serializer.flush();
+            } catch (IOException e) {
+                failureCount.increment();
+                throw e;
+            }
+            flushLatency.record(Math.max(System.nanoTime() - start, 0));
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                serializer.close();
+            } catch (IOException e) {
+                failureCount.increment();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * An {@link java.io.OutputStream} counting the bytes written.
+     */
+    private final class CountingOutputStream extends FilterOutputStream {
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            byteCount.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            byteCount.add(len);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.jsense.metrics;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * The JMX view of {@link org.jsense.metrics.SerializerMetrics}.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public interface SerializerMetricsMXBean {
+
+    /**
+     * @return The number of values serialized.
+     */
+    long getValueCount();
+
+    /**
+     * @return The number of bytes written, if the output stream is measured.
+     */
+    long getByteCount();
+
+    /**
+     * @return The number of failed calls.
+     */
+    long getFailureCount();
+
+    /**
+     * @return The latency of {@code flush()}, in nanoseconds.
+     */
+    Histogram.Snapshot getFlushLatency();
+}
@@ -0,0 +1,397 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Formats numbers as ASCII directly into a {@code byte} array, and parses them from one, without creating intermediate
+ * {@link java.lang.String}s.
+ * <p>
+ * The output is the same as {@link java.lang.Long#toString(long)}, {@link java.lang.Boolean#toString(boolean)} and
+ * {@link java.lang.Float#toString(float)}. Floats with a magnitude in {@code [10^-3, 10^7)}, where
+ * {@link java.lang.Float#toString(float)} doesn't use computerized scientific notation, and zeros are formatted
+ * directly, with the shortest digits that uniquely identify the float, as specified for
+ * {@link java.lang.Float#toString(float)}. All other floats fall back to {@link java.lang.Float#toString(float)}.
+ * <p>
+ * Parsing gives the same results as {@link java.lang.Long#parseLong(String)},
+ * {@link java.lang.Boolean#parseBoolean(String)} and {@link java.lang.Float#parseFloat(String)}. Unusual input, such as
+ * numbers with many digits, {@code NaN} or surrounding whitespace, falls back to those methods.
+ * <p>
+ * The caller must make sure that there is room in the array, see {@link #MAX_LONG_LENGTH} and
+ * {@link #MAX_FLOAT_LENGTH}.
+ *
+ * @author Markus Wüstenberg
+ */
+final class AsciiFormat {
+
+    static final int MAX_LONG_LENGTH = 20;
+    static final int MAX_BOOLEAN_LENGTH = 5;
+    static final int MAX_FLOAT_LENGTH = 15;
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(Charsets.US_ASCII);
+
+    private static final int RADIX = 10;
+    private static final int LOWER_CASE_BIT = 0x20;
+
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_EXACT_POWER_OF_TEN = 22;
+    private static final int MAX_EXPONENT_DIGITS = 4;
+    private static final double[] EXACT_POWERS_OF_TEN = new double[MAX_EXACT_POWER_OF_TEN + 1];
+    // A double is halfway between two floats if the 29 bits below the float significand are 1 followed by zeros
+    private static final long FLOAT_HALFWAY_MASK = (1L << 29) - 1;
+    private static final long FLOAT_HALFWAY = 1L << 28;
+
+    private static final int FLOAT_SIGNIFICAND_BITS = 23;
+    private static final int FLOAT_EXPONENT_MASK = 0xff;
+    private static final int FLOAT_EXPONENT_BIAS = 150;
+    private static final int FLOAT_MAX_DIGITS = 9;
+
+    private static final float MIN_PLAIN = 1e-3f;
+    private static final float MAX_PLAIN = 1e7f;
+    private static final int MIN_PLAIN_EXPONENT = -3;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+    private static final double[] PLAIN_POWERS_OF_TEN = {1e-3, 1e-2, 1e-1, 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6};
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * RADIX;
+        }
+        EXACT_POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < EXACT_POWERS_OF_TEN.length; i++) {
+            EXACT_POWERS_OF_TEN[i] = EXACT_POWERS_OF_TEN[i - 1] * RADIX;
+        }
+    }
+
+    private AsciiFormat() {
+
+    }
+
+    /**
+     * Put a {@code long} in decimal.
+     *
+     * @return The position after the last byte put.
+     */
+    static int putLong(byte[] buffer, int position, long value) {
+        if (value == Long.MIN_VALUE) {
+            System.arraycopy(MIN_LONG, 0, buffer, position, MIN_LONG.length);
+            return position + MIN_LONG.length;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int end = position + digitCount(value);
+        putDigits(buffer, end, value);
+        return end;
+    }
+
+    /**
+     * Put a {@code boolean} as {@code true} or {@code false}.
+     *
+     * @return The position after the last byte put.
+     */
+    static int putBoolean(byte[] buffer, int position, boolean value) {
+        byte[] bytes = value ? TRUE : FALSE;
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    /**
+     * Put a {@code float} the way {@link java.lang.Float#toString(float)} formats it.
+     *
+     * @return The position after the last byte put.
+     */
+    static int putFloat(byte[] buffer, int position, float value) {
+        float magnitude = Math.abs(value);
+        if (magnitude == 0) {
+            if (Float.floatToRawIntBits(value) < 0) {
+                buffer[position++] = '-';
+            }
+            buffer[position++] = '0';
+            buffer[position++] = '.';
+            buffer[position++] = '0';
+            return position;
+        }
+        if (!(magnitude >= MIN_PLAIN && magnitude < MAX_PLAIN)) {
+            String string = Float.toString(value);
+            for (int i = 0; i < string.length(); i++) {
+                buffer[position++] = (byte) string.charAt(i);
+            }
+            return position;
+        }
+
+        if (value < 0) {
+            buffer[position++] = '-';
+        }
+        return putPlainFloat(buffer, position, magnitude);
+    }
+
+    /**
+     * Parse a {@code long} the way {@link java.lang.Long#parseLong(String)} does.
+     *
+     * @throws NumberFormatException If the bytes are not a {@code long}.
+     */
+    static long parseLong(byte[] buffer, int start, int end) {
+        int position = start;
+        boolean negative = position < end && buffer[position] == '-';
+        if (negative) {
+            position++;
+        }
+        if (position == end) {
+            return Long.parseLong(toString(buffer, start, end));
+        }
+
+        // Accumulate negatively, as the magnitude of Long.MIN_VALUE is larger than Long.MAX_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplicationLimit = limit / RADIX;
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = buffer[position] - '0';
+            if (digit < 0 || digit >= RADIX || value < multiplicationLimit || value * RADIX < limit + digit) {
+                return Long.parseLong(toString(buffer, start, end));
+            }
+            value = value * RADIX - digit;
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Parse a {@code boolean} the way {@link java.lang.Boolean#parseBoolean(String)} does, so anything but
+     * {@code true}, ignoring case, is {@code false}.
+     */
+    static boolean parseBoolean(byte[] buffer, int start, int end) {
+        if (end - start != TRUE.length) {
+            return false;
+        }
+        for (int i = 0; i < TRUE.length; i++) {
+            if ((buffer[start + i] | LOWER_CASE_BIT) != TRUE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse a {@code float} the way {@link java.lang.Float#parseFloat(String)} does.
+     * <p>
+     * Plain decimals with an optional exponent, such as {@code -0.115404725} or {@code 1.0E-4}, with at most
+     * {@value #MAX_EXACT_DIGITS} significant digits and a small exponent, are parsed directly: the digits and the power
+     * of ten are exact in a {@code double}, so their product or quotient is correctly rounded to a {@code double}.
+     * Rounding that to a {@code float} is then also correct, unless the {@code double} is exactly halfway between two
+     * floats. That case, and all other input, falls back to {@link java.lang.Float#parseFloat(String)}.
+     *
+     * @throws NumberFormatException If the bytes are not a {@code float}.
+     */
+    static float parseFloat(byte[] buffer, int start, int end) {
+        int position = start;
+        boolean negative = position < end && buffer[position] == '-';
+        if (negative) {
+            position++;
+        }
+
+        long significand = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; position < end; position++) {
+            byte b = buffer[position];
+            if (b == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit >= RADIX) {
+                break;
+            }
+            digits++;
+            if (significand != 0 || digit != 0) {
+                if (++significantDigits > MAX_EXACT_DIGITS) {
+                    return Float.parseFloat(toString(buffer, start, end));
+                }
+                significand = significand * RADIX + digit;
+            }
+            if (fraction) {
+                exponent--;
+            }
+        }
+        if (digits == 0) {
+            return Float.parseFloat(toString(buffer, start, end));
+        }
+
+        if (position < end && (buffer[position] | LOWER_CASE_BIT) == 'e') {
+            position++;
+            boolean negativeExponent = position < end && buffer[position] == '-';
+            if (negativeExponent || position < end && buffer[position] == '+') {
+                position++;
+            }
+            int explicitExponent = 0;
+            int exponentStart = position;
+            for (; position < end && position - exponentStart < MAX_EXPONENT_DIGITS; position++) {
+                int digit = buffer[position] - '0';
+                if (digit < 0 || digit >= RADIX) {
+                    break;
+                }
+                explicitExponent = explicitExponent * RADIX + digit;
+            }
+            if (position == exponentStart) {
+                return Float.parseFloat(toString(buffer, start, end));
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (position != end) {
+            return Float.parseFloat(toString(buffer, start, end));
+        }
+
+        if (significand == 0) {
+            return negative ? -0f : 0f;
+        }
+        if (exponent < -MAX_EXACT_POWER_OF_TEN || exponent > MAX_EXACT_POWER_OF_TEN) {
+            return Float.parseFloat(toString(buffer, start, end));
+        }
+        double value = exponent < 0
+                ? significand / EXACT_POWERS_OF_TEN[-exponent]
+                : significand * EXACT_POWERS_OF_TEN[exponent];
+        if (value < Float.MIN_NORMAL || (Double.doubleToRawLongBits(value) & FLOAT_HALFWAY_MASK) == FLOAT_HALFWAY) {
+            return Float.parseFloat(toString(buffer, start, end));
+        }
+        return negative ? (float) -value : (float) value;
+    }
+
+    /**
+     * Put a positive, normal float in {@code [10^-3, 10^7)} as {@code <integer digits>.<fraction digits>}, with the
+     * shortest significant digits that round to the float, choosing the closest if there are several.
+     */
+    private static int putPlainFloat(byte[] buffer, int position, float value) {
+        int bits = Float.floatToRawIntBits(value);
+        long significand = (bits & ((1 << FLOAT_SIGNIFICAND_BITS) - 1)) | (1 << FLOAT_SIGNIFICAND_BITS);
+        int shift = FLOAT_EXPONENT_BIAS - ((bits >>> FLOAT_SIGNIFICAND_BITS) & FLOAT_EXPONENT_MASK);
+
+        int exponent = decimalExponent(value);
+        for (int length = 1; length <= FLOAT_MAX_DIGITS; length++) {
+            int fractionDigits = length - 1 - exponent;
+            if (lowestDecimal(significand, shift, fractionDigits) <= highestDecimal(significand, shift, fractionDigits)) {
+                if (length == 1) {
+                    // With one digit, decimals with two digits are also considered, and the closest is chosen
+                    fractionDigits++;
+                }
+                return putDecimal(buffer, position, closestDecimal(significand, shift, fractionDigits), fractionDigits);
+            }
+        }
+        throw new AssertionError("No decimal found for " + value + ".");
+    }
+
+    /*
+     * The float is m * 2^-s, and a decimal with f fraction digits is n * 10^-f. Both are scaled by 2^(s + 2) * 10^f, so
+     * the comparisons below are exact in a long: the float is then 4m * 10^f, and n is a multiple of the unit
+     * 10^-f * 2^(s + 2). The float is the result of rounding any value less than half the gap to the neighbouring
+     * floats away, where the gap below a power of two is half the gap above it. Values exactly halfway round to the
+     * even significand, so the bounds are inclusive if it is even.
+     */
+
+    private static long lowestDecimal(long significand, int shift, int fractionDigits) {
+        long scale = POWERS_OF_TEN[Math.max(fractionDigits, 0)];
+        long unit = POWERS_OF_TEN[Math.max(-fractionDigits, 0)] << (shift + 2);
+        boolean powerOfTwo = significand == 1 << FLOAT_SIGNIFICAND_BITS;
+        long lower = (significand << 2) * scale - (powerOfTwo ? scale : scale << 1);
+        long decimal = lower / unit;
+        if (decimal * unit < lower || (decimal * unit == lower && (significand & 1) != 0)) {
+            decimal++;
+        }
+        return decimal;
+    }
+
+    private static long highestDecimal(long significand, int shift, int fractionDigits) {
+        long scale = POWERS_OF_TEN[Math.max(fractionDigits, 0)];
+        long unit = POWERS_OF_TEN[Math.max(-fractionDigits, 0)] << (shift + 2);
+        long upper = (significand << 2) * scale + (scale << 1);
+        long decimal = upper / unit;
+        if (decimal * unit == upper && (significand & 1) != 0) {
+            decimal--;
+        }
+        return decimal;
+    }
+
+    /**
+     * Get the decimal closest to the float, or the one with an even last digit if two are equally close.
+     */
+    private static long closestDecimal(long significand, int shift, int fractionDigits) {
+        long scale = POWERS_OF_TEN[Math.max(fractionDigits, 0)];
+        long unit = POWERS_OF_TEN[Math.max(-fractionDigits, 0)] << (shift + 2);
+        long scaled = (significand << 2) * scale;
+        long decimal = scaled / unit;
+        long remainder = scaled - decimal * unit;
+        if (remainder * 2 > unit || (remainder * 2 == unit && (decimal & 1) != 0)) {
+            decimal++;
+        }
+        return Math.min(Math.max(decimal, lowestDecimal(significand, shift, fractionDigits)),
+                highestDecimal(significand, shift, fractionDigits));
+    }
+
+    /**
+     * Put {@code digits * 10^-fractionDigits} with at least one integer and one fraction digit, and no trailing zeros
+     * in the fraction beyond the first.
+     */
+    private static int putDecimal(byte[] buffer, int position, long digits, int fractionDigits) {
+        while (fractionDigits > 0 && digits % RADIX == 0) {
+            digits /= RADIX;
+            fractionDigits--;
+        }
+        if (fractionDigits <= 0) {
+            long integer = digits * POWERS_OF_TEN[-fractionDigits];
+            int end = position + digitCount(integer);
+            putDigits(buffer, end, integer);
+            buffer[end] = '.';
+            buffer[end + 1] = '0';
+            return end + 2;
+        }
+
+        long integer = digits / POWERS_OF_TEN[fractionDigits];
+        long fraction = digits - integer * POWERS_OF_TEN[fractionDigits];
+        int end = position + digitCount(integer);
+        putDigits(buffer, end, integer);
+        buffer[end++] = '.';
+        for (int i = digitCount(fraction); i < fractionDigits; i++) {
+            buffer[end++] = '0';
+        }
+        end += digitCount(fraction);
+        putDigits(buffer, end, fraction);
+        return end;
+    }
+
+    /**
+     * Get {@code floor(log10(value))} for a value in {@code [10^-3, 10^7)}.
+     */
+    private static int decimalExponent(float value) {
+        int index = 0;
+        while (index + 1 < PLAIN_POWERS_OF_TEN.length && value >= PLAIN_POWERS_OF_TEN[index + 1]) {
+            index++;
+        }
+        return MIN_PLAIN_EXPONENT + index;
+    }
+
+    /**
+     * Put the digits of a non-negative value, ending just before {@code end}.
+     */
+    private static void putDigits(byte[] buffer, int end, long value) {
+        do {
+            buffer[--end] = (byte) ('0' + value % RADIX);
+            value /= RADIX;
+        } while (value != 0);
+    }
+
+    private static String toString(byte[] buffer, int start, int end) {
+        return new String(buffer, start, end - start, Charsets.UTF_8);
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (count < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[count]) {
+            count++;
+        }
+        return count;
+    }
+}
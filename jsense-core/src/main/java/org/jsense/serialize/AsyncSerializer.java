@@ -0,0 +1,357 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An {@code AsyncSerializer} is a {@link org.jsense.serialize.Serializer} for many threads, which hands values to
+ * another {@link org.jsense.serialize.Serializer} on a dedicated writer thread.
+ * <p>
+ * Serializing a value only puts it in a bounded, lock-free queue, so producer threads don't contend on a lock while
+ * values are encoded and written. The writer thread is the only one using the wrapped
+ * {@link org.jsense.serialize.Serializer}, which therefore doesn't need to be thread-safe, see for example
+ * {@link SimpleAccelerometerEventSerializer#newSingleWriterSerializer(java.io.OutputStream)}. Values serialized by one
+ * thread are written in the order they were serialized, while values from different threads are interleaved.
+ * <p>
+ * When the queue is full, the {@link OverflowPolicy} decides what happens: block until there is room, drop the value,
+ * or fail with an {@link java.io.IOException}.
+ * <p>
+ * {@link #flush()} blocks until all values serialized before it by the calling thread are written, and the wrapped
+ * {@link org.jsense.serialize.Serializer} is flushed. {@link #close()} blocks until the queue is drained, and the
+ * wrapped {@link org.jsense.serialize.Serializer} is closed. Values serialized by other threads while closing may be
+ * lost. If the wrapped {@link org.jsense.serialize.Serializer} fails, the failure is rethrown as an
+ * {@link java.io.IOException} from the next call to any method, and queued values are discarded.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <T> The type of data to be serialized.
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class AsyncSerializer<T> implements Serializer<T> {
+
+    /**
+     * What to do with a value when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Block the serializing thread until there is room in the queue.
+         */
+        BLOCK,
+        /**
+         * Drop the value, and count it, see {@link AsyncSerializer#getDroppedCount()}.
+         */
+        DROP,
+        /**
+         * Throw an {@link java.io.IOException} from the serializing thread.
+         */
+        FAIL
+    }
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long COMMAND_POLL_MILLIS = 10;
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final Serializer<T> serializer;
+    private final OverflowPolicy overflowPolicy;
+    private final MpscRingBuffer<Object> queue;
+    private final Thread writerThread;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile boolean writerWaiting;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    private AsyncSerializer(Builder<T> builder) {
+        serializer = builder.serializer;
+        overflowPolicy = builder.overflowPolicy;
+        queue = new MpscRingBuffer<Object>(builder.capacity);
+        writerThread = builder.threadFactory.newThread(new Writer());
+        writerThread.start();
+    }
+
+    @Override
+    public Serializer<T> serialize(T value) throws IOException {
+        Preconditions.checkNotNull(value);
+
+        checkClosed();
+
+        enqueue(value);
+
+        return this;
+    }
+
+    @Override
+    public Serializer<T> serialize(Iterable<T> values) throws IOException {
+        Preconditions.checkNotNull(values);
+        Preconditions.checkState(!Iterables.isEmpty(values));
+
+        checkClosed();
+
+        for (T value : values) {
+            enqueue(Preconditions.checkNotNull(value));
+        }
+
+        return this;
+    }
+
+    /**
+     * Block until all values serialized by the calling thread before this call are written, and then flush the wrapped
+     * {@link org.jsense.serialize.Serializer}.
+     *
+     * @throws IOException If the wrapped {@link org.jsense.serialize.Serializer} failed, if interrupted while waiting, or if the {@code AsyncSerializer} is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        checkClosed();
+
+        Command flush = new Command(false);
+        put(flush);
+        flush.await(writerThread);
+        checkFailure();
+    }
+
+    /**
+     * Block until all queued values are written, and then close the wrapped {@link org.jsense.serialize.Serializer}
+     * and stop the writer thread.
+     *
+     * @throws IOException If the wrapped {@link org.jsense.serialize.Serializer} failed, or if interrupted while waiting.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                put(new Command(true));
+            }
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the writer thread.");
+        }
+        checkFailure();
+    }
+
+    /**
+     * Get the number of values dropped because the queue was full, with {@link OverflowPolicy#DROP}.
+     *
+     * @return The number of dropped values.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public static <T> Builder<T> newBuilder() {
+        return new Builder<T>();
+    }
+
+    private void enqueue(T value) throws IOException {
+        if (queue.offer(value)) {
+            wakeWriter();
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP:
+                droppedCount.incrementAndGet();
+                break;
+            case FAIL:
+                throw new IOException("The queue is full, so the value was not serialized.");
+            default:
+                put(value);
+        }
+    }
+
+    /**
+     * Add to the queue, waiting for room if necessary.
+     */
+    private void put(Object item) throws IOException {
+        while (!queue.offer(item)) {
+            checkFailure();
+            if (!writerThread.isAlive()) {
+                throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+            }
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for room in the queue.");
+            }
+        }
+        wakeWriter();
+    }
+
+    private void wakeWriter() {
+        if (writerWaiting) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void checkClosed() throws IOException {
+        checkFailure();
+        if (closed) {
+            throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IOException("The wrapped Serializer failed.", cause);
+        }
+    }
+
+    /**
+     * A flush or close request, which is queued after the values it must wait for. A flush that races
+     * {@link #close()} may be queued after the close request, and then never be handled, so waiting for it gives up
+     * when the writer thread has stopped.
+     */
+    private static final class Command {
+
+        private final boolean close;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private Command(boolean close) {
+            this.close = close;
+        }
+
+        private void await(Thread writerThread) throws IOException {
+            try {
+                while (!done.await(COMMAND_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (!writerThread.isAlive() && done.getCount() > 0) {
+                        throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the writer thread.");
+            }
+        }
+    }
+
+    /**
+     * The writer thread, which takes values from the queue and serializes them.
+     */
+    private final class Writer implements Runnable {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            while (true) {
+                Object item = queue.poll();
+                if (item == null) {
+                    waitForItem();
+                } else if (item instanceof Command) {
+                    Command command = (Command) item;
+                    if (command.close) {
+                        close();
+                        command.done.countDown();
+                        return;
+                    }
+                    flush();
+                    command.done.countDown();
+                } else if (failure == null) {
+                    try {
+                        serializer.serialize((T) item);
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+                }
+            }
+        }
+
+        private void waitForItem() {
+            writerWaiting = true;
+            // Check again after announcing the wait, so a value added in between isn't missed for long
+            if (queue.isEmpty()) {
+                LockSupport.parkNanos(AsyncSerializer.this, IDLE_PARK_NANOS);
+            }
+            writerWaiting = false;
+        }
+
+        private void flush() {
+            if (failure == null) {
+                try {
+                    serializer.flush();
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+        }
+
+        private void close() {
+            try {
+                serializer.close();
+            } catch (Throwable t) {
+                if (failure == null) {
+                    failure = t;
+                }
+            }
+        }
+    }
+
+    /**
+     * A {@code Builder} for the {@code AsyncSerializer}. The wrapped {@link org.jsense.serialize.Serializer} must be
+     * set. The queue capacity defaults to 65536 values, rounded up to a power of two, and the overflow policy to
+     * {@link OverflowPolicy#BLOCK}. Building starts the writer thread, which by default is a daemon thread.
+     *
+     * @param <T> The type of data to be serialized.
+     */
+    public static final class Builder<T> {
+
+        private Serializer<T> serializer;
+        private int capacity = DEFAULT_CAPACITY;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "jsense-async-serializer-" + THREAD_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+
+        /**
+         * Set the {@link org.jsense.serialize.Serializer} to write to, which is only used by the writer thread.
+         *
+         * @param serializer The {@link org.jsense.serialize.Serializer}.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder<T> setSerializer(Serializer<T> serializer) {
+            this.serializer = Preconditions.checkNotNull(serializer);
+            return this;
+        }
+
+        public Builder<T> setCapacity(int capacity) {
+            Preconditions.checkArgument(capacity > 0, "Capacity must be positive.");
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder<T> setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = Preconditions.checkNotNull(overflowPolicy);
+            return this;
+        }
+
+        public Builder<T> setThreadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = Preconditions.checkNotNull(threadFactory);
+            return this;
+        }
+
+        public AsyncSerializer<T> build() {
+            Preconditions.checkState(serializer != null, "The Serializer hasn't been set.");
+            return new AsyncSerializer<T>(this);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import org.jsense.AccelerometerEvent;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link org.jsense.serialize.Deserializer} that reads {@link org.jsense.AccelerometerEvent}s sequentially from the
+ * fixed-width binary format written by {@link org.jsense.serialize.BinaryAccelerometerEventSerializer}.
+ * <p>
+ * Events are decoded lazily, from a reused buffer, as the returned {@link java.lang.Iterable} is iterated. The
+ * {@link java.lang.Iterable} can only be iterated once, and an {@link java.io.IOException} during iteration is rethrown
+ * wrapped in a {@link java.lang.RuntimeException}. An empty input holds no events. For random access to files, use
+ * {@link org.jsense.serialize.MappedBinaryAccelerometerEventDeserializer} instead.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.serialize.BinaryAccelerometerEventSerializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class BinaryAccelerometerEventDeserializer implements Deserializer<AccelerometerEvent> {
+
+    private static final int BUFFER_RECORDS = 2048;
+
+    private final InputStream source;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * BinaryFormat.RECORD_SIZE).order(BinaryFormat.BYTE_ORDER);
+    private final AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+    private boolean started;
+    private boolean closed;
+
+    public BinaryAccelerometerEventDeserializer(InputStream source) {
+        this.source = Preconditions.checkNotNull(source);
+        buffer.limit(0);
+    }
+
+    @Override
+    public Iterable<AccelerometerEvent> deserialize() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+
+        return new SingleUseIterable<AccelerometerEvent>(new EventIterator());
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+        closed = true;
+    }
+
+    /**
+     * Make at least {@code length} bytes available in the buffer, unless the input ends first.
+     *
+     * @return If the bytes are available.
+     */
+    private boolean fill(int length) throws IOException {
+        if (buffer.remaining() >= length) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < length) {
+            int read = source.read(buffer.array(), buffer.position(), buffer.remaining());
+            if (read < 0) {
+                break;
+            }
+            buffer.position(buffer.position() + read);
+        }
+        buffer.flip();
+        return buffer.remaining() >= length;
+    }
+
+    /**
+     * An {@link java.util.Iterator} that decodes one record per event.
+     */
+    private final class EventIterator extends AbstractIterator<AccelerometerEvent> {
+
+        @Override
+        protected AccelerometerEvent computeNext() {
+            try {
+                if (!started) {
+                    started = true;
+                    if (!readHeader()) {
+                        return endOfData();
+                    }
+                }
+                if (!fill(BinaryFormat.RECORD_SIZE)) {
+                    if (buffer.hasRemaining()) {
+                        throw new EOFException("The input ends in the middle of a record.");
+                    }
+                    return endOfData();
+                }
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+
+            AccelerometerEvent event = BinaryFormat.getEvent(buffer, buffer.position(), builder);
+            buffer.position(buffer.position() + BinaryFormat.RECORD_SIZE);
+            return event;
+        }
+
+        private boolean readHeader() throws IOException {
+            if (!fill(BinaryFormat.HEADER_SIZE)) {
+                if (buffer.hasRemaining()) {
+                    throw new EOFException("The input ends in the middle of the header.");
+                }
+                return false;
+            }
+            BinaryFormat.checkHeader(buffer, buffer.position());
+            buffer.position(buffer.position() + BinaryFormat.HEADER_SIZE);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import org.jsense.AccelerometerEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link org.jsense.serialize.Serializer} that writes {@link org.jsense.AccelerometerEvent}s as fixed-width,
+ * little-endian binary records behind a small header.
+ * <p>
+ * Every event takes the same number of bytes, so files can be read with random access, see
+ * {@link org.jsense.serialize.MappedBinaryAccelerometerEventDeserializer}. Records are encoded into a buffer, which is
+ * written to the sink when full or flushed.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @see org.jsense.serialize.BinaryAccelerometerEventDeserializer
+ * @see org.jsense.serialize.MappedBinaryAccelerometerEventDeserializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class BinaryAccelerometerEventSerializer implements Serializer<AccelerometerEvent> {
+
+    private static final int BUFFER_RECORDS = 2048;
+
+    private final OutputStream sink;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BinaryFormat.HEADER_SIZE + BUFFER_RECORDS * BinaryFormat.RECORD_SIZE)
+            .order(BinaryFormat.BYTE_ORDER);
+    private boolean opened;
+    private boolean closed;
+
+    public BinaryAccelerometerEventSerializer(OutputStream sink) {
+        this.sink = Preconditions.checkNotNull(sink);
+    }
+
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
+        Preconditions.checkNotNull(event);
+
+        checkClosed();
+        checkAndWriteHeader();
+
+        writeEvent(event);
+
+        return this;
+    }
+
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(Iterable<AccelerometerEvent> events) throws IOException {
+        Preconditions.checkNotNull(events);
+        Preconditions.checkState(!Iterables.isEmpty(events));
+
+        checkClosed();
+        checkAndWriteHeader();
+
+        for (AccelerometerEvent event : events) {
+            writeEvent(event);
+        }
+
+        return this;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        checkClosed();
+        checkAndWriteHeader();
+
+        writeBuffer();
+        sink.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed && opened) {
+            writeBuffer();
+        }
+        sink.close();
+        closed = true;
+    }
+
+    private void checkAndWriteHeader() {
+        if (!opened) {
+            BinaryFormat.putHeader(buffer);
+            opened = true;
+        }
+    }
+
+    private void writeEvent(AccelerometerEvent event) throws IOException {
+        if (buffer.remaining() < BinaryFormat.RECORD_SIZE) {
+            writeBuffer();
+        }
+        BinaryFormat.putEvent(buffer, event);
+    }
+
+    private void writeBuffer() throws IOException {
+        sink.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+    }
+}
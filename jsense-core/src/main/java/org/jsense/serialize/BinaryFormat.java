@@ -0,0 +1,86 @@
+package org.jsense.serialize;
+
+import org.jsense.AccelerometerEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The fixed-width binary format for {@link org.jsense.AccelerometerEvent}s, shared by the binary serializers and
+ * deserializers.
+ * <p>
+ * All values are little-endian. A header of {@link #HEADER_SIZE} bytes holds a magic number, the format version and the
+ * record size. It is followed by one record of {@link #RECORD_SIZE} bytes per event: the absolute timestamp in
+ * milliseconds (8 bytes), flags (1 byte, bit 0 set if there is a relative timestamp), the relative timestamp in
+ * nanoseconds (8 bytes, 0 if there is none), and x, y and z (4 bytes each).
+ *
+ * @author Markus Wüstenberg
+ */
+final class BinaryFormat {
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int MAGIC = 0x424e534a; // "JSNB"
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 12;
+    static final int RECORD_SIZE = 29;
+
+    private static final int ABSOLUTE_TIMESTAMP_OFFSET = 0;
+    private static final int FLAGS_OFFSET = 8;
+    private static final int RELATIVE_TIMESTAMP_OFFSET = 9;
+    private static final int X_OFFSET = 17;
+    private static final int Y_OFFSET = 21;
+    private static final int Z_OFFSET = 25;
+
+    private static final byte HAS_RELATIVE_TIMESTAMP = 1;
+
+    private BinaryFormat() {
+
+    }
+
+    static void putHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE);
+    }
+
+    static void checkHeader(ByteBuffer buffer, int position) throws IOException {
+        if (buffer.getInt(position) != MAGIC) {
+            throw new IOException("Not a binary accelerometer event file, wrong magic number.");
+        }
+        int version = buffer.getInt(position + 4);
+        int recordSize = buffer.getInt(position + 8);
+        if (version != VERSION || recordSize != RECORD_SIZE) {
+            throw new IOException("Unsupported binary format version " + version + " with record size " + recordSize + ".");
+        }
+    }
+
+    static void putEvent(ByteBuffer buffer, AccelerometerEvent event) {
+        buffer.putLong(event.getAbsoluteTimestampMillis());
+        if (event.hasRelativeTimestamp()) {
+            buffer.put(HAS_RELATIVE_TIMESTAMP).putLong(event.getRelativeTimestamp());
+        } else {
+            buffer.put((byte) 0).putLong(0);
+        }
+        buffer.putFloat(event.getX()).putFloat(event.getY()).putFloat(event.getZ());
+    }
+
+    static long getAbsoluteTimestamp(ByteBuffer buffer, int position) {
+        return buffer.getLong(position + ABSOLUTE_TIMESTAMP_OFFSET);
+    }
+
+    /**
+     * Read the record at {@code position}, without changing the position of the buffer.
+     */
+    static AccelerometerEvent getEvent(ByteBuffer buffer, int position, AccelerometerEvent.Builder builder) {
+        builder.reset()
+                .setAbsoluteTimestampMillis(buffer.getLong(position + ABSOLUTE_TIMESTAMP_OFFSET))
+                .setX(buffer.getFloat(position + X_OFFSET))
+                .setY(buffer.getFloat(position + Y_OFFSET))
+                .setZ(buffer.getFloat(position + Z_OFFSET));
+        if ((buffer.get(position + FLAGS_OFFSET) & HAS_RELATIVE_TIMESTAMP) != 0) {
+            builder.setRelativeTimestamp(buffer.getLong(position + RELATIVE_TIMESTAMP_OFFSET));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,84 @@
+package org.jsense.serialize;
+
+import java.io.EOFException;
+
+/**
+ * Reads values of any number of bits from a byte array, most significant bit first, as written by a
+ * {@link org.jsense.serialize.BitOutput}.
+ * <p>
+ * Up to 64 bits are kept in an accumulator, which is refilled a byte at a time, so most reads are a shift and a mask.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+final class BitInput {
+
+    private static final int MAX_CHUNK_BITS = 32;
+    private static final int BYTE_MASK = 0xff;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private long bits;
+    private int bitCount;
+
+    /**
+     * Start reading from the beginning of {@code length} bytes in {@code buffer}.
+     */
+    void reset(byte[] buffer, int length) {
+        this.buffer = buffer;
+        this.position = 0;
+        this.limit = length;
+        this.bits = 0;
+        this.bitCount = 0;
+    }
+
+    boolean readBit() throws EOFException {
+        return readChunk(1) != 0;
+    }
+
+    /**
+     * Read an unsigned value.
+     *
+     * @param count The number of bits, from 1 to 64.
+     * @return The value, in the lowest {@code count} bits.
+     */
+    long readBits(int count) throws EOFException {
+        if (count > MAX_CHUNK_BITS) {
+            long high = readChunk(count - MAX_CHUNK_BITS);
+            return (high << MAX_CHUNK_BITS) | readChunk(MAX_CHUNK_BITS);
+        }
+        return readChunk(count);
+    }
+
+    /**
+     * Read a two's complement value, and extend its sign.
+     *
+     * @param count The number of bits, from 1 to 64.
+     * @return The value.
+     */
+    long readSignedBits(int count) throws EOFException {
+        int shift = Long.SIZE - count;
+        return (readBits(count) << shift) >> shift;
+    }
+
+    /**
+     * Read up to 32 bits, refilling the accumulator first if needed.
+     */
+    private long readChunk(int count) throws EOFException {
+        if (bitCount < count) {
+            while (bitCount <= Long.SIZE - Byte.SIZE && position < limit) {
+                bits |= (long) (buffer[position++] & BYTE_MASK) << (Long.SIZE - Byte.SIZE - bitCount);
+                bitCount += Byte.SIZE;
+            }
+            if (bitCount < count) {
+                throw new EOFException("The input ends in the middle of a block.");
+            }
+        }
+        long value = bits >>> (Long.SIZE - count);
+        bits <<= count;
+        bitCount -= count;
+        return value;
+    }
+}
@@ -0,0 +1,96 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Writes values of any number of bits into a growing byte array, most significant bit first.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.serialize.BitInput
+ * @author Markus Wüstenberg
+ */
+final class BitOutput {
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int MAX_CHUNK_BITS = 32;
+    private static final int BYTE_MASK = 0xff;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length;
+    private long bits;
+    private int bitCount;
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Write the lowest {@code count} bits of a value.
+     *
+     * @param value The value.
+     * @param count The number of bits, from 1 to 64.
+     */
+    void writeBits(long value, int count) {
+        Preconditions.checkArgument(count > 0 && count <= Long.SIZE, "Bit count must be between 1 and 64.");
+        if (count > MAX_CHUNK_BITS) {
+            writeChunk(value >>> MAX_CHUNK_BITS, count - MAX_CHUNK_BITS);
+            writeChunk(value, MAX_CHUNK_BITS);
+        } else {
+            writeChunk(value, count);
+        }
+    }
+
+    /**
+     * Pad the last byte with zero bits, so all written bits are in {@link #buffer()}.
+     */
+    void finish() {
+        if (bitCount > 0) {
+            ensureCapacity(length + 1);
+            buffer[length++] = (byte) (bits >>> (Long.SIZE - Byte.SIZE));
+            bits = 0;
+            bitCount = 0;
+        }
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * Get the number of whole bytes written.
+     */
+    int length() {
+        return length;
+    }
+
+    void reset() {
+        length = 0;
+        bits = 0;
+        bitCount = 0;
+    }
+
+    /**
+     * Write up to 32 bits. As fewer than 8 bits are pending, they always fit in the 64-bit accumulator.
+     */
+    private void writeChunk(long value, int count) {
+        bits |= (value & ((1L << count) - 1)) << (Long.SIZE - bitCount - count);
+        bitCount += count;
+        if (bitCount >= Byte.SIZE) {
+            ensureCapacity(length + Integer.SIZE / Byte.SIZE + 1);
+            while (bitCount >= Byte.SIZE) {
+                buffer[length++] = (byte) ((bits >>> (Long.SIZE - Byte.SIZE)) & BYTE_MASK);
+                bits <<= Byte.SIZE;
+                bitCount -= Byte.SIZE;
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+
+import java.io.IOException;
+
+/**
+ * A {@code BlockCodec} compresses and decompresses independent blocks of bytes, for
+ * {@link org.jsense.serialize.BlockCompressedOutputStream} and {@link org.jsense.serialize.BlockCompressedInputStream}.
+ * <p>
+ * Every block is stored with the id of the codec that compressed it, so a reader must know the codec by its id. The
+ * ids from 0 to 15 are reserved for the codecs in {@link org.jsense.serialize.BlockCodecs}.
+ * <p>
+ * Implementations must be thread-safe, so blocks can be compressed and decompressed in parallel.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public interface BlockCodec {
+
+    /**
+     * Get the id stored with every block compressed by this codec, from 0 to 255.
+     *
+     * @return The id.
+     */
+    int getId();
+
+    /**
+     * Compress a block, if it fits in the given space.
+     *
+     * @param input The array holding the block.
+     * @param inputOffset The offset of the block in {@code input}.
+     * @param inputLength The length of the block.
+     * @param output The array to compress into.
+     * @param outputOffset The offset in {@code output} to compress to.
+     * @param maxOutputLength The maximum length of the compressed block.
+     * @return The length of the compressed block, or -1 if it doesn't fit in {@code maxOutputLength} bytes.
+     */
+    int compress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength);
+
+    /**
+     * Decompress a block.
+     *
+     * @param input The array holding the compressed block.
+     * @param inputOffset The offset of the compressed block in {@code input}.
+     * @param inputLength The length of the compressed block.
+     * @param output The array to decompress into.
+     * @param outputOffset The offset in {@code output} to decompress to.
+     * @param outputLength The length of the block when decompressed.
+     * @throws IOException If the compressed block is invalid.
+     */
+    void decompress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int outputLength) throws IOException;
+}
@@ -0,0 +1,131 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The built-in {@link org.jsense.serialize.BlockCodec}s.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class BlockCodecs {
+
+    /**
+     * Stores blocks as they are. Blocks that don't get smaller with another codec are also stored like this.
+     */
+    public static final BlockCodec NONE = new NoneCodec();
+
+    /**
+     * Compresses blocks with the Deflate algorithm of {@link java.util.zip.Deflater}, at the default level, which is
+     * a good balance between speed and size.
+     */
+    public static final BlockCodec DEFLATE = deflate(Deflater.DEFAULT_COMPRESSION);
+
+    static final int NONE_ID = 0;
+    static final int DEFLATE_ID = 1;
+
+    private BlockCodecs() {
+
+    }
+
+    /**
+     * Get a {@link org.jsense.serialize.BlockCodec} using the Deflate algorithm at a given level. All levels are read
+     * by {@link #DEFLATE}.
+     *
+     * @param level The compression level, from 0 to 9, or -1 for the default.
+     * @return The {@link org.jsense.serialize.BlockCodec}.
+     */
+    public static BlockCodec deflate(int level) {
+        Preconditions.checkArgument(level >= Deflater.DEFAULT_COMPRESSION && level <= Deflater.BEST_COMPRESSION,
+                "Level must be between -1 and 9.");
+        return new DeflateCodec(level);
+    }
+
+    private static final class NoneCodec implements BlockCodec {
+
+        @Override
+        public int getId() {
+            return NONE_ID;
+        }
+
+        @Override
+        public int compress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength) {
+            if (inputLength > maxOutputLength) {
+                return -1;
+            }
+            System.arraycopy(input, inputOffset, output, outputOffset, inputLength);
+            return inputLength;
+        }
+
+        @Override
+        public void decompress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int outputLength) throws IOException {
+            if (inputLength != outputLength) {
+                throw new IOException("Invalid uncompressed block, with " + inputLength + " bytes instead of " + outputLength + ".");
+            }
+            System.arraycopy(input, inputOffset, output, outputOffset, inputLength);
+        }
+    }
+
+    /**
+     * A {@link org.jsense.serialize.BlockCodec} using {@link java.util.zip.Deflater} and
+     * {@link java.util.zip.Inflater}, which aren't thread-safe, so one is created for every block.
+     */
+    private static final class DeflateCodec implements BlockCodec {
+
+        private final int level;
+
+        private DeflateCodec(int level) {
+            this.level = level;
+        }
+
+        @Override
+        public int getId() {
+            return DEFLATE_ID;
+        }
+
+        @Override
+        public int compress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength) {
+            Deflater deflater = new Deflater(level);
+            try {
+                deflater.setInput(input, inputOffset, inputLength);
+                deflater.finish();
+                int length = 0;
+                while (!deflater.finished()) {
+                    if (length == maxOutputLength) {
+                        return -1;
+                    }
+                    length += deflater.deflate(output, outputOffset + length, maxOutputLength - length);
+                }
+                return length;
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        public void decompress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int outputLength) throws IOException {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(input, inputOffset, inputLength);
+                int length = 0;
+                while (length < outputLength) {
+                    int inflated = inflater.inflate(output, outputOffset + length, outputLength - length);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Invalid deflate block, which is shorter than " + outputLength + " bytes.");
+                    }
+                    length += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid deflate block.", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * An {@link java.io.InputStream} that reads the frames written by a
+ * {@link org.jsense.serialize.BlockCompressedOutputStream}, and decompresses them one block at a time.
+ * <p>
+ * This decompresses the input of any {@link org.jsense.serialize.Deserializer} while it is read:
+ * <pre>
+ * new SimpleAccelerometerEventDeserializer(new BlockCompressedInputStream(source));
+ * </pre>
+ * The built-in codecs of {@link org.jsense.serialize.BlockCodecs} are always known, and other codecs must be given.
+ * {@link #skip(long)} skips whole blocks without decompressing them. The checksum of every block is checked, and an
+ * {@link java.io.IOException} is thrown on a mismatch. An empty input is an empty stream.
+ * <p>
+ * Given an {@link java.util.concurrent.ExecutorService}, frames are read ahead and their blocks decompressed on its
+ * threads, while the stream is read in order. A bounded number of blocks are decompressed ahead, by default twice as
+ * many as there are processors, so memory use does not depend on the size of the input.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.serialize.BlockCompressedOutputStream
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class BlockCompressedInputStream extends InputStream {
+
+    private static final int BYTE_MASK = 0xff;
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private final InputStream source;
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+    private final Queue<Frame> pending = new ArrayDeque<Frame>();
+    private final BlockCodec[] codecs = new BlockCodec[BlockCompressionFormat.MAX_CODEC_ID + 1];
+    private final ByteBuffer header = ByteBuffer.allocate(BlockCompressionFormat.FRAME_HEADER_SIZE).order(BlockCompressionFormat.BYTE_ORDER);
+    private final CRC32 crc = new CRC32();
+    private byte[] compressed = new byte[0];
+    private byte[] block = new byte[0];
+    private int position;
+    private int limit;
+    private boolean started;
+    private boolean frameHeaderRead;
+    private boolean closed;
+
+    /**
+     * Create a {@code BlockCompressedInputStream} that knows the built-in codecs, and the given ones.
+     *
+     * @param source The stream to read the frames from.
+     * @param codecs Other codecs the frames may be compressed with.
+     */
+    public BlockCompressedInputStream(InputStream source, BlockCodec... codecs) {
+        this(source, null, 1, codecs);
+    }
+
+    /**
+     * Create a {@code BlockCompressedInputStream} that decompresses blocks ahead on the threads of an
+     * {@link java.util.concurrent.ExecutorService}, which isn't shut down when the stream is closed.
+     *
+     * @param source The stream to read the frames from.
+     * @param executor The {@link java.util.concurrent.ExecutorService} to decompress the blocks on.
+     * @param codecs Other codecs the frames may be compressed with, which must be thread-safe.
+     */
+    public BlockCompressedInputStream(InputStream source, ExecutorService executor, BlockCodec... codecs) {
+        this(source, Preconditions.checkNotNull(executor), Runtime.getRuntime().availableProcessors() * BLOCKS_IN_FLIGHT_PER_THREAD, codecs);
+    }
+
+    /**
+     * Create a {@code BlockCompressedInputStream} that decompresses at most a given number of blocks ahead on the
+     * threads of an {@link java.util.concurrent.ExecutorService}, which isn't shut down when the stream is closed.
+     *
+     * @param source The stream to read the frames from.
+     * @param executor The {@link java.util.concurrent.ExecutorService} to decompress the blocks on.
+     * @param maxBlocksInFlight The maximum number of blocks read and not yet returned, which must be positive.
+     * @param codecs Other codecs the frames may be compressed with, which must be thread-safe.
+     */
+    public BlockCompressedInputStream(InputStream source, ExecutorService executor, int maxBlocksInFlight, BlockCodec... codecs) {
+        Preconditions.checkArgument(maxBlocksInFlight > 0, "Blocks in flight must be positive.");
+        this.source = Preconditions.checkNotNull(source);
+        this.executor = executor;
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        this.codecs[BlockCodecs.NONE_ID] = BlockCodecs.NONE;
+        this.codecs[BlockCodecs.DEFLATE_ID] = BlockCodecs.DEFLATE;
+        for (BlockCodec codec : codecs) {
+            Preconditions.checkArgument(codec.getId() >= 0 && codec.getId() <= BlockCompressionFormat.MAX_CODEC_ID, "Codec id must be between 0 and 255.");
+            this.codecs[codec.getId()] = codec;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !readBlock()) {
+            return -1;
+        }
+        return block[position++] & BYTE_MASK;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        Preconditions.checkPositionIndexes(offset, offset + length, bytes.length);
+        if (length == 0) {
+            return 0;
+        }
+        if (position == limit && !readBlock()) {
+            return -1;
+        }
+        int read = Math.min(length, limit - position);
+        System.arraycopy(block, position, bytes, offset, read);
+        position += read;
+        return read;
+    }
+
+    /**
+     * Skip bytes. Blocks that are skipped whole are not decompressed, unless they have already been read ahead, and for
+     * a source where skipping is cheap, such as a {@link java.io.FileInputStream}, not read either.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.min(Math.max(n, 0), limit - position);
+        position += (int) skipped;
+        while (skipped < n && !pending.isEmpty() && skipped + pending.peek().length <= n) {
+            Frame frame = pending.poll();
+            frame.block.cancel(false);
+            skipped += frame.length;
+        }
+        while (skipped < n && pending.isEmpty() && readFrameHeader()) {
+            int length = header.getInt(BlockCompressionFormat.LENGTH_OFFSET);
+            if (skipped + length > n) {
+                break;
+            }
+            ByteStreams.skipFully(source, header.getInt(BlockCompressionFormat.COMPRESSED_LENGTH_OFFSET));
+            frameHeaderRead = false;
+            skipped += length;
+        }
+        if (skipped < n && readBlock()) {
+            int rest = (int) Math.min(n - skipped, limit - position);
+            position += rest;
+            skipped += rest;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Frame frame : pending) {
+            frame.block.cancel(false);
+        }
+        pending.clear();
+        source.close();
+        closed = true;
+    }
+
+    /**
+     * Read and decompress the next block.
+     *
+     * @return If there was another block.
+     */
+    private boolean readBlock() throws IOException {
+        // Skip empty blocks, which aren't written, but are valid
+        do {
+            if (executor != null) {
+                submitBlocks();
+                Frame frame = pending.poll();
+                if (frame == null) {
+                    return false;
+                }
+                block = getBlock(frame.block);
+                limit = frame.length;
+            } else {
+                if (!readFrameHeader()) {
+                    return false;
+                }
+                frameHeaderRead = false;
+
+                BlockCodec codec = getCodec();
+                int length = header.getInt(BlockCompressionFormat.LENGTH_OFFSET);
+                int compressedLength = header.getInt(BlockCompressionFormat.COMPRESSED_LENGTH_OFFSET);
+                int checksum = header.getInt(BlockCompressionFormat.CHECKSUM_OFFSET);
+
+                if (compressedLength > compressed.length) {
+                    compressed = new byte[compressedLength];
+                }
+                ByteStreams.readFully(source, compressed, 0, compressedLength);
+                if (length > block.length) {
+                    block = new byte[length];
+                }
+                decompress(codec, compressed, compressedLength, block, length, checksum, crc);
+                limit = length;
+            }
+            position = 0;
+        } while (limit == 0);
+        return true;
+    }
+
+    /**
+     * Read frames and submit their blocks for decompression, until the maximum number are in flight, or the input ends.
+     * Every frame gets its own arrays, as it is decompressed while the following frames are read.
+     */
+    private void submitBlocks() throws IOException {
+        while (pending.size() < maxBlocksInFlight && readFrameHeader()) {
+            frameHeaderRead = false;
+
+            final BlockCodec codec = getCodec();
+            final int length = header.getInt(BlockCompressionFormat.LENGTH_OFFSET);
+            final int checksum = header.getInt(BlockCompressionFormat.CHECKSUM_OFFSET);
+            final byte[] frameBlock = new byte[header.getInt(BlockCompressionFormat.COMPRESSED_LENGTH_OFFSET)];
+            ByteStreams.readFully(source, frameBlock);
+
+            pending.add(new Frame(length, executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    byte[] decompressed = new byte[length];
+                    decompress(codec, frameBlock, frameBlock.length, decompressed, length, checksum, new CRC32());
+                    return decompressed;
+                }
+            })));
+        }
+    }
+
+    private static byte[] getBlock(Future<byte[]> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a block.");
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Get the codec of the frame whose header is in the header buffer.
+     */
+    private BlockCodec getCodec() throws IOException {
+        int codecId = header.get(BlockCompressionFormat.CODEC_OFFSET) & BYTE_MASK;
+        BlockCodec codec = codecs[codecId];
+        if (codec == null) {
+            throw new IOException("Unknown block codec with id " + codecId + ".");
+        }
+        return codec;
+    }
+
+    private static void decompress(BlockCodec codec, byte[] compressed, int compressedLength, byte[] block, int length, int checksum, CRC32 crc)
+            throws IOException {
+        codec.decompress(compressed, 0, compressedLength, block, 0, length);
+        crc.reset();
+        crc.update(block, 0, length);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Block checksum mismatch, the stream is corrupt.");
+        }
+    }
+
+    /**
+     * Read the header of the next frame into the header buffer, unless it has already been read, and also the stream
+     * header before the first frame.
+     *
+     * @return If there was another frame.
+     */
+    private boolean readFrameHeader() throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed.");
+        }
+        if (frameHeaderRead) {
+            return true;
+        }
+        if (!started) {
+            started = true;
+            if (!readFully(BlockCompressionFormat.HEADER_SIZE, "the header")) {
+                return false;
+            }
+            BlockCompressionFormat.checkHeader(header);
+        }
+        if (!readFully(BlockCompressionFormat.FRAME_HEADER_SIZE, "a frame header")) {
+            return false;
+        }
+        int length = header.getInt(BlockCompressionFormat.LENGTH_OFFSET);
+        int compressedLength = header.getInt(BlockCompressionFormat.COMPRESSED_LENGTH_OFFSET);
+        if (length < 0 || length > BlockCompressionFormat.MAX_BLOCK_SIZE || compressedLength < 0
+                || compressedLength > BlockCompressionFormat.MAX_BLOCK_SIZE) {
+            throw new IOException("Invalid frame header, with a block of " + length + " bytes compressed to " + compressedLength + ".");
+        }
+        frameHeaderRead = true;
+        return true;
+    }
+
+    /**
+     * Read {@code length} bytes into the header buffer, unless the input ends before the first byte.
+     */
+    private boolean readFully(int length, String description) throws IOException {
+        int read = ByteStreams.read(source, header.array(), 0, length);
+        if (read == 0) {
+            return false;
+        }
+        if (read < length) {
+            throw new EOFException("The input ends in the middle of " + description + ".");
+        }
+        return true;
+    }
+
+    /**
+     * A frame read ahead, with the length of its block and the decompression of it.
+     */
+    private static final class Frame {
+
+        private final int length;
+        private final Future<byte[]> block;
+
+        private Frame(int length, Future<byte[]> block) {
+            this.length = length;
+            this.block = block;
+        }
+    }
+}
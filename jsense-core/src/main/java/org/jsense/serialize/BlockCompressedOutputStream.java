@@ -0,0 +1,145 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * An {@link java.io.OutputStream} that compresses everything written to it in independent blocks, with a
+ * {@link org.jsense.serialize.BlockCodec}, and writes the blocks as frames to another stream.
+ * <p>
+ * This compresses the output of any {@link org.jsense.serialize.Serializer} while it is written, with no extra pass
+ * over the data:
+ * <pre>
+ * new SimpleAccelerometerEventSerializer(new BlockCompressedOutputStream(sink, BlockCodecs.DEFLATE));
+ * </pre>
+ * A block is written when it is full, and when the stream is flushed or closed, so flushing often gives smaller blocks
+ * and less compression. Blocks that don't get smaller are stored uncompressed. Every block has a CRC-32 checksum.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.serialize.BlockCompressedInputStream
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class BlockCompressedOutputStream extends OutputStream {
+
+    /**
+     * The default size of an uncompressed block in bytes.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    private final OutputStream sink;
+    private final BlockCodec codec;
+    private final byte[] block;
+    private final byte[] frame;
+    private final ByteBuffer frameHeader;
+    private final CRC32 crc = new CRC32();
+    private int position;
+    private boolean opened;
+    private boolean closed;
+
+    public BlockCompressedOutputStream(OutputStream sink, BlockCodec codec) {
+        this(sink, codec, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a {@code BlockCompressedOutputStream} with a given block size. Larger blocks compress better, but must be
+     * read whole.
+     *
+     * @param sink The stream to write the frames to.
+     * @param codec The {@link org.jsense.serialize.BlockCodec} to compress the blocks with.
+     * @param blockSize The size of an uncompressed block in bytes.
+     */
+    public BlockCompressedOutputStream(OutputStream sink, BlockCodec codec, int blockSize) {
+        Preconditions.checkArgument(blockSize > 0 && blockSize <= BlockCompressionFormat.MAX_BLOCK_SIZE,
+                "Block size must be positive and at most %s.", BlockCompressionFormat.MAX_BLOCK_SIZE);
+        this.sink = Preconditions.checkNotNull(sink);
+        this.codec = Preconditions.checkNotNull(codec);
+        Preconditions.checkArgument(codec.getId() >= 0 && codec.getId() <= BlockCompressionFormat.MAX_CODEC_ID, "Codec id must be between 0 and 255.");
+        this.block = new byte[blockSize];
+        this.frame = new byte[BlockCompressionFormat.FRAME_HEADER_SIZE + blockSize];
+        this.frameHeader = ByteBuffer.wrap(frame).order(BlockCompressionFormat.BYTE_ORDER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkClosed();
+
+        if (position == block.length) {
+            writeBlock();
+        }
+        block[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        Preconditions.checkPositionIndexes(offset, offset + length, bytes.length);
+
+        checkClosed();
+
+        while (length > 0) {
+            if (position == block.length) {
+                writeBlock();
+            }
+            int copied = Math.min(length, block.length - position);
+            System.arraycopy(bytes, offset, block, position, copied);
+            position += copied;
+            offset += copied;
+            length -= copied;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkClosed();
+
+        writeBlock();
+        sink.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            writeBlock();
+        }
+        sink.close();
+        closed = true;
+    }
+
+    private void writeBlock() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        if (!opened) {
+            ByteBuffer header = ByteBuffer.allocate(BlockCompressionFormat.HEADER_SIZE).order(BlockCompressionFormat.BYTE_ORDER);
+            BlockCompressionFormat.putHeader(header);
+            sink.write(header.array());
+            opened = true;
+        }
+
+        crc.reset();
+        crc.update(block, 0, position);
+        BlockCodec frameCodec = codec;
+        int length = codec.compress(block, 0, position, frame, BlockCompressionFormat.FRAME_HEADER_SIZE, position - 1);
+        if (length < 0) {
+            frameCodec = BlockCodecs.NONE;
+            length = position;
+            System.arraycopy(block, 0, frame, BlockCompressionFormat.FRAME_HEADER_SIZE, position);
+        }
+        frameHeader.clear();
+        frameHeader.put((byte) frameCodec.getId()).putInt(position).putInt(length).putInt((int) crc.getValue());
+        sink.write(frame, 0, BlockCompressionFormat.FRAME_HEADER_SIZE + length);
+        position = 0;
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed.");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.jsense.serialize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The framing of block compressed streams, shared by {@link org.jsense.serialize.BlockCompressedOutputStream} and
+ * {@link org.jsense.serialize.BlockCompressedInputStream}.
+ * <p>
+ * All values are little-endian. A header of {@link #HEADER_SIZE} bytes holds a magic number and the format version. It
+ * is followed by frames, each with a header of {@link #FRAME_HEADER_SIZE} bytes: the codec id (1 byte), the
+ * uncompressed length, the compressed length, and the CRC-32 of the uncompressed block (4 bytes each), and then the
+ * compressed block. Frames are independent of each other, so they can be decompressed in any order, and a frame can be
+ * skipped by its compressed length without decompressing it.
+ *
+ * @author Markus Wüstenberg
+ */
+final class BlockCompressionFormat {
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int MAGIC = 0x5a4e534a; // "JSNZ"
+    static final int VERSION = 1;
+
+    static final int MAX_CODEC_ID = 0xff;
+
+    static final int HEADER_SIZE = 8;
+    static final int FRAME_HEADER_SIZE = 13;
+
+    static final int CODEC_OFFSET = 0;
+    static final int LENGTH_OFFSET = 1;
+    static final int COMPRESSED_LENGTH_OFFSET = 5;
+    static final int CHECKSUM_OFFSET = 9;
+
+    /**
+     * The largest block size, which also protects readers from allocating huge buffers for corrupt frame headers.
+     */
+    static final int MAX_BLOCK_SIZE = 1 << 26;
+
+    private BlockCompressionFormat() {
+
+    }
+
+    static void putHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    static void checkHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a block compressed stream, wrong magic number.");
+        }
+        int version = buffer.getInt(Integer.SIZE / Byte.SIZE);
+        if (version != VERSION) {
+            throw new IOException("Unsupported block compression format version " + version + ".");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code ChunkDecoder} decodes a stream that arrives in chunks of any size, and pushes every complete value to a
+ * {@link Listener} as soon as it is decoded. It is the non-blocking counterpart of a
+ * {@link org.jsense.serialize.Deserializer}: instead of a thread blocking on an {@link java.io.InputStream}, the
+ * caller hands over whatever bytes are available, for example when a {@link java.nio.channels.Selector} reports a
+ * non-blocking channel as readable, so one thread can decode many streams. See
+ * {@link org.jsense.serialize.ChunkDecoders#read(java.nio.channels.ReadableByteChannel, java.nio.ByteBuffer, ChunkDecoder)}.
+ * <p>
+ * A value split over several chunks is kept until the rest of it arrives. The {@link Listener} is called on the thread
+ * calling {@link #decode(java.nio.ByteBuffer)}, and exceptions thrown by it are passed on to the caller.
+ *
+ * @param <T> The type of data to be decoded.
+ * @author Markus Wüstenberg
+ */
+@Beta
+public interface ChunkDecoder<T> {
+
+    /**
+     * Decode the remaining bytes of a chunk, pushing every completed value to the {@link Listener}. The chunk is read
+     * to its limit, and isn't kept after this returns, so the caller can reuse it.
+     *
+     * @param chunk The chunk.
+     * @throws IOException If the input is invalid.
+     */
+    void decode(ByteBuffer chunk) throws IOException;
+
+    /**
+     * Signal the end of the input, decoding what is left where the format allows it.
+     *
+     * @throws IOException If the input ends in the middle of a value.
+     */
+    void finish() throws IOException;
+
+    /**
+     * A {@code Listener} receives the values decoded by a {@link ChunkDecoder}, in order.
+     *
+     * @param <T> The type of data decoded.
+     */
+    interface Listener<T> {
+
+        /**
+         * Called for every decoded value.
+         *
+         * @param value The value.
+         */
+        void onValue(T value);
+    }
+}
@@ -0,0 +1,56 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Helpers for using {@link org.jsense.serialize.ChunkDecoder}s with NIO channels.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class ChunkDecoders {
+
+    private ChunkDecoders() {
+
+    }
+
+    /**
+     * Read from a channel into a buffer, and decode what was read, until no more bytes are available. For a
+     * non-blocking channel, such as a {@link java.nio.channels.SocketChannel} registered with a
+     * {@link java.nio.channels.Selector}, this returns when the channel has no more bytes right now, so it can be
+     * called whenever the channel is readable. For a blocking channel, such as a {@link java.nio.channels.FileChannel},
+     * it reads to the end.
+     * <p>
+     * The buffer is only used during the call, so one buffer can be shared by all channels served by a thread.
+     *
+     * @param channel The channel to read from.
+     * @param buffer The buffer to read into.
+     * @param decoder The decoder for the channel.
+     * @return If the channel may have more bytes, or false if it has ended, in which case the decoder is finished.
+     * @throws IOException If reading fails, or if the input is invalid.
+     */
+    public static boolean read(ReadableByteChannel channel, ByteBuffer buffer, ChunkDecoder<?> decoder) throws IOException {
+        Preconditions.checkNotNull(channel);
+        Preconditions.checkNotNull(decoder);
+        Preconditions.checkArgument(buffer.capacity() > 0, "The buffer must not be empty.");
+
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer);
+            if (read < 0) {
+                decoder.finish();
+                return false;
+            }
+            if (read == 0) {
+                return true;
+            }
+            buffer.flip();
+            decoder.decode(buffer);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.io.ByteStreams;
+import org.jsense.AccelerometerEvent;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link org.jsense.serialize.Deserializer} that reads {@link org.jsense.AccelerometerEvent}s from the compressed
+ * format written by {@link org.jsense.serialize.CompressedAccelerometerEventSerializer}.
+ * <p>
+ * Blocks are read one at a time into a reused buffer, and their events are decoded lazily as the returned
+ * {@link java.lang.Iterable} is iterated, so memory use doesn't grow with the size of the input. The
+ * {@link java.lang.Iterable} can only be iterated once, and an {@link java.io.IOException} during iteration is rethrown
+ * wrapped in a {@link java.lang.RuntimeException}. An empty input holds no events.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.serialize.CompressedAccelerometerEventSerializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class CompressedAccelerometerEventDeserializer implements Deserializer<AccelerometerEvent> {
+
+    private final InputStream source;
+    private final ByteBuffer header = ByteBuffer.allocate(Math.max(CompressedFormat.HEADER_SIZE, CompressedFormat.BLOCK_HEADER_SIZE))
+            .order(CompressedFormat.BYTE_ORDER);
+    private final BitInput input = new BitInput();
+    private final CompressedFormat.Block block = new CompressedFormat.Block();
+    private final AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+    private byte[] data = new byte[0];
+    private int remaining;
+    private boolean started;
+    private boolean closed;
+
+    public CompressedAccelerometerEventDeserializer(InputStream source) {
+        this.source = Preconditions.checkNotNull(source);
+    }
+
+    @Override
+    public Iterable<AccelerometerEvent> deserialize() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+
+        return new SingleUseIterable<AccelerometerEvent>(new EventIterator());
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+        closed = true;
+    }
+
+    /**
+     * Read {@code length} bytes into the header buffer, unless the input ends before the first byte.
+     *
+     * @return If the bytes were read.
+     */
+    private boolean readHeader(int length, String description) throws IOException {
+        header.clear();
+        int read = ByteStreams.read(source, header.array(), 0, length);
+        if (read == 0) {
+            return false;
+        }
+        if (read < length) {
+            throw new EOFException("The input ends in the middle of " + description + ".");
+        }
+        return true;
+    }
+
+    /**
+     * An {@link java.util.Iterator} that reads a block whenever the events of the previous one are used up.
+     */
+    private final class EventIterator extends AbstractIterator<AccelerometerEvent> {
+
+        @Override
+        protected AccelerometerEvent computeNext() {
+            try {
+                if (!started) {
+                    started = true;
+                    if (!readHeader(CompressedFormat.HEADER_SIZE, "the header")) {
+                        return endOfData();
+                    }
+                    CompressedFormat.checkHeader(header);
+                }
+                while (remaining == 0) {
+                    if (!readBlock()) {
+                        return endOfData();
+                    }
+                }
+                remaining--;
+                return block.decode(input, builder);
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+
+        private boolean readBlock() throws IOException {
+            if (!readHeader(CompressedFormat.BLOCK_HEADER_SIZE, "a block header")) {
+                return false;
+            }
+            int events = header.getInt(0);
+            int length = header.getInt(Integer.SIZE / Byte.SIZE);
+            if (events < 0 || length < 0 || length > CompressedFormat.MAX_BLOCK_SIZE
+                    || (long) events * CompressedFormat.MIN_EVENT_BITS > (long) length * Byte.SIZE) {
+                throw new IOException("Invalid compressed block header, with " + events + " events in " + length + " bytes.");
+            }
+            if (length > data.length) {
+                data = new byte[length];
+            }
+            ByteStreams.readFully(source, data, 0, length);
+            input.reset(data, length);
+            block.reset();
+            remaining = events;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import org.jsense.AccelerometerEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link org.jsense.serialize.Serializer} that writes {@link org.jsense.AccelerometerEvent}s in a compressed binary
+ * format, made for storing long recordings.
+ * <p>
+ * Timestamps are stored as deltas of deltas, and sample values as the XOR with the previous value of the same axis,
+ * so regularly sampled, slowly changing data takes only a few bytes per event. The compression is lossless. Events
+ * are encoded into blocks of independent bit streams, and a block is written to the sink when it is full, and when the
+ * {@code Serializer} is flushed or closed, so flushing often gives smaller blocks and less compression.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @see org.jsense.serialize.CompressedAccelerometerEventDeserializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class CompressedAccelerometerEventSerializer implements Serializer<AccelerometerEvent> {
+
+    /**
+     * The default number of events in a block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final OutputStream sink;
+    private final int blockSize;
+    private final ByteBuffer header = ByteBuffer.allocate(Math.max(CompressedFormat.HEADER_SIZE, CompressedFormat.BLOCK_HEADER_SIZE))
+            .order(CompressedFormat.BYTE_ORDER);
+    private final BitOutput output = new BitOutput();
+    private final CompressedFormat.Block block = new CompressedFormat.Block();
+    private int blockEvents;
+    private boolean opened;
+    private boolean closed;
+
+    public CompressedAccelerometerEventSerializer(OutputStream sink) {
+        this(sink, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a {@code CompressedAccelerometerEventSerializer} with a given block size. Larger blocks compress a little
+     * better, as the first event of a block is stored uncompressed.
+     *
+     * @param sink The stream to write the events to.
+     * @param blockSize The maximum number of events in a block, which must be positive and at most 1973790.
+     */
+    public CompressedAccelerometerEventSerializer(OutputStream sink, int blockSize) {
+        Preconditions.checkArgument(blockSize > 0 && blockSize <= CompressedFormat.MAX_BLOCK_EVENTS, "Block size must be positive and at most 1973790.");
+        this.sink = Preconditions.checkNotNull(sink);
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
+        Preconditions.checkNotNull(event);
+
+        checkClosed();
+        checkAndWriteHeader();
+
+        writeEvent(event);
+
+        return this;
+    }
+
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(Iterable<AccelerometerEvent> events) throws IOException {
+        Preconditions.checkNotNull(events);
+        Preconditions.checkState(!Iterables.isEmpty(events));
+
+        checkClosed();
+        checkAndWriteHeader();
+
+        for (AccelerometerEvent event : events) {
+            writeEvent(Preconditions.checkNotNull(event));
+        }
+
+        return this;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        checkClosed();
+        checkAndWriteHeader();
+
+        writeBlock();
+        sink.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed && opened) {
+            writeBlock();
+        }
+        sink.close();
+        closed = true;
+    }
+
+    private void checkAndWriteHeader() throws IOException {
+        if (!opened) {
+            header.clear();
+            CompressedFormat.putHeader(header);
+            sink.write(header.array(), 0, header.position());
+            opened = true;
+        }
+    }
+
+    private void writeEvent(AccelerometerEvent event) throws IOException {
+        block.encode(output, event);
+        blockEvents++;
+        if (blockEvents == blockSize) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockEvents == 0) {
+            return;
+        }
+        output.finish();
+        header.clear();
+        header.putInt(blockEvents).putInt(output.length());
+        sink.write(header.array(), 0, header.position());
+        sink.write(output.buffer(), 0, output.length());
+        output.reset();
+        block.reset();
+        blockEvents = 0;
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package org.jsense.serialize;
+
+import org.jsense.AccelerometerEvent;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The compressed format for {@link org.jsense.AccelerometerEvent}s, shared by the compressed serializer and
+ * deserializer. It is based on the time series compression of Facebook's Gorilla database.
+ * <p>
+ * A little-endian header of {@link #HEADER_SIZE} bytes holds a magic number and the format version. It is followed by
+ * blocks, each with a little-endian header of {@link #BLOCK_HEADER_SIZE} bytes holding the number of events and the
+ * number of data bytes, and then the data, as a bit stream padded to whole bytes. Blocks are independent of each other.
+ * <p>
+ * Within a block, every event is the absolute timestamp, a bit that is set if there is a relative timestamp, the
+ * relative timestamp if there is one, and x, y and z. The first timestamp of a block is stored in 64 bits, and every
+ * following timestamp as the difference between its delta and the previous delta, which is 0 for regularly sampled
+ * data, and then takes a single bit. Relative timestamps are only compared with relative timestamps. The first value of
+ * each axis is stored in 32 bits, and every following value as the XOR with the previous value, which for slowly
+ * changing values has many leading and trailing zero bits, and only the bits between them are stored.
+ *
+ * @author Markus Wüstenberg
+ */
+final class CompressedFormat {
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int MAGIC = 0x434e534a; // "JSNC"
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 8;
+    static final int BLOCK_HEADER_SIZE = 8;
+
+    /**
+     * The largest block size, which also protects readers from allocating huge buffers for corrupt block headers.
+     */
+    static final int MAX_BLOCK_SIZE = 1 << 26;
+
+    /**
+     * The fewest bits of an event, a delta of delta of 0, no relative timestamp and three unchanged values.
+     */
+    static final int MIN_EVENT_BITS = 5;
+
+    /**
+     * The most bytes of an event, rounded up from two 69 bit timestamps, the relative timestamp bit and three 44 bit
+     * values.
+     */
+    private static final int MAX_EVENT_SIZE = 34;
+
+    /**
+     * The largest number of events in a block, which always fits in {@link #MAX_BLOCK_SIZE}.
+     */
+    static final int MAX_BLOCK_EVENTS = MAX_BLOCK_SIZE / MAX_EVENT_SIZE;
+
+    /**
+     * The bit lengths of the delta of delta buckets, each selected by a prefix of as many one bits as its index,
+     * followed by a zero bit except for the last. A delta of delta of 0 is a single zero bit.
+     */
+    private static final int[] DELTA_OF_DELTA_BITS = {7, 12, 20, 32, 64};
+
+    private static final int FLOAT_LEADING_ZEROS_BITS = 5;
+    private static final int FLOAT_MEANINGFUL_BITS_BITS = 5;
+
+    private CompressedFormat() {
+
+    }
+
+    static void putHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    static void checkHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compressed accelerometer event file, wrong magic number.");
+        }
+        int version = buffer.getInt(Integer.SIZE / Byte.SIZE);
+        if (version != VERSION) {
+            throw new IOException("Unsupported compressed format version " + version + ".");
+        }
+    }
+
+    /**
+     * The state of one block, for encoding or decoding its events in order.
+     */
+    static final class Block {
+
+        private final TimestampCodec absoluteTimestamp = new TimestampCodec();
+        private final TimestampCodec relativeTimestamp = new TimestampCodec();
+        private final FloatCodec x = new FloatCodec();
+        private final FloatCodec y = new FloatCodec();
+        private final FloatCodec z = new FloatCodec();
+
+        void reset() {
+            absoluteTimestamp.reset();
+            relativeTimestamp.reset();
+            x.reset();
+            y.reset();
+            z.reset();
+        }
+
+        void encode(BitOutput output, AccelerometerEvent event) {
+            absoluteTimestamp.encode(output, event.getAbsoluteTimestampMillis());
+            output.writeBit(event.hasRelativeTimestamp());
+            if (event.hasRelativeTimestamp()) {
+                relativeTimestamp.encode(output, event.getRelativeTimestamp());
+            }
+            x.encode(output, event.getX());
+            y.encode(output, event.getY());
+            z.encode(output, event.getZ());
+        }
+
+        AccelerometerEvent decode(BitInput input, AccelerometerEvent.Builder builder) throws IOException {
+            builder.reset().setAbsoluteTimestampMillis(absoluteTimestamp.decode(input));
+            if (input.readBit()) {
+                builder.setRelativeTimestamp(relativeTimestamp.decode(input));
+            }
+            return builder
+                    .setX(x.decode(input))
+                    .setY(y.decode(input))
+                    .setZ(z.decode(input))
+                    .build();
+        }
+    }
+
+    /**
+     * Delta of delta coding of timestamps. Differences wrap around on overflow, which decoding undoes, so any
+     * timestamps are stored exactly.
+     */
+    private static final class TimestampCodec {
+
+        private boolean started;
+        private long previous;
+        private long previousDelta;
+
+        private void reset() {
+            started = false;
+            previous = 0;
+            previousDelta = 0;
+        }
+
+        private void encode(BitOutput output, long timestamp) {
+            if (!started) {
+                output.writeBits(timestamp, Long.SIZE);
+                started = true;
+            } else {
+                long delta = timestamp - previous;
+                writeDeltaOfDelta(output, delta - previousDelta);
+                previousDelta = delta;
+            }
+            previous = timestamp;
+        }
+
+        private long decode(BitInput input) throws EOFException {
+            if (!started) {
+                previous = input.readBits(Long.SIZE);
+                started = true;
+            } else {
+                previousDelta += readDeltaOfDelta(input);
+                previous += previousDelta;
+            }
+            return previous;
+        }
+
+        private static void writeDeltaOfDelta(BitOutput output, long deltaOfDelta) {
+            if (deltaOfDelta == 0) {
+                output.writeBit(false);
+                return;
+            }
+            int last = DELTA_OF_DELTA_BITS.length - 1;
+            for (int i = 0; i < last; i++) {
+                int bits = DELTA_OF_DELTA_BITS[i];
+                if (deltaOfDelta >= -(1L << (bits - 1)) && deltaOfDelta < (1L << (bits - 1))) {
+                    // i + 1 one bits and a zero bit
+                    output.writeBits((1L << (i + 2)) - 2, i + 2);
+                    output.writeBits(deltaOfDelta, bits);
+                    return;
+                }
+            }
+            output.writeBits((1L << (last + 1)) - 1, last + 1);
+            output.writeBits(deltaOfDelta, DELTA_OF_DELTA_BITS[last]);
+        }
+
+        private static long readDeltaOfDelta(BitInput input) throws EOFException {
+            int bucket = 0;
+            while (bucket < DELTA_OF_DELTA_BITS.length && input.readBit()) {
+                bucket++;
+            }
+            if (bucket == 0) {
+                return 0;
+            }
+            return input.readSignedBits(DELTA_OF_DELTA_BITS[bucket - 1]);
+        }
+    }
+
+    /**
+     * XOR coding of floats. After a set bit for a changed value, a zero bit means the changed bits fit in the window of
+     * meaningful bits of the previous changed value, and a one bit that a new window follows, as the number of leading
+     * zeros and the number of meaningful bits, minus one.
+     */
+    private static final class FloatCodec {
+
+        private boolean started;
+        private int previous;
+        private int leadingZeros;
+        private int trailingZeros;
+
+        private FloatCodec() {
+            reset();
+        }
+
+        private void reset() {
+            started = false;
+            previous = 0;
+            leadingZeros = Integer.MAX_VALUE;
+            trailingZeros = 0;
+        }
+
+        private void encode(BitOutput output, float value) {
+            int bits = Float.floatToRawIntBits(value);
+            if (!started) {
+                output.writeBits(bits, Integer.SIZE);
+                started = true;
+                previous = bits;
+                return;
+            }
+            int xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                output.writeBit(false);
+                return;
+            }
+            output.writeBit(true);
+            int leading = Integer.numberOfLeadingZeros(xor);
+            int trailing = Integer.numberOfTrailingZeros(xor);
+            if (leading >= leadingZeros && trailing >= trailingZeros) {
+                output.writeBit(false);
+                output.writeBits(xor >>> trailingZeros, Integer.SIZE - leadingZeros - trailingZeros);
+            } else {
+                int meaningfulBits = Integer.SIZE - leading - trailing;
+                output.writeBit(true);
+                output.writeBits(leading, FLOAT_LEADING_ZEROS_BITS);
+                output.writeBits(meaningfulBits - 1, FLOAT_MEANINGFUL_BITS_BITS);
+                output.writeBits(xor >>> trailing, meaningfulBits);
+                leadingZeros = leading;
+                trailingZeros = trailing;
+            }
+        }
+
+        private float decode(BitInput input) throws IOException {
+            if (!started) {
+                previous = (int) input.readBits(Integer.SIZE);
+                started = true;
+            } else if (input.readBit()) {
+                if (input.readBit()) {
+                    leadingZeros = (int) input.readBits(FLOAT_LEADING_ZEROS_BITS);
+                    trailingZeros = Integer.SIZE - leadingZeros - (int) input.readBits(FLOAT_MEANINGFUL_BITS_BITS) - 1;
+                    if (trailingZeros < 0) {
+                        throw new IOException("Invalid compressed block, the meaningful bits of a value don't fit.");
+                    }
+                } else if (leadingZeros == Integer.MAX_VALUE) {
+                    throw new IOException("Invalid compressed block, a value refers to a missing previous value.");
+                }
+                int xor = (int) input.readBits(Integer.SIZE - leadingZeros - trailingZeros) << trailingZeros;
+                previous ^= xor;
+            }
+            return Float.intBitsToFloat(previous);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+
+import java.io.IOException;
+
+/**
+ * A {@code Cursor} reads deserialized data one value at a time, like an {@link java.util.Iterator}, but may return the
+ * same reused object for every value, filled again on every call to {@link #next()}. Reading this way doesn't allocate
+ * per value, but a value is only valid until the next call to {@link #next()}, and must be copied to be kept.
+ * <p>
+ * Unlike an {@link java.util.Iterator} from {@link org.jsense.serialize.Deserializer#deserialize()}, a {@code Cursor}
+ * throws an {@link java.io.IOException} directly. It is closed by closing its {@link org.jsense.serialize.Deserializer}.
+ * <p>
+ * The implementing classes are usually not thread-safe.
+ *
+ * @param <T> The type of data to be read.
+ * @author Markus Wüstenberg
+ */
+@Beta
+public interface Cursor<T> {
+
+    /**
+     * Move to the next value.
+     *
+     * @return If there is a next value, or false at the end of the data.
+     * @throws IOException If there is a problem deserializing.
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Get the current value, which is only valid until the next call to {@link #next()}. Throws an
+     * {@link java.lang.IllegalStateException} if {@link #next()} hasn't been called, or returned false.
+     *
+     * @return The current value.
+     */
+    T get();
+}
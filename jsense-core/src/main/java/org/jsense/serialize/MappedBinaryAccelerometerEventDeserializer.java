@@ -0,0 +1,206 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.UnmodifiableIterator;
+import org.joda.time.ReadableInstant;
+import org.jsense.AccelerometerEvent;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link org.jsense.serialize.Deserializer} that reads {@link org.jsense.AccelerometerEvent}s from a file in the
+ * fixed-width binary format written by {@link org.jsense.serialize.BinaryAccelerometerEventSerializer}, through
+ * memory-mapped {@link java.nio.MappedByteBuffer}s.
+ * <p>
+ * Opening a file only reads the header, and the number of events follows from the file size. Because every record has
+ * the same size, {@link #get(long)} and {@link #deserialize(long, long)} seek to any event in O(1), without parsing the
+ * events before it. The file is mapped in segments, so files larger than 2 GB are supported, and segments are only
+ * mapped when first accessed.
+ * <p>
+ * If the events are ordered by absolute timestamp, {@link #deserialize(ReadableInstant, ReadableInstant)} finds a time
+ * range with a binary search over the records, so no {@link org.jsense.serialize.TimestampIndex} is needed.
+ * <p>
+ * The returned {@link java.lang.Iterable}s can be iterated any number of times, as long as the
+ * {@code MappedBinaryAccelerometerEventDeserializer} is open.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.serialize.BinaryAccelerometerEventSerializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class MappedBinaryAccelerometerEventDeserializer implements Deserializer<AccelerometerEvent> {
+
+    private static final int SEGMENT_RECORDS = 1 << 24;
+
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+    private boolean closed;
+
+    public MappedBinaryAccelerometerEventDeserializer(File file) throws IOException {
+        Preconditions.checkNotNull(file);
+        channel = new FileInputStream(file).getChannel();
+        try {
+            long length = channel.size();
+            if (length < BinaryFormat.HEADER_SIZE) {
+                throw new IOException("The file is too short to hold a header.");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, BinaryFormat.HEADER_SIZE);
+            header.order(BinaryFormat.BYTE_ORDER);
+            BinaryFormat.checkHeader(header, 0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        size = (channel.size() - BinaryFormat.HEADER_SIZE) / BinaryFormat.RECORD_SIZE;
+        segments = new MappedByteBuffer[(int) ((size + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS)];
+    }
+
+    /**
+     * Get the number of events in the file.
+     *
+     * @return The number of events.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Read the event at an index.
+     *
+     * @param index The index of the event.
+     * @return The event.
+     * @throws IOException If there is a problem deserializing. In particular, an {@link java.io.IOException} is thrown if the {@code Deserializer} is closed.
+     */
+    public AccelerometerEvent get(long index) throws IOException {
+        checkClosed();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size + ".");
+        }
+        return getEvent(index, AccelerometerEvent.newBuilder());
+    }
+
+    @Override
+    public Iterable<AccelerometerEvent> deserialize() throws IOException {
+        return deserialize(0, size);
+    }
+
+    /**
+     * Deserialize the events between {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     *
+     * @param fromIndex The index of the first event, inclusive.
+     * @param toIndex The index of the last event, exclusive.
+     * @return An {@link java.lang.Iterable} over the events.
+     * @throws IOException If there is a problem deserializing. In particular, an {@link java.io.IOException} is thrown if the {@code Deserializer} is closed.
+     */
+    public Iterable<AccelerometerEvent> deserialize(final long fromIndex, final long toIndex) throws IOException {
+        checkClosed();
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > size) {
+            throw new IndexOutOfBoundsException("Indexes " + fromIndex + " to " + toIndex + " out of bounds for size " + size + ".");
+        }
+
+        return new Iterable<AccelerometerEvent>() {
+            @Override
+            public Iterator<AccelerometerEvent> iterator() {
+                return new UnmodifiableIterator<AccelerometerEvent>() {
+                    private final AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+                    private long index = fromIndex;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < toIndex;
+                    }
+
+                    @Override
+                    public AccelerometerEvent next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException("No more elements.");
+                        }
+                        Preconditions.checkState(!closed, Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+                        return getEvent(index++, builder);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Deserialize the events with an absolute timestamp in {@code [from, to)}. The events must be ordered by absolute
+     * timestamp, and the range is found with a binary search in O(log n).
+     *
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return An {@link java.lang.Iterable} over the events in the range.
+     * @throws IOException If there is a problem deserializing. In particular, an {@link java.io.IOException} is thrown if the {@code Deserializer} is closed.
+     */
+    public Iterable<AccelerometerEvent> deserialize(ReadableInstant from, ReadableInstant to) throws IOException {
+        Preconditions.checkNotNull(from);
+        Preconditions.checkNotNull(to);
+        checkClosed();
+
+        long fromIndex = indexOf(from.getMillis());
+        return deserialize(fromIndex, Math.max(fromIndex, indexOf(to.getMillis())));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        closed = true;
+    }
+
+    /**
+     * Find the index of the first event with an absolute timestamp at or after {@code timestampMillis}.
+     */
+    private long indexOf(long timestampMillis) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            int segment = (int) (middle / SEGMENT_RECORDS);
+            int position = (int) (middle % SEGMENT_RECORDS) * BinaryFormat.RECORD_SIZE;
+            if (BinaryFormat.getAbsoluteTimestamp(getSegment(segment), position) < timestampMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private AccelerometerEvent getEvent(long index, AccelerometerEvent.Builder builder) {
+        int segment = (int) (index / SEGMENT_RECORDS);
+        int position = (int) (index % SEGMENT_RECORDS) * BinaryFormat.RECORD_SIZE;
+        return BinaryFormat.getEvent(getSegment(segment), position, builder);
+    }
+
+    private ByteBuffer getSegment(int segment) {
+        if (segments[segment] == null) {
+            long first = (long) segment * SEGMENT_RECORDS;
+            long records = Math.min(SEGMENT_RECORDS, size - first);
+            try {
+                segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        BinaryFormat.HEADER_SIZE + first * BinaryFormat.RECORD_SIZE, records * BinaryFormat.RECORD_SIZE);
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+            segments[segment].order(BinaryFormat.BYTE_ORDER);
+        }
+        return segments[segment];
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free first-in-first-out queue for many producers and a single consumer, backed by a circular array.
+ * <p>
+ * Every slot has a sequence number, which says whose turn it is: a producer may fill the slot for position {@code p}
+ * when its sequence is {@code p}, and the consumer may take it when its sequence is {@code p + 1}. Producers claim a
+ * position with a compare-and-set on the tail, and then publish the element by advancing the sequence of its slot.
+ * The consumer is the only one moving the head, so it needs no atomic operations beyond reading the sequences.
+ * <p>
+ * This class is thread-safe for any number of threads calling {@link #offer(Object)}, but only one thread at a time may
+ * call {@link #poll()} and {@link #isEmpty()}.
+ *
+ * @param <E> The type in the queue.
+ * @author Markus Wüstenberg
+ */
+final class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * Create a queue holding up to {@code capacity} elements, rounded up to a power of two.
+     */
+    MpscRingBuffer(int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive.");
+        Preconditions.checkArgument(capacity <= 1 << 30, "Capacity is too large.");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        elements = new AtomicReferenceArray<E>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Add an element at the tail, if there is room.
+     *
+     * @return If the element was added, or false if the queue is full.
+     */
+    boolean offer(E element) {
+        Preconditions.checkNotNull(element);
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // The consumer hasn't taken the element a full lap ago yet
+                return false;
+            }
+            // Another producer claimed the position first, so try again
+        }
+    }
+
+    /**
+     * Remove the element at the head.
+     *
+     * @return The element, or null if the queue is empty.
+     */
+    E poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
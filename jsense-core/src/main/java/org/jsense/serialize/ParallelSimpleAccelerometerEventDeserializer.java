@@ -0,0 +1,284 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import org.jsense.AccelerometerEvent;
+import org.jsense.MutableAccelerometerEvent;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link org.jsense.serialize.Deserializer} that parses a file in the simple delimited representation of
+ * {@link org.jsense.AccelerometerEvent}s, as written by {@link org.jsense.serialize.SimpleAccelerometerEventSerializer},
+ * on the threads of an {@link java.util.concurrent.ExecutorService}.
+ * <p>
+ * The file is split into chunks of about the chunk size, at line boundaries, and each chunk is a task, which reads its
+ * part of the file with positional reads on a shared {@link java.nio.channels.FileChannel}, and parses its lines like
+ * {@link org.jsense.serialize.SimpleAccelerometerEventDeserializer} does.
+ * The events are returned in file order. Only a bounded number of chunks are parsed ahead of the iteration, so memory
+ * use does not depend on the size of the file. By default, chunks are 1 MB, and twice as many chunks as there are
+ * processors are parsed ahead.
+ * <p>
+ * The returned {@link java.lang.Iterable} can be iterated any number of times, each time reading the file again. An
+ * {@link java.io.IOException} during iteration is rethrown wrapped in a {@link java.lang.RuntimeException}.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.serialize.SimpleAccelerometerEventDeserializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class ParallelSimpleAccelerometerEventDeserializer implements Deserializer<AccelerometerEvent> {
+
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+    private static final int SCAN_BUFFER_SIZE = 512;
+
+    private final FileChannel channel;
+    private final long size;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private boolean closed;
+
+    private ParallelSimpleAccelerometerEventDeserializer(Builder builder) throws IOException {
+        channel = new FileInputStream(builder.file).getChannel();
+        size = channel.size();
+        executor = builder.executor;
+        chunkSize = builder.chunkSize;
+        maxChunksInFlight = builder.maxChunksInFlight;
+    }
+
+    @Override
+    public Iterable<AccelerometerEvent> deserialize() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+
+        return new Iterable<AccelerometerEvent>() {
+            @Override
+            public Iterator<AccelerometerEvent> iterator() {
+                return new ChunkIterator();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        closed = true;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Parse the lines of a chunk, which starts at the start of a line, and ends at the end of a line.
+     */
+    private static List<AccelerometerEvent> parseLines(byte[] bytes, int length) {
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        MutableAccelerometerEvent event = new MutableAccelerometerEvent();
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (b == LINE_FEED || b == CARRIAGE_RETURN) {
+                events.add(SimpleAccelerometerEventDeserializer.parse(bytes, lineStart, i, event).toAccelerometerEvent());
+                if (b == CARRIAGE_RETURN && i + 1 < length && bytes[i + 1] == LINE_FEED) {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < length) {
+            events.add(SimpleAccelerometerEventDeserializer.parse(bytes, lineStart, length, event).toAccelerometerEvent());
+        }
+        return events;
+    }
+
+    /**
+     * An {@link java.util.Iterator} that submits the chunks in order, and returns the events of each when parsed.
+     */
+    private final class ChunkIterator extends AbstractIterator<AccelerometerEvent> {
+
+        private final Queue<Future<List<AccelerometerEvent>>> pending = new ArrayDeque<Future<List<AccelerometerEvent>>>();
+        private final ByteBuffer scanBuffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        private Iterator<AccelerometerEvent> events = Collections.<AccelerometerEvent>emptyList().iterator();
+        private long nextChunkStart;
+
+        @Override
+        protected AccelerometerEvent computeNext() {
+            Preconditions.checkState(!closed, Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+            while (!events.hasNext()) {
+                try {
+                    submitChunks();
+                } catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+                Future<List<AccelerometerEvent>> chunk = pending.poll();
+                if (chunk == null) {
+                    return endOfData();
+                }
+                events = getEvents(chunk);
+            }
+            return events.next();
+        }
+
+        /**
+         * Submit chunks until the maximum number are in flight, or the whole file is submitted.
+         */
+        private void submitChunks() throws IOException {
+            while (pending.size() < maxChunksInFlight && nextChunkStart < size) {
+                final long start = nextChunkStart;
+                final long end = lineStartAtOrAfter(Math.min(start + chunkSize, size));
+                nextChunkStart = end;
+                pending.add(executor.submit(new Callable<List<AccelerometerEvent>>() {
+                    @Override
+                    public List<AccelerometerEvent> call() throws IOException {
+                        byte[] bytes = new byte[(int) (end - start)];
+                        readFully(ByteBuffer.wrap(bytes), start);
+                        return parseLines(bytes, bytes.length);
+                    }
+                }));
+            }
+        }
+
+        /**
+         * Find the start of the first line at or after {@code position}, which is after the first line ending at or
+         * after {@code position - 1}, reading the bytes from there.
+         */
+        private long lineStartAtOrAfter(long position) throws IOException {
+            long offset = position - 1;
+            boolean afterCarriageReturn = false;
+            while (offset < size) {
+                scanBuffer.clear();
+                int read = channel.read(scanBuffer, offset);
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    byte b = scanBuffer.get(i);
+                    if (afterCarriageReturn) {
+                        return b == LINE_FEED ? offset + i + 1 : offset + i;
+                    }
+                    if (b == LINE_FEED) {
+                        return offset + i + 1;
+                    }
+                    afterCarriageReturn = b == CARRIAGE_RETURN;
+                }
+                offset += read;
+            }
+            return size;
+        }
+
+        /**
+         * Fill {@code buffer} from {@code position} in the file, which is safe to do from many threads at once.
+         */
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new EOFException("The file ended before the chunk.");
+                }
+            }
+        }
+
+        private Iterator<AccelerometerEvent> getEvents(Future<List<AccelerometerEvent>> chunk) {
+            try {
+                return chunk.get().iterator();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(new InterruptedIOException("Interrupted while waiting for a chunk."));
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * A {@code Builder} for the {@code ParallelSimpleAccelerometerEventDeserializer}. The file and the
+     * {@link java.util.concurrent.ExecutorService} must be set.
+     */
+    public static final class Builder {
+
+        private File file;
+        private ExecutorService executor;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private int maxChunksInFlight = Runtime.getRuntime().availableProcessors() * CHUNKS_IN_FLIGHT_PER_THREAD;
+
+        public Builder setFile(File file) {
+            this.file = Preconditions.checkNotNull(file);
+            return this;
+        }
+
+        /**
+         * Set the {@link java.util.concurrent.ExecutorService} to parse the chunks on. It isn't shut down when the
+         * {@code ParallelSimpleAccelerometerEventDeserializer} is closed.
+         *
+         * @param executor The {@link java.util.concurrent.ExecutorService}.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder setExecutor(ExecutorService executor) {
+            this.executor = Preconditions.checkNotNull(executor);
+            return this;
+        }
+
+        /**
+         * Set the size of the chunks, in bytes. A chunk is extended to the end of the line it ends in.
+         *
+         * @param chunkSize The chunk size, which must be positive and at most 1 GB.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder setChunkSize(int chunkSize) {
+            Preconditions.checkArgument(chunkSize > 0 && chunkSize <= MAX_CHUNK_SIZE, "Chunk size must be positive and at most 1 GB.");
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of chunks submitted and not yet iterated over, which bounds the memory used.
+         *
+         * @param maxChunksInFlight The maximum number of chunks, which must be positive.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder setMaxChunksInFlight(int maxChunksInFlight) {
+            Preconditions.checkArgument(maxChunksInFlight > 0, "Chunks in flight must be positive.");
+            this.maxChunksInFlight = maxChunksInFlight;
+            return this;
+        }
+
+        /**
+         * Build the {@code ParallelSimpleAccelerometerEventDeserializer}, opening the file.
+         *
+         * @return The {@code ParallelSimpleAccelerometerEventDeserializer}.
+         * @throws IOException If the file can't be opened.
+         */
+        public ParallelSimpleAccelerometerEventDeserializer build() throws IOException {
+            Preconditions.checkState(file != null, "The file hasn't been set.");
+            Preconditions.checkState(executor != null, "The ExecutorService hasn't been set.");
+            return new ParallelSimpleAccelerometerEventDeserializer(this);
+        }
+    }
+}
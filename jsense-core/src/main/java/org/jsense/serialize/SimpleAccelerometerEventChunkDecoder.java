@@ -0,0 +1,98 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import org.jsense.AccelerometerEvent;
+import org.jsense.MutableAccelerometerEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A {@link org.jsense.serialize.ChunkDecoder} for the simple delimited representation of
+ * {@link org.jsense.AccelerometerEvent}s, as written by {@link org.jsense.serialize.SimpleAccelerometerEventSerializer}.
+ * <p>
+ * Chunks are appended to a reused byte buffer, and every complete line is parsed in place, like
+ * {@link org.jsense.serialize.SimpleAccelerometerEventDeserializer} does. Lines end with a newline (\n), a carriage
+ * return (\r), or both (\r\n), even when split between chunks. A last line without a line ending is parsed by
+ * {@link #finish()}.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class SimpleAccelerometerEventChunkDecoder implements ChunkDecoder<AccelerometerEvent> {
+
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private final Listener<AccelerometerEvent> listener;
+    private final MutableAccelerometerEvent event = new MutableAccelerometerEvent();
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int limit;
+    private boolean skipLineFeed;
+
+    public SimpleAccelerometerEventChunkDecoder(Listener<AccelerometerEvent> listener) {
+        this.listener = Preconditions.checkNotNull(listener);
+    }
+
+    @Override
+    public void decode(ByteBuffer chunk) throws IOException {
+        if (skipLineFeed && chunk.hasRemaining()) {
+            if (chunk.get(chunk.position()) == LINE_FEED) {
+                chunk.get();
+            }
+            skipLineFeed = false;
+        }
+        int length = chunk.remaining();
+        if (limit + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(limit + length, buffer.length * 2));
+        }
+        int scanned = limit;
+        chunk.get(buffer, limit, length);
+        limit += length;
+
+        int lineStart = 0;
+        for (int i = scanned; i < limit; i++) {
+            byte b = buffer[i];
+            if (b == LINE_FEED || b == CARRIAGE_RETURN) {
+                parseLine(lineStart, i);
+                lineStart = i + 1;
+                if (b == CARRIAGE_RETURN) {
+                    if (lineStart == limit) {
+                        skipLineFeed = true;
+                    } else if (buffer[lineStart] == LINE_FEED) {
+                        lineStart++;
+                        i++;
+                    }
+                }
+            }
+        }
+        System.arraycopy(buffer, lineStart, buffer, 0, limit - lineStart);
+        limit -= lineStart;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (limit > 0) {
+            parseLine(0, limit);
+            limit = 0;
+        }
+        skipLineFeed = false;
+    }
+
+    private void parseLine(int start, int end) throws IOException {
+        AccelerometerEvent parsed;
+        try {
+            parsed = SimpleAccelerometerEventDeserializer.parse(buffer, start, end, event).toAccelerometerEvent();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid line: " + new String(buffer, start, end - start, Charsets.UTF_8), e);
+        }
+        listener.onValue(parsed);
+    }
+}
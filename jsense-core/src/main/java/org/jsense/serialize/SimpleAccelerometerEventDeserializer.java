@@ -1,26 +1,34 @@
 package org.jsense.serialize;
 
-import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Splitter;
-import com.google.common.collect.Lists;
-import org.joda.time.Instant;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.io.ByteStreams;
+import org.joda.time.ReadableInstant;
 import org.jsense.AccelerometerEvent;
+import org.jsense.MutableAccelerometerEvent;
+import org.jsense.ReadableAccelerometerEvent;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A simple {@link org.jsense.serialize.Deserializer} that parses a simple delimited representation of {@link org.jsense.AccelerometerEvent}s.
  * <p>
  * Input charset is UTF-8.
  * <p>
- * Input is read with a {@link java.io.BufferedReader} for buffering.
+ * Input is read into a reused byte buffer, and lines are split and parsed in place, without intermediate
+ * {@link java.lang.String}s. Lines end with a newline (\n), a carriage return (\r), or both (\r\n).
  * <p>
- * Currently loads all events into memory.
+ * Events are parsed lazily, one line at a time, as the returned {@link java.lang.Iterable} is iterated, so memory use
+ * does not depend on the size of the input. The {@link java.lang.Iterable} can only be iterated once, and an
+ * {@link java.io.IOException} during iteration is rethrown wrapped in a {@link java.lang.RuntimeException}.
+ * <p>
+ * Consumers that don't keep the events can read them with {@link #cursor()} instead, which doesn't allocate per event.
+ * <p>
+ * A time range can be read with the help of a {@link org.jsense.serialize.TimestampIndex}, see
+ * {@link #deserialize(TimestampIndex, ReadableInstant, ReadableInstant)}.
  * <p>
  * This class is not thread-safe.
  *
@@ -29,17 +37,18 @@ import java.util.List;
  */
 public final class SimpleAccelerometerEventDeserializer implements Deserializer<AccelerometerEvent> {
 
-    private static final String STANDARD_DELIMITER = ",";
+    private static final byte STANDARD_DELIMITER = ',';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
 
-    private static final int ABSOLUTE_TIMESTAMP_INDEX = 0;
-    private static final int HAS_RELATIVE_TIMESTAMP_INDEX = 1;
-    private static final int RELATIVE_TIMESTAMP_INDEX = 2;
-    private static final int X_INDEX = 3;
-    private static final int Y_INDEX = 4;
-    private static final int Z_INDEX = 5;
+    private static final int BUFFER_SIZE = 8192;
 
     private final InputStream source;
-    private BufferedReader reader;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position, limit;
+    private int lineStart, lineEnd;
+    private boolean skipLineFeed;
+    private boolean started;
     private boolean closed;
 
     public SimpleAccelerometerEventDeserializer(InputStream source) {
@@ -52,34 +61,227 @@ public final class SimpleAccelerometerEventDeserializer implements Deserializer<
             throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
         }
 
-        if (reader == null) {
-            reader = new BufferedReader(new InputStreamReader(source, Charsets.UTF_8));
+        started = true;
+
+        return new SingleUseIterable<AccelerometerEvent>(new EventIterator());
+    }
+
+    /**
+     * Deserializes the events into a single reused {@link org.jsense.MutableAccelerometerEvent}, which is filled again
+     * for every line, so reading allocates nothing per event once the buffer has grown to the longest line.
+     *
+     * @return A {@link org.jsense.serialize.Cursor} over the events.
+     * @throws IOException If the {@code Deserializer} is closed.
+     */
+    public Cursor<ReadableAccelerometerEvent> cursor() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
         }
 
-        String line;
-        List<AccelerometerEvent> events = Lists.newArrayList();
-        while ((line = reader.readLine()) != null) {
-            List<String> parts = Splitter.on(STANDARD_DELIMITER).splitToList(line);
-            AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
-            builder
-                    .setAbsoluteTimestamp(new Instant(Long.parseLong(parts.get(ABSOLUTE_TIMESTAMP_INDEX))))
-                    .setX(Float.parseFloat(parts.get(X_INDEX)))
-                    .setY(Float.parseFloat(parts.get(Y_INDEX)))
-                    .setZ(Float.parseFloat(parts.get(Z_INDEX)));
-            if (Boolean.parseBoolean(parts.get(HAS_RELATIVE_TIMESTAMP_INDEX))) {
-                builder.setRelativeTimestamp(Long.parseLong(parts.get(RELATIVE_TIMESTAMP_INDEX)));
-            }
-            events.add(builder.build());
+        started = true;
+
+        return new EventCursor();
+    }
+
+    /**
+     * Deserializes the events with an absolute timestamp in {@code [from, to)}, using an index to skip to shortly
+     * before {@code from}. The source must not have been read from yet, and skipping in it should be cheap, as it is
+     * for a {@link java.io.FileInputStream}. The cost is then proportional to the size of the range, not to the size of
+     * the source.
+     *
+     * @param index The index written with the events.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return An {@link java.lang.Iterable} over the events in the range.
+     * @throws IOException If there is a problem deserializing. In particular, an {@link java.io.IOException} is thrown if the {@code Deserializer} is closed.
+     * @see SimpleAccelerometerEventSerializer#SimpleAccelerometerEventSerializer(java.io.OutputStream, java.io.OutputStream)
+     */
+    public Iterable<AccelerometerEvent> deserialize(TimestampIndex index, ReadableInstant from, ReadableInstant to) throws IOException {
+        Preconditions.checkNotNull(index);
+        Preconditions.checkNotNull(from);
+        Preconditions.checkNotNull(to);
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
         }
+        Preconditions.checkState(!started, "The source has already been read from.");
 
-        return events;
+        ByteStreams.skipFully(source, index.getOffset(from.getMillis()));
+        started = true;
+
+        return new SingleUseIterable<AccelerometerEvent>(new TimeRangeIterator(new EventIterator(), from.getMillis(), to.getMillis()));
     }
 
     @Override
     public void close() throws IOException {
-        if (reader != null) {
-            reader.close();
-        }
+        source.close();
         closed = true;
     }
+
+    /**
+     * Parse the line in {@code buffer} from {@code start}, inclusive, to {@code end}, exclusive, into a reused
+     * {@link org.jsense.MutableAccelerometerEvent}.
+     *
+     * @return The {@code event}, for method chaining.
+     */
+    static MutableAccelerometerEvent parse(byte[] buffer, int start, int end, MutableAccelerometerEvent event) {
+        int fieldEnd = fieldEnd(buffer, start, end);
+        long absoluteTimestamp = AsciiFormat.parseLong(buffer, start, fieldEnd);
+        int fieldStart = fieldEnd + 1;
+        fieldEnd = fieldEnd(buffer, fieldStart, end);
+        boolean hasRelativeTimestamp = AsciiFormat.parseBoolean(buffer, fieldStart, fieldEnd);
+        int relativeTimestampStart = fieldEnd + 1;
+        int relativeTimestampEnd = fieldEnd(buffer, relativeTimestampStart, end);
+        fieldStart = relativeTimestampEnd + 1;
+        fieldEnd = fieldEnd(buffer, fieldStart, end);
+        float x = AsciiFormat.parseFloat(buffer, fieldStart, fieldEnd);
+        fieldStart = fieldEnd + 1;
+        fieldEnd = fieldEnd(buffer, fieldStart, end);
+        float y = AsciiFormat.parseFloat(buffer, fieldStart, fieldEnd);
+        fieldStart = fieldEnd + 1;
+        fieldEnd = fieldEnd(buffer, fieldStart, end);
+        float z = AsciiFormat.parseFloat(buffer, fieldStart, fieldEnd);
+
+        event.setAbsoluteTimestampMillis(absoluteTimestamp)
+                .setX(x)
+                .setY(y)
+                .setZ(z);
+        if (hasRelativeTimestamp) {
+            event.setRelativeTimestamp(AsciiFormat.parseLong(buffer, relativeTimestampStart, relativeTimestampEnd));
+        } else {
+            event.clearRelativeTimestamp();
+        }
+        return event;
+    }
+
+    /**
+     * Get the end of the field starting at {@code start}, which is the next delimiter or the end of the line.
+     */
+    private static int fieldEnd(byte[] buffer, int start, int end) {
+        if (start > end) {
+            throw new IllegalArgumentException("The line has too few fields.");
+        }
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == STANDARD_DELIMITER) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Find the next line, and set {@code lineStart} and {@code lineEnd} to it.
+     *
+     * @return If there is a next line.
+     */
+    private boolean nextLine() throws IOException {
+        if (skipLineFeed) {
+            if (position == limit && !fill()) {
+                return false;
+            }
+            if (buffer[position] == LINE_FEED) {
+                position++;
+            }
+            skipLineFeed = false;
+        }
+
+        int scanned = 0;
+        while (true) {
+            for (int i = position + scanned; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == LINE_FEED || b == CARRIAGE_RETURN) {
+                    lineStart = position;
+                    lineEnd = i;
+                    position = i + 1;
+                    if (b == CARRIAGE_RETURN) {
+                        if (position < limit) {
+                            if (buffer[position] == LINE_FEED) {
+                                position++;
+                            }
+                        } else {
+                            skipLineFeed = true;
+                        }
+                    }
+                    return true;
+                }
+            }
+            scanned = limit - position;
+            if (!fill()) {
+                if (position == limit) {
+                    return false;
+                }
+                lineStart = position;
+                lineEnd = limit;
+                position = limit;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Move the unread bytes to the start of the buffer, growing it if a line doesn't fit, and read more.
+     *
+     * @return If any bytes were read, or false at the end of the input.
+     */
+    private boolean fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        position = 0;
+        limit = remaining;
+        int read = source.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * An {@link java.util.Iterator} that reads and parses one line per event.
+     */
+    private final class EventIterator extends AbstractIterator<AccelerometerEvent> {
+
+        private final MutableAccelerometerEvent event = new MutableAccelerometerEvent();
+
+        @Override
+        protected AccelerometerEvent computeNext() {
+            try {
+                if (!nextLine()) {
+                    return endOfData();
+                }
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+            return parse(buffer, lineStart, lineEnd, event).toAccelerometerEvent();
+        }
+    }
+
+    /**
+     * A {@link org.jsense.serialize.Cursor} that reads and parses one line per event into the same event.
+     */
+    private final class EventCursor implements Cursor<ReadableAccelerometerEvent> {
+
+        private final MutableAccelerometerEvent event = new MutableAccelerometerEvent();
+        private boolean valid;
+
+        @Override
+        public boolean next() throws IOException {
+            if (closed) {
+                throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+            }
+            valid = nextLine();
+            if (valid) {
+                parse(buffer, lineStart, lineEnd, event);
+            }
+            return valid;
+        }
+
+        @Override
+        public ReadableAccelerometerEvent get() {
+            Preconditions.checkState(valid, "There is no current event.");
+            return event;
+        }
+    }
 }
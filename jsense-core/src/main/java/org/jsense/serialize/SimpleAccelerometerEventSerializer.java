@@ -1,12 +1,10 @@
 package org.jsense.serialize;
 
 import com.google.common.annotations.Beta;
-import com.google.common.base.Charsets;
-import com.google.common.base.Preconditions;
-import com.google.common.collect.Iterables;
 import org.jsense.AccelerometerEvent;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * A simple {@link org.jsense.serialize.Serializer} that creates a simple delimited representation of {@link org.jsense.AccelerometerEvent}s.
@@ -14,9 +12,15 @@ import java.io.*;
  * Output charset is UTF-8. A newline character (\n) is always used between multiple events, so the line separator as defined by the system property <tt>line.separator</tt> is NOT
  * used.
  * <p>
- * Output is written with a {@link java.io.BufferedWriter} for buffering.
+ * Events are formatted straight into a reused byte buffer, without intermediate {@link java.lang.String}s or a charset
+ * encoder, and the buffer is written to the sink when full or flushed. If an event has no relative timestamp, 0 is
+ * written in its place.
  * <p>
- * This class is thread-safe.
+ * Optionally, a {@link org.jsense.serialize.TimestampIndex} is written to a separate sidecar stream, for reading time
+ * ranges with {@link SimpleAccelerometerEventDeserializer#deserialize(TimestampIndex, org.joda.time.ReadableInstant, org.joda.time.ReadableInstant)}.
+ * <p>
+ * This class is thread-safe. When only one thread writes, {@link #newSingleWriterSerializer(java.io.OutputStream)}
+ * gives a {@link org.jsense.serialize.Serializer} with the same output that skips the locking.
  *
  * @see org.jsense.serialize.SimpleAccelerometerEventDeserializer
  * @author Markus Wüstenberg
@@ -24,78 +28,67 @@ import java.io.*;
 @Beta
 public final class SimpleAccelerometerEventSerializer implements Serializer<AccelerometerEvent> {
 
-    private static final String STANDARD_DELIMITER = ",";
-    private static final String LINE_SEPARATOR = "\n";
-
-    private final OutputStream sink;
-    private Writer writer;
-    private boolean closed;
+    private final SimpleAccelerometerEventWriter writer;
 
     public SimpleAccelerometerEventSerializer(OutputStream sink) {
-        this.sink = Preconditions.checkNotNull(sink);
+        writer = new SimpleAccelerometerEventWriter(sink);
     }
 
-    @Override
-    public synchronized Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
-        Preconditions.checkNotNull(event);
+    /**
+     * Create a {@code SimpleAccelerometerEventSerializer} that also writes a {@link org.jsense.serialize.TimestampIndex}
+     * of the events. The events must be serialized in order of absolute timestamp.
+     *
+     * @param sink The stream to write the events to.
+     * @param indexSink The stream to write the index to.
+     */
+    public SimpleAccelerometerEventSerializer(OutputStream sink, OutputStream indexSink) {
+        writer = new SimpleAccelerometerEventWriter(sink, indexSink);
+    }
 
-        checkClosed();
-        checkAndOpenWriter();
+    /**
+     * Create a {@link org.jsense.serialize.Serializer} with the same output as a
+     * {@code SimpleAccelerometerEventSerializer}, which is not thread-safe. It must only be used by one thread at a
+     * time, such as the single writer at the end of a pipeline, and saves the cost of locking on every call.
+     *
+     * @param sink The stream to write the events to.
+     * @return The {@link org.jsense.serialize.Serializer}.
+     */
+    public static Serializer<AccelerometerEvent> newSingleWriterSerializer(OutputStream sink) {
+        return new SimpleAccelerometerEventWriter(sink);
+    }
 
-        writeEvent(event);
+    /**
+     * Create a {@link org.jsense.serialize.Serializer} like {@link #newSingleWriterSerializer(java.io.OutputStream)},
+     * which also writes a {@link org.jsense.serialize.TimestampIndex} of the events. The events must be serialized in
+     * order of absolute timestamp.
+     *
+     * @param sink The stream to write the events to.
+     * @param indexSink The stream to write the index to.
+     * @return The {@link org.jsense.serialize.Serializer}.
+     */
+    public static Serializer<AccelerometerEvent> newSingleWriterSerializer(OutputStream sink, OutputStream indexSink) {
+        return new SimpleAccelerometerEventWriter(sink, indexSink);
+    }
 
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
+        writer.serialize(event);
         return this;
     }
 
     @Override
     public synchronized Serializer<AccelerometerEvent> serialize(Iterable<AccelerometerEvent> events) throws IOException {
-        Preconditions.checkNotNull(events);
-        Preconditions.checkState(!Iterables.isEmpty(events));
-
-        checkClosed();
-        checkAndOpenWriter();
-
-        for (AccelerometerEvent event : events) {
-            writeEvent(event);
-        }
-
+        writer.serialize(events);
         return this;
     }
 
     @Override
     public synchronized void flush() throws IOException {
-        checkClosed();
-        checkAndOpenWriter();
-
         writer.flush();
     }
 
     @Override
     public synchronized void close() throws IOException {
-        if (writer != null) {
-            writer.close();
-        }
-        closed = true;
-    }
-
-    private void checkAndOpenWriter() throws IOException {
-        if (writer == null) {
-            writer = new BufferedWriter(new OutputStreamWriter(sink, Charsets.UTF_8));
-        }
-    }
-
-    private void writeEvent(AccelerometerEvent event) throws IOException {
-        writer.write(event.getAbsoluteTimestamp().getMillis() + STANDARD_DELIMITER);
-        writer.write(event.hasRelativeTimestamp() + STANDARD_DELIMITER);
-        writer.write(event.getRelativeTimestamp() + STANDARD_DELIMITER);
-        writer.write(event.getX() + STANDARD_DELIMITER);
-        writer.write(event.getY() + STANDARD_DELIMITER);
-        writer.write(event.getZ() + LINE_SEPARATOR);
-    }
-
-    private void checkClosed() throws IOException {
-        if (closed) {
-            throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
-        }
+        writer.close();
     }
 }
@@ -0,0 +1,138 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Closer;
+import org.jsense.AccelerometerEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The {@link org.jsense.serialize.Serializer} behind {@link org.jsense.serialize.SimpleAccelerometerEventSerializer},
+ * see there for the format.
+ * <p>
+ * Events are formatted straight into a reused byte buffer, without intermediate {@link java.lang.String}s or a charset
+ * encoder, and the buffer is written to the sink when full or flushed.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+final class SimpleAccelerometerEventWriter implements Serializer<AccelerometerEvent> {
+
+    private static final byte STANDARD_DELIMITER = ',';
+    private static final byte LINE_SEPARATOR = '\n';
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_LINE_LENGTH = 2 * AsciiFormat.MAX_LONG_LENGTH + AsciiFormat.MAX_BOOLEAN_LENGTH
+            + 3 * AsciiFormat.MAX_FLOAT_LENGTH + 6;
+
+    private final OutputStream sink;
+    private final TimestampIndexWriter indexWriter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private long offset;
+    private boolean closed;
+
+    SimpleAccelerometerEventWriter(OutputStream sink) {
+        this.sink = Preconditions.checkNotNull(sink);
+        this.indexWriter = null;
+    }
+
+    SimpleAccelerometerEventWriter(OutputStream sink, OutputStream indexSink) {
+        this.sink = Preconditions.checkNotNull(sink);
+        this.indexWriter = new TimestampIndexWriter(indexSink, TimestampIndex.DEFAULT_INTERVAL);
+    }
+
+    @Override
+    public Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
+        Preconditions.checkNotNull(event);
+
+        checkClosed();
+
+        writeEvent(event);
+
+        return this;
+    }
+
+    @Override
+    public Serializer<AccelerometerEvent> serialize(Iterable<AccelerometerEvent> events) throws IOException {
+        Preconditions.checkNotNull(events);
+        Preconditions.checkState(!Iterables.isEmpty(events));
+
+        checkClosed();
+
+        for (AccelerometerEvent event : events) {
+            writeEvent(event);
+        }
+
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkClosed();
+
+        writeBuffer();
+        sink.flush();
+        if (indexWriter != null) {
+            indexWriter.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The sink and the index are closed even if writing the rest or closing the other fails
+        Closer closer = Closer.create();
+        if (indexWriter != null) {
+            closer.register(indexWriter);
+        }
+        closer.register(sink);
+        try {
+            if (!closed) {
+                writeBuffer();
+            }
+        } catch (Throwable e) {
+            throw closer.rethrow(e);
+        } finally {
+            closed = true;
+            closer.close();
+        }
+    }
+
+    private void writeEvent(AccelerometerEvent event) throws IOException {
+        if (buffer.length - position < MAX_LINE_LENGTH) {
+            writeBuffer();
+        }
+        long absoluteTimestamp = event.getAbsoluteTimestampMillis();
+        if (indexWriter != null) {
+            indexWriter.add(absoluteTimestamp, offset + position);
+        }
+
+        position = AsciiFormat.putLong(buffer, position, absoluteTimestamp);
+        buffer[position++] = STANDARD_DELIMITER;
+        position = AsciiFormat.putBoolean(buffer, position, event.hasRelativeTimestamp());
+        buffer[position++] = STANDARD_DELIMITER;
+        position = AsciiFormat.putLong(buffer, position, event.hasRelativeTimestamp() ? event.getRelativeTimestamp() : 0);
+        buffer[position++] = STANDARD_DELIMITER;
+        position = AsciiFormat.putFloat(buffer, position, event.getX());
+        buffer[position++] = STANDARD_DELIMITER;
+        position = AsciiFormat.putFloat(buffer, position, event.getY());
+        buffer[position++] = STANDARD_DELIMITER;
+        position = AsciiFormat.putFloat(buffer, position, event.getZ());
+        buffer[position++] = LINE_SEPARATOR;
+    }
+
+    private void writeBuffer() throws IOException {
+        sink.write(buffer, 0, position);
+        offset += position;
+        position = 0;
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ForwardingIterator;
+
+import java.util.Iterator;
+
+/**
+ * An {@link java.lang.Iterable} wrapping a single {@link java.util.Iterator}, for lazily deserialized data that can only
+ * be read once.
+ * <p>
+ * {@link #iterator()} returns the same {@link java.util.Iterator} until data has been read from it, so checks like
+ * {@link com.google.common.collect.Iterables#isEmpty(Iterable)}, which only call {@link java.util.Iterator#hasNext()},
+ * can come before the iteration. Calling {@link #iterator()} after {@link java.util.Iterator#next()} has been called
+ * throws an {@link java.lang.IllegalStateException}.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <T> The type of data iterated over.
+ * @author Markus Wüstenberg
+ */
+final class SingleUseIterable<T> implements Iterable<T> {
+
+    private final Iterator<T> iterator;
+    private boolean consumed;
+
+    SingleUseIterable(final Iterator<T> iterator) {
+        Preconditions.checkNotNull(iterator);
+        this.iterator = new ForwardingIterator<T>() {
+            @Override
+            protected Iterator<T> delegate() {
+                return iterator;
+            }
+
+            @Override
+            public T next() {
+                consumed = true;
+                return super.next();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Preconditions.checkState(!consumed, "The data can only be iterated once.");
+        return iterator;
+    }
+}
@@ -0,0 +1,40 @@
+package org.jsense.serialize;
+
+import com.google.common.collect.AbstractIterator;
+import org.jsense.AccelerometerEvent;
+
+import java.util.Iterator;
+
+/**
+ * An {@link java.util.Iterator} over the events of another {@link java.util.Iterator} with an absolute timestamp in
+ * {@code [from, to)}, assuming the events are ordered by absolute timestamp. Iteration stops at the first event at or
+ * after {@code to}.
+ *
+ * @author Markus Wüstenberg
+ */
+final class TimeRangeIterator extends AbstractIterator<AccelerometerEvent> {
+
+    private final Iterator<AccelerometerEvent> events;
+    private final long from, to;
+
+    TimeRangeIterator(Iterator<AccelerometerEvent> events, long from, long to) {
+        this.events = events;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected AccelerometerEvent computeNext() {
+        while (events.hasNext()) {
+            AccelerometerEvent event = events.next();
+            long timestamp = event.getAbsoluteTimestampMillis();
+            if (timestamp >= to) {
+                break;
+            }
+            if (timestamp >= from) {
+                return event;
+            }
+        }
+        return endOfData();
+    }
+}
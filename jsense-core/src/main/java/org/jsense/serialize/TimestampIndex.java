@@ -0,0 +1,118 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A {@code TimestampIndex} is a sparse index mapping absolute timestamps of events to byte offsets in a serialized
+ * stream, for reading a time range without deserializing everything before it.
+ * <p>
+ * An index is written as a sidecar stream next to the data by serializers that support it, for example
+ * {@link org.jsense.serialize.SimpleAccelerometerEventSerializer}, with one entry for every
+ * {@value #DEFAULT_INTERVAL}th event. The matching deserializers use it for range queries, which then read at most
+ * that many events before the start of the range. The events must be ordered by absolute timestamp for the index to
+ * work.
+ * <p>
+ * The sidecar format is a sequence of entries, each a big-endian {@code long} timestamp in milliseconds followed by a
+ * big-endian {@code long} byte offset.
+ * <p>
+ * This class is thread-safe and immutable.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class TimestampIndex {
+
+    /**
+     * The default number of events between index entries.
+     */
+    public static final int DEFAULT_INTERVAL = 1024;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long[] timestamps;
+    private final long[] offsets;
+
+    private TimestampIndex(long[] timestamps, long[] offsets) {
+        this.timestamps = timestamps;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Read an index from its sidecar stream. The stream is read to the end, but not closed.
+     *
+     * @param source The sidecar stream.
+     * @return The index.
+     * @throws IOException If there is a problem reading, or the stream ends in the middle of an entry.
+     */
+    public static TimestampIndex read(InputStream source) throws IOException {
+        Preconditions.checkNotNull(source);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source));
+
+        long[] timestamps = new long[INITIAL_CAPACITY];
+        long[] offsets = new long[INITIAL_CAPACITY];
+        int size = 0;
+        byte[] entry = new byte[2 * Longs.BYTES];
+        while (true) {
+            int first = in.read();
+            if (first < 0) {
+                break;
+            }
+            entry[0] = (byte) first;
+            try {
+                in.readFully(entry, 1, entry.length - 1);
+            } catch (EOFException e) {
+                throw new EOFException("The index ends in the middle of an entry.");
+            }
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            timestamps[size] = Longs.fromBytes(entry[0], entry[1], entry[2], entry[3], entry[4], entry[5], entry[6], entry[7]);
+            offsets[size] = Longs.fromBytes(entry[8], entry[9], entry[10], entry[11], entry[12], entry[13], entry[14], entry[15]);
+            size++;
+        }
+
+        return new TimestampIndex(Arrays.copyOf(timestamps, size), Arrays.copyOf(offsets, size));
+    }
+
+    /**
+     * Get the number of entries in the index.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return timestamps.length;
+    }
+
+    /**
+     * Get the byte offset to start reading from, to find all events with an absolute timestamp at or after
+     * {@code timestampMillis}. This is the offset of the last indexed event that is before {@code timestampMillis}, or
+     * 0 if there is none.
+     *
+     * @param timestampMillis The absolute timestamp in milliseconds.
+     * @return The byte offset.
+     */
+    public long getOffset(long timestampMillis) {
+        int low = 0;
+        int high = timestamps.length;
+        // Find the first entry at or after the timestamp
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] < timestampMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low == 0 ? 0 : offsets[low - 1];
+    }
+}
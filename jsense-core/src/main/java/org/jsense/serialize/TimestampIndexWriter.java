@@ -0,0 +1,53 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a {@link org.jsense.serialize.TimestampIndex} sidecar stream, for serializers to call with every event they
+ * write.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+final class TimestampIndexWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final int interval;
+    private long events;
+
+    TimestampIndexWriter(OutputStream sink, int interval) {
+        Preconditions.checkNotNull(sink);
+        Preconditions.checkArgument(interval > 0, "Interval must be positive.");
+        this.out = new DataOutputStream(new BufferedOutputStream(sink));
+        this.interval = interval;
+    }
+
+    /**
+     * Register an event about to be written.
+     *
+     * @param timestampMillis The absolute timestamp of the event.
+     * @param offset The byte offset where the event starts.
+     */
+    void add(long timestampMillis, long offset) throws IOException {
+        if (events++ % interval == 0) {
+            out.writeLong(timestampMillis);
+            out.writeLong(offset);
+        }
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
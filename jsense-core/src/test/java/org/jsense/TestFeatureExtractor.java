@@ -0,0 +1,150 @@
+package org.jsense;
+
+import com.google.common.collect.Lists;
+import org.jsense.compute.AccelerometerFeatureExtractor;
+import org.jsense.compute.AccelerometerFeatureExtractor.Feature;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for the {@link org.jsense.compute.AccelerometerFeatureExtractor}, comparing with features computed over each
+ * whole window.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestFeatureExtractor {
+
+    private static final int SEED = 7251;
+    private static final int SAMPLES = 1000;
+    private static final int WINDOW_SIZE = 16;
+    private static final int WINDOW_STEP = 4;
+    private static final double DELTA = 0.000001;
+
+    @Test
+    public void overlappingWindows() {
+        checkFeatures(WINDOW_SIZE, WINDOW_STEP);
+    }
+
+    @Test
+    public void backToBackWindows() {
+        checkFeatures(WINDOW_SIZE, WINDOW_SIZE);
+    }
+
+    @Test
+    public void stepLargerThanSize() {
+        checkFeatures(WINDOW_STEP, WINDOW_SIZE);
+    }
+
+    @Test
+    public void singleSampleWindows() {
+        checkFeatures(1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMustBePositive() {
+        AccelerometerFeatureExtractor.newBuilder()
+                .setSize(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void illegalStateIfNoData() {
+        AccelerometerFeatureExtractor.newBuilder()
+                .setSize(WINDOW_SIZE)
+                .build();
+    }
+
+    private void checkFeatures(int size, int step) {
+        ModelFactory.setSeed(SEED);
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        for (int i = 0; i < SAMPLES; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+
+        Iterator<double[]> vectors = AccelerometerFeatureExtractor.newBuilder()
+                .setSize(size)
+                .setStep(step)
+                .add(events)
+                .build()
+                .iterator();
+
+        int start = 0;
+        while (true) {
+            List<AccelerometerEvent> window = events.subList(start, Math.min(start + size, SAMPLES));
+            double[] vector = vectors.next();
+            assertEquals(Feature.values().length, vector.length);
+
+            checkFeatures(vector, Feature.MEAN_X, x(window));
+            checkFeatures(vector, Feature.MEAN_Y, y(window));
+            checkFeatures(vector, Feature.MEAN_Z, z(window));
+            checkFeatures(vector, Feature.MEAN_MAGNITUDE, magnitude(window));
+
+            if (start + size >= SAMPLES || start + step >= SAMPLES) {
+                break;
+            }
+            start += step;
+        }
+        assertFalse(vectors.hasNext());
+    }
+
+    private void checkFeatures(double[] vector, Feature mean, double[] values) {
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        double expectedMean = sum / values.length;
+        double squaredDistances = 0;
+        for (double value : values) {
+            squaredDistances += (value - expectedMean) * (value - expectedMean);
+        }
+
+        assertEquals(expectedMean, vector[mean.ordinal()], DELTA);
+        assertEquals(squaredDistances / values.length, vector[mean.ordinal() + 1], DELTA);
+        assertEquals(min, vector[mean.ordinal() + 2], 0);
+        assertEquals(max, vector[mean.ordinal() + 3], 0);
+    }
+
+    private static double[] x(List<AccelerometerEvent> events) {
+        double[] values = new double[events.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = events.get(i).getX();
+        }
+        return values;
+    }
+
+    private static double[] y(List<AccelerometerEvent> events) {
+        double[] values = new double[events.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = events.get(i).getY();
+        }
+        return values;
+    }
+
+    private static double[] z(List<AccelerometerEvent> events) {
+        double[] values = new double[events.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = events.get(i).getZ();
+        }
+        return values;
+    }
+
+    private static double[] magnitude(List<AccelerometerEvent> events) {
+        double[] values = new double[events.size()];
+        for (int i = 0; i < values.length; i++) {
+            AccelerometerEvent event = events.get(i);
+            double x = event.getX();
+            double y = event.getY();
+            double z = event.getZ();
+            values[i] = Math.sqrt(x * x + y * y + z * z);
+        }
+        return values;
+    }
+}
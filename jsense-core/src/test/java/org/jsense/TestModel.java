@@ -1,11 +1,18 @@
 package org.jsense;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.joda.time.Duration;
 import org.joda.time.Instant;
 import org.junit.Test;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -24,6 +31,9 @@ public class TestModel {
     private static final Instant NOW = Instant.now();
     private static final Duration UPTIME = new Duration(1234L);
 
+    private static final int SEED = 54321;
+    private static final int BATCH_SIZE = 150;
+
     @Test
     public void accelerometerEvent() {
         // Basics
@@ -56,6 +66,20 @@ public class TestModel {
         assertEquals(UPTIME.getMillis(), accelerometerEvent.getRelativeTimestamp());
     }
 
+    @Test
+    public void accelerometerEventWithAbsoluteTimestampMillis() {
+        AccelerometerEvent accelerometerEvent = AccelerometerEvent.newBuilder()
+                .setAbsoluteTimestampMillis(NOW.getMillis())
+                .setX(X)
+                .setY(Y)
+                .setZ(Z)
+                .build();
+
+        assertEquals(NOW.getMillis(), accelerometerEvent.getAbsoluteTimestampMillis());
+        assertEquals(NOW, accelerometerEvent.getAbsoluteTimestamp());
+        assertEquals(AccelerometerEvent.newBuilder().setAbsoluteTimestamp(NOW).setX(X).setY(Y).setZ(Z).build(), accelerometerEvent);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void accelerometerEventNoTimestamp() {
         AccelerometerEvent.newBuilder()
@@ -120,4 +144,108 @@ public class TestModel {
                 .reset()
                 .build();
     }
+
+    @Test
+    public void mutableAccelerometerEvent() {
+        AccelerometerEvent event = AccelerometerEvent.newBuilder()
+                .setAbsoluteTimestamp(NOW)
+                .setRelativeTimestamp(UPTIME.getMillis())
+                .setX(X)
+                .setY(Y)
+                .setZ(Z)
+                .build();
+        MutableAccelerometerEvent mutableEvent = new MutableAccelerometerEvent().set(event);
+
+        assertEquals(event, mutableEvent.toAccelerometerEvent());
+        assertEquals(NOW.getMillis(), mutableEvent.getAbsoluteTimestampMillis());
+        assertEquals(UPTIME.getMillis(), mutableEvent.getRelativeTimestamp());
+        assertSame(event, event.toAccelerometerEvent());
+
+        mutableEvent.clearRelativeTimestamp().setX(Z);
+        assertFalse(mutableEvent.hasRelativeTimestamp());
+        assertEquals(AccelerometerEvent.newBuilder().setAbsoluteTimestamp(NOW).setX(Z).setY(Y).setZ(Z).build(), mutableEvent.toAccelerometerEvent());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getterOnNoRelativeTimestampIsIllegalForMutableEvent() {
+        new MutableAccelerometerEvent().getRelativeTimestamp();
+    }
+
+    @Test
+    public void accelerometerEventBatch() {
+        AccelerometerEventBatch batch = AccelerometerEventBatch.newBuilder()
+                .add(NOW.getMillis(), X, Y, Z)
+                .add(NOW.getMillis() + 1, UPTIME.getMillis(), Z, Y, X)
+                .build();
+
+        assertEquals(2, batch.size());
+        assertEquals(NOW.getMillis(), batch.getAbsoluteTimestampMillis(0));
+        assertFalse(batch.hasRelativeTimestamp(0));
+        assertEquals(X, batch.getX(0), DELTA);
+        assertEquals(Y, batch.getY(0), DELTA);
+        assertEquals(Z, batch.getZ(0), DELTA);
+        assertEquals(NOW.getMillis() + 1, batch.getAbsoluteTimestampMillis(1));
+        assertTrue(batch.hasRelativeTimestamp(1));
+        assertEquals(UPTIME.getMillis(), batch.getRelativeTimestamp(1));
+        assertEquals(Z, batch.getX(1), DELTA);
+    }
+
+    @Test
+    public void accelerometerEventBatchRoundTrip() {
+        ModelFactory.setSeed(SEED);
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+
+        AccelerometerEventBatch batch = AccelerometerEventBatch.copyOf(events);
+
+        assertEquals(BATCH_SIZE, batch.size());
+        assertEquals(events, ImmutableList.copyOf(batch));
+        assertEquals(events.get(BATCH_SIZE - 1), batch.get(BATCH_SIZE - 1));
+        assertEquals(batch, AccelerometerEventBatch.copyOf(batch));
+        assertEquals(batch.hashCode(), AccelerometerEventBatch.copyOf(batch).hashCode());
+    }
+
+    @Test
+    public void accelerometerEventBatchSlice() {
+        ModelFactory.setSeed(SEED);
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+
+        AccelerometerEventBatch slice = AccelerometerEventBatch.copyOf(events).slice(BATCH_SIZE / 2, BATCH_SIZE);
+
+        assertEquals(events.subList(BATCH_SIZE / 2, BATCH_SIZE), ImmutableList.copyOf(slice));
+        assertEquals(AccelerometerEventBatch.copyOf(events.subList(BATCH_SIZE / 2, BATCH_SIZE)), slice);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void accelerometerEventBatchIndexOutOfBounds() {
+        AccelerometerEventBatch.newBuilder()
+                .add(NOW.getMillis(), X, Y, Z)
+                .build()
+                .slice(0, 0)
+                .getX(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void accelerometerEventBatchGetterOnNoRelativeTimestampIsIllegal() {
+        AccelerometerEventBatch.newBuilder()
+                .add(NOW.getMillis(), X, Y, Z)
+                .build()
+                .getRelativeTimestamp(0);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void accelerometerEventBatchNoMoreEvents() {
+        Iterator<AccelerometerEvent> iterator = AccelerometerEventBatch.newBuilder()
+                .add(NOW.getMillis(), X, Y, Z)
+                .build()
+                .iterator();
+
+        iterator.next();
+        iterator.next();
+    }
 }
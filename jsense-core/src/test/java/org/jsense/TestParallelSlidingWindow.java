@@ -0,0 +1,136 @@
+package org.jsense;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.jsense.compute.ParallelSampleBasedSlidingWindow;
+import org.jsense.compute.SampleBasedSlidingWindow;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link org.jsense.compute.ParallelSampleBasedSlidingWindow}, comparing with the sequential
+ * {@link org.jsense.compute.SampleBasedSlidingWindow}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestParallelSlidingWindow {
+
+    private static final int THREADS = 4;
+    private static final int SAMPLES = 1001;
+    private static final int WINDOW_SIZE = 10;
+    private static final int WINDOW_STEP = 3;
+    private static final int CHUNK_SIZE = 7;
+
+    private static final Function<List<Integer>, List<Integer>> COPY = new Function<List<Integer>, List<Integer>>() {
+        @Override
+        public List<Integer> apply(List<Integer> window) {
+            return ImmutableList.copyOf(window);
+        }
+    };
+
+    private ExecutorService executor;
+    private List<Integer> data;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        data = Lists.newArrayList();
+        for (int i = 0; i < SAMPLES; i++) {
+            data.add(i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void overlappingWindows() throws InterruptedException, ExecutionException {
+        checkWindows(WINDOW_SIZE, WINDOW_STEP, CHUNK_SIZE);
+    }
+
+    @Test
+    public void backToBackWindows() throws InterruptedException, ExecutionException {
+        checkWindows(WINDOW_SIZE, WINDOW_SIZE, CHUNK_SIZE);
+    }
+
+    @Test
+    public void stepLargerThanSize() throws InterruptedException, ExecutionException {
+        checkWindows(WINDOW_STEP, WINDOW_SIZE, CHUNK_SIZE);
+    }
+
+    @Test
+    public void windowLargerThanData() throws InterruptedException, ExecutionException {
+        checkWindows(SAMPLES * 2, WINDOW_STEP, CHUNK_SIZE);
+    }
+
+    @Test
+    public void defaultChunkSize() throws InterruptedException, ExecutionException {
+        List<List<Integer>> windows = ParallelSampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(WINDOW_SIZE)
+                .setStep(WINDOW_STEP)
+                .setData(data)
+                .build()
+                .transform(COPY, executor);
+
+        assertEquals(sequentialWindows(WINDOW_SIZE, WINDOW_STEP), windows);
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void exceptionsArePropagated() throws InterruptedException, ExecutionException {
+        ParallelSampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(WINDOW_SIZE)
+                .setData(data)
+                .build()
+                .transform(new Function<List<Integer>, Object>() {
+                    @Override
+                    public Object apply(List<Integer> window) {
+                        throw new IllegalStateException();
+                    }
+                }, executor);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void illegalStateIfNoData() {
+        ParallelSampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(WINDOW_SIZE)
+                .build();
+    }
+
+    private void checkWindows(int size, int step, int chunkSize) throws InterruptedException, ExecutionException {
+        ParallelSampleBasedSlidingWindow<Integer> parallelWindow = ParallelSampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(size)
+                .setStep(step)
+                .setChunkSize(chunkSize)
+                .setData(data)
+                .build();
+
+        List<List<Integer>> expected = sequentialWindows(size, step);
+        assertEquals(expected.size(), parallelWindow.getWindowCount());
+        assertEquals(expected, parallelWindow.transform(COPY, executor));
+    }
+
+    private List<List<Integer>> sequentialWindows(int size, int step) {
+        SampleBasedSlidingWindow<Integer> window = SampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(size)
+                .setStep(step)
+                .add(data)
+                .build();
+
+        List<List<Integer>> windows = Lists.newArrayList();
+        for (Iterable<Integer> samples : window) {
+            windows.add(ImmutableList.copyOf(samples));
+        }
+        return windows;
+    }
+}
@@ -1,10 +1,15 @@
 package org.jsense;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.UnmodifiableIterator;
 import org.jsense.compute.SampleBasedSlidingWindow;
 import org.junit.Test;
 
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import static org.junit.Assert.*;
@@ -24,6 +29,11 @@ public class TestSlidingWindow {
     private static final int SIXTH_DUMMY_SAMPLE = 6;
     private static final int SEVENTH_DUMMY_SAMPLE = 7;
     private static final int WINDOW_SIZE = 2;
+    private static final int OVERLAPPING_WINDOW_SIZE = 4;
+    private static final int OVERLAPPING_WINDOW_STEP = 2;
+    private static final int SCALING_MIN_SAMPLES = 1000;
+    private static final int SCALING_MAX_SAMPLES = 1000000;
+    private static final int SCALING_FACTOR = 10;
 
     @Test
     public void testSampleBasedSlidingWindow() {
@@ -78,6 +88,106 @@ public class TestSlidingWindow {
         assertFalse(windowIterator.hasNext());
     }
 
+    @Test
+    public void overlappingWindows() {
+        SampleBasedSlidingWindow<Integer> slidingWindow = SampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(OVERLAPPING_WINDOW_SIZE)
+                .setStep(OVERLAPPING_WINDOW_STEP)
+                .add(ImmutableList.of(1, 2, 3, 4, 5, 6, 7))
+                .build();
+
+        Iterator<Iterable<Integer>> iterator = slidingWindow.iterator();
+        assertEquals(ImmutableList.of(1, 2, 3, 4), ImmutableList.copyOf(iterator.next()));
+        assertEquals(ImmutableList.of(3, 4, 5, 6), ImmutableList.copyOf(iterator.next()));
+        assertEquals(ImmutableList.of(5, 6, 7), ImmutableList.copyOf(iterator.next()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void overlappingWindowsReadEachSampleOnce() {
+        CountingIterable data = new CountingIterable(SCALING_MIN_SAMPLES);
+        SampleBasedSlidingWindow<Integer> slidingWindow = SampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(OVERLAPPING_WINDOW_SIZE)
+                .setStep(1)
+                .add(data)
+                .build();
+
+        int expected = 0;
+        for (Iterable<Integer> window : slidingWindow) {
+            assertEquals(Integer.valueOf(expected++), Iterables.getFirst(window, null));
+        }
+
+        assertEquals(SCALING_MIN_SAMPLES - OVERLAPPING_WINDOW_SIZE + 1, expected);
+        assertEquals(SCALING_MIN_SAMPLES, data.reads);
+    }
+
+    @Test
+    public void stepLargerThanSizeSkipsSamples() {
+        SampleBasedSlidingWindow<Integer> slidingWindow = SampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(WINDOW_SIZE)
+                .setStep(WINDOW_SIZE + 1)
+                .add(ImmutableList.of(1, 2, 3, 4, 5, 6, 7))
+                .build();
+
+        Iterator<Iterable<Integer>> iterator = slidingWindow.iterator();
+        assertEquals(ImmutableList.of(1, 2), ImmutableList.copyOf(iterator.next()));
+        assertEquals(ImmutableList.of(4, 5), ImmutableList.copyOf(iterator.next()));
+        assertEquals(ImmutableList.of(7), ImmutableList.copyOf(iterator.next()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void windowCantBeReadAfterNext() {
+        SampleBasedSlidingWindow<Integer> slidingWindow = SampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(WINDOW_SIZE)
+                .add(ImmutableList.of(1, 2, 3, 4))
+                .build();
+
+        List<Iterable<Integer>> windows = Lists.newArrayList(slidingWindow);
+        windows.get(0).iterator();
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void windowIteratorCantBeReadAfterNext() {
+        SampleBasedSlidingWindow<Integer> slidingWindow = SampleBasedSlidingWindow.<Integer>newBuilder()
+                .setSize(WINDOW_SIZE)
+                .add(ImmutableList.of(1, 2, 3, 4))
+                .build();
+
+        Iterator<Iterable<Integer>> iterator = slidingWindow.iterator();
+        Iterator<Integer> windowIterator = iterator.next().iterator();
+        assertEquals(Integer.valueOf(1), windowIterator.next());
+        iterator.next();
+        windowIterator.next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stepMustBePositive() {
+        SampleBasedSlidingWindow.newBuilder()
+                .setStep(0);
+    }
+
+    @Test
+    public void eachSampleIsReadOnce() {
+        // The number of reads from the underlying data must scale linearly with its size
+        for (int samples = SCALING_MIN_SAMPLES; samples <= SCALING_MAX_SAMPLES; samples *= SCALING_FACTOR) {
+            CountingIterable data = new CountingIterable(samples);
+            SampleBasedSlidingWindow<Integer> slidingWindow = SampleBasedSlidingWindow.<Integer>newBuilder()
+                    .setSize(WINDOW_SIZE)
+                    .add(data)
+                    .build();
+
+            int windows = 0;
+            for (Iterable<Integer> window : slidingWindow) {
+                assertEquals(WINDOW_SIZE, Iterables.size(window));
+                windows++;
+            }
+
+            assertEquals(samples / WINDOW_SIZE, windows);
+            assertEquals(samples, data.reads);
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void sizeCantBeNegative() {
         SampleBasedSlidingWindow.newBuilder()
@@ -154,6 +264,40 @@ public class TestSlidingWindow {
         iterator.next();
     }
 
+    /**
+     * An {@link java.lang.Iterable} over increasing integers, counting the number of elements read.
+     */
+    private static class CountingIterable implements Iterable<Integer> {
+
+        private final int size;
+        private int reads;
+
+        public CountingIterable(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new UnmodifiableIterator<Integer>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                public Integer next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    reads++;
+                    return index++;
+                }
+            };
+        }
+    }
+
     /**
      * A mock sample used for testing.
      */
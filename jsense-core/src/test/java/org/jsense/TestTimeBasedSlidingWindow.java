@@ -0,0 +1,189 @@
+package org.jsense;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.jsense.compute.TimeBasedSlidingWindow;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link org.jsense.compute.TimeBasedSlidingWindow}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestTimeBasedSlidingWindow {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long SAMPLE_INTERVAL = 10L;
+    private static final int SAMPLES = 10;
+    private static final Duration SIZE = new Duration(40L);
+    private static final Duration STEP = new Duration(20L);
+    private static final long GAP_START = 500L;
+
+    @Test
+    public void overlappingWindows() {
+        List<AccelerometerEvent> events = newEvents(0L, SAMPLES);
+
+        TimeBasedSlidingWindow slidingWindow = TimeBasedSlidingWindow.newBuilder()
+                .setSize(SIZE)
+                .setStep(STEP)
+                .add(events)
+                .build();
+
+        Iterator<Iterable<AccelerometerEvent>> iterator = slidingWindow.iterator();
+        assertEquals(events.subList(0, 4), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(2, 6), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(4, 8), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(6, 10), ImmutableList.copyOf(iterator.next()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void backToBackWindowsByDefault() {
+        List<AccelerometerEvent> events = newEvents(0L, SAMPLES);
+
+        TimeBasedSlidingWindow slidingWindow = TimeBasedSlidingWindow.newBuilder()
+                .setSize(SIZE)
+                .add(events)
+                .build();
+
+        Iterator<Iterable<AccelerometerEvent>> iterator = slidingWindow.iterator();
+        assertEquals(events.subList(0, 4), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(4, 8), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(8, 10), ImmutableList.copyOf(iterator.next()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void emptyWindowsAreSkipped() {
+        List<AccelerometerEvent> events = Lists.newArrayList(newEvents(0L, 2));
+        events.addAll(newEvents(GAP_START, 2));
+
+        TimeBasedSlidingWindow slidingWindow = TimeBasedSlidingWindow.newBuilder()
+                .setSize(SIZE)
+                .setStep(STEP)
+                .add(events)
+                .build();
+
+        Iterator<Iterable<AccelerometerEvent>> iterator = slidingWindow.iterator();
+        assertEquals(events.subList(0, 2), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(2, 4), ImmutableList.copyOf(iterator.next()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void relativeTimestamps() {
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        for (int i = 0; i < SAMPLES; i++) {
+            // Jittery relative timestamps, with all absolute timestamps the same
+            events.add(newEvent(0L)
+                    .setRelativeTimestamp(i * SAMPLE_INTERVAL * NANOS_PER_MILLI + (i % 2) * NANOS_PER_MILLI)
+                    .build());
+        }
+
+        TimeBasedSlidingWindow slidingWindow = TimeBasedSlidingWindow.newBuilder()
+                .setSize(SIZE)
+                .setTimestamp(TimeBasedSlidingWindow.Timestamp.RELATIVE)
+                .add(events)
+                .build();
+
+        Iterator<Iterable<AccelerometerEvent>> iterator = slidingWindow.iterator();
+        assertEquals(events.subList(0, 4), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(4, 8), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(8, 10), ImmutableList.copyOf(iterator.next()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void stepLargerThanSizeDropsEvents() {
+        List<AccelerometerEvent> events = newEvents(0L, SAMPLES);
+
+        TimeBasedSlidingWindow slidingWindow = TimeBasedSlidingWindow.newBuilder()
+                .setSize(STEP)
+                .setStep(SIZE)
+                .add(events)
+                .build();
+
+        Iterator<Iterable<AccelerometerEvent>> iterator = slidingWindow.iterator();
+        assertEquals(events.subList(0, 2), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(4, 6), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(8, 10), ImmutableList.copyOf(iterator.next()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void eventsBetweenWindowsAfterGapAreDropped() {
+        // Windows are [0, 20), [40, 60) and [80, 100), so the event at 65 is in none of them
+        List<AccelerometerEvent> events = ImmutableList.of(
+                newEvent(0L).build(), newEvent(10L).build(), newEvent(65L).build(), newEvent(85L).build());
+
+        TimeBasedSlidingWindow slidingWindow = TimeBasedSlidingWindow.newBuilder()
+                .setSize(new Duration(20L))
+                .setStep(new Duration(40L))
+                .add(events)
+                .build();
+
+        Iterator<Iterable<AccelerometerEvent>> iterator = slidingWindow.iterator();
+        assertEquals(events.subList(0, 2), ImmutableList.copyOf(iterator.next()));
+        assertEquals(events.subList(3, 4), ImmutableList.copyOf(iterator.next()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMustBePositive() {
+        TimeBasedSlidingWindow.newBuilder()
+                .setSize(Duration.ZERO);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void illegalStateIfNoSize() {
+        TimeBasedSlidingWindow.newBuilder()
+                .add(newEvent(0L).build())
+                .build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void illegalStateIfNoData() {
+        TimeBasedSlidingWindow.newBuilder()
+                .setSize(SIZE)
+                .build();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNoMoreWindows() {
+        Iterator<Iterable<AccelerometerEvent>> iterator = TimeBasedSlidingWindow.newBuilder()
+                .setSize(SIZE)
+                .add(newEvent(0L).build())
+                .build()
+                .iterator();
+
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        iterator.next();
+    }
+
+    private static List<AccelerometerEvent> newEvents(long start, int count) {
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            events.add(newEvent(start + i * SAMPLE_INTERVAL).build());
+        }
+        return events;
+    }
+
+    private static AccelerometerEvent.Builder newEvent(long absoluteTimestamp) {
+        return AccelerometerEvent.newBuilder()
+                .setAbsoluteTimestamp(new Instant(absoluteTimestamp))
+                .setX(0)
+                .setY(0)
+                .setZ(0);
+    }
+}
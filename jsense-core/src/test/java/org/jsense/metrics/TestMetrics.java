@@ -0,0 +1,239 @@
+package org.jsense.metrics;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Instant;
+import org.joda.time.ReadableInstant;
+import org.jsense.AccelerometerEvent;
+import org.jsense.ModelFactory;
+import org.jsense.compute.SampleBasedSlidingWindow;
+import org.jsense.serialize.Deserializer;
+import org.jsense.serialize.Serializer;
+import org.jsense.serialize.SimpleAccelerometerEventDeserializer;
+import org.jsense.serialize.SimpleAccelerometerEventSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the metrics in {@link org.jsense.metrics}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestMetrics {
+
+    private static final int SEED = 40413;
+    private static final int EVENTS = 1000;
+    private static final long NOW = 1400000000000L;
+
+    private List<AccelerometerEvent> events;
+
+    @Before
+    public void setUp() {
+        ModelFactory.setSeed(SEED);
+        events = Lists.newArrayList();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void metricsAreEnabledByDefault() {
+        assertTrue(Metrics.isEnabled());
+    }
+
+    @Test
+    public void counterCounts() {
+        Counter counter = new Counter();
+        counter.increment();
+        counter.add(41);
+        assertEquals(42, counter.getCount());
+    }
+
+    @Test
+    public void emptyHistogram() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getPercentile99());
+    }
+
+    @Test
+    public void histogramBucketsCoverAllValues() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 16; value++) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(Histogram.highestValueInBucket(index) >= value);
+            previous = index;
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueInBucket(Histogram.bucketIndex(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void histogramPercentilesAreWithinOnePercent() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value * 1000);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMin());
+        assertEquals(100000000, snapshot.getMax());
+        assertEquals(50000500.0, snapshot.getMean(), 0.001);
+        assertEquals(50000000, snapshot.getMedian(), 500000);
+        assertEquals(99000000, snapshot.getPercentile99(), 990000);
+        assertEquals(99900000, snapshot.getPercentile999(), 999000);
+    }
+
+    @Test
+    public void histogramHandlesExtremeValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(Long.MAX_VALUE);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getMedian());
+        assertEquals(Long.MAX_VALUE, snapshot.getPercentile99());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogramRejectsNegativeValues() {
+        new Histogram().record(-1);
+    }
+
+    @Test
+    public void serializerMetrics() throws IOException {
+        SerializerMetrics metrics = new SerializerMetrics();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serializer<AccelerometerEvent> serializer = metrics.meter(
+                new SimpleAccelerometerEventSerializer(metrics.meter(out)));
+
+        serializer.serialize(events.get(0));
+        serializer.serialize(events.subList(1, EVENTS));
+        serializer.flush();
+        serializer.close();
+
+        assertEquals(EVENTS, metrics.getValueCount());
+        assertEquals(out.size(), metrics.getByteCount());
+        assertEquals(1, metrics.getFlushLatency().getCount());
+        assertEquals(0, metrics.getFailureCount());
+
+        try {
+            serializer.serialize(events.get(0));
+            fail();
+        } catch (IOException e) {
+            assertEquals(1, metrics.getFailureCount());
+        }
+    }
+
+    @Test
+    public void deserializerMetrics() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SimpleAccelerometerEventSerializer(out).serialize(events).close();
+        DeserializerMetrics metrics = new DeserializerMetrics();
+        Deserializer<AccelerometerEvent> deserializer = metrics.meter(
+                new SimpleAccelerometerEventDeserializer(metrics.meter(new ByteArrayInputStream(out.toByteArray()))));
+
+        assertEquals(events, Lists.newArrayList(deserializer.deserialize()));
+        deserializer.close();
+        assertEquals(EVENTS, metrics.getValueCount());
+        assertEquals(out.size(), metrics.getByteCount());
+        assertEquals(0, metrics.getLag().getCount());
+    }
+
+    @Test
+    public void deserializerLag() throws IOException {
+        DateTimeUtils.setCurrentMillisFixed(NOW);
+        List<AccelerometerEvent> live = Lists.newArrayList();
+        for (long lag : new long[]{1000, 200, 30}) {
+            live.add(AccelerometerEvent.newBuilder()
+                    .setAbsoluteTimestamp(new Instant(NOW - lag))
+                    .setX(0).setY(0).setZ(0)
+                    .build());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SimpleAccelerometerEventSerializer(out).serialize(live).close();
+
+        DeserializerMetrics metrics = new DeserializerMetrics();
+        Deserializer<AccelerometerEvent> deserializer = metrics.meter(
+                new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray())),
+                new Function<AccelerometerEvent, ReadableInstant>() {
+                    @Override
+                    public ReadableInstant apply(AccelerometerEvent event) {
+                        return event.getAbsoluteTimestamp();
+                    }
+                });
+        for (AccelerometerEvent event : deserializer.deserialize()) {
+            assertNotNull(event);
+        }
+        assertEquals(30, metrics.getLastLagMillis());
+        assertEquals(3, metrics.getLag().getCount());
+        assertEquals(1000, metrics.getLag().getMax());
+        assertEquals(30, metrics.getLag().getMin());
+    }
+
+    @Test
+    public void computeMetrics() {
+        ComputeMetrics metrics = new ComputeMetrics();
+        SampleBasedSlidingWindow<AccelerometerEvent> windows = SampleBasedSlidingWindow.<AccelerometerEvent>newBuilder()
+                .setSize(100)
+                .setStep(50)
+                .add(events)
+                .build();
+        int count = 0;
+        for (Iterable<AccelerometerEvent> window : metrics.meter(windows)) {
+            assertNotNull(window);
+            count++;
+        }
+        assertEquals(count, metrics.getValueCount());
+        assertEquals(count, metrics.getLatency().getCount());
+
+        Function<Integer, Integer> square = metrics.meter(new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                return input * input;
+            }
+        });
+        assertEquals(Integer.valueOf(9), square.apply(3));
+        assertEquals(count + 1, metrics.getValueCount());
+    }
+
+    @Test
+    public void metricsAreReadableThroughJmx() throws Exception {
+        SerializerMetrics metrics = new SerializerMetrics();
+        Serializer<AccelerometerEvent> serializer = metrics.meter(
+                new SimpleAccelerometerEventSerializer(metrics.meter(new ByteArrayOutputStream())));
+        serializer.serialize(events);
+        serializer.flush();
+
+        ObjectName name = metrics.register("test-" + new Random().nextInt());
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals("SerializerMetrics", name.getKeyProperty("type"));
+            assertEquals((long) EVENTS, server.getAttribute(name, "ValueCount"));
+            CompositeData flushLatency = (CompositeData) server.getAttribute(name, "FlushLatency");
+            assertEquals(1L, flushLatency.get("count"));
+        } finally {
+            Metrics.unregister(name);
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
@@ -0,0 +1,31 @@
+package org.jsense.serialize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * A {@link java.io.ByteArrayOutputStream} recording if it has been closed, and optionally failing to close.
+ *
+ * @author Markus Wüstenberg
+ */
+public class CloseTrackingOutputStream extends ByteArrayOutputStream {
+
+    private final boolean failOnClose;
+    private boolean closed;
+
+    public CloseTrackingOutputStream(boolean failOnClose) {
+        this.failOnClose = failOnClose;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (failOnClose) {
+            throw new IOException("Broken.");
+        }
+    }
+}
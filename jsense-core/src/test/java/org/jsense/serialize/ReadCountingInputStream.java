@@ -0,0 +1,41 @@
+package org.jsense.serialize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link java.io.InputStream} counting the bytes read from it, but not the bytes skipped.
+ *
+ * @author Markus Wüstenberg
+ */
+public class ReadCountingInputStream extends FilterInputStream {
+
+    private long count;
+
+    public ReadCountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+}
@@ -0,0 +1,157 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Charsets;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the {@link org.jsense.serialize.AsciiFormat}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestAsciiFormat {
+
+    private static final int SEED = 8812;
+    private static final int SAMPLES = 200000;
+
+    private final byte[] buffer = new byte[32];
+
+    @Test
+    public void longsAreFormattedLikeLongToString() {
+        long[] values = {0, 1, -1, 9, 10, 99, 100, 1234567890123L, -1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1};
+        for (long value : values) {
+            assertEquals(Long.toString(value), formatLong(value));
+        }
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            assertEquals(Long.toString(value), formatLong(value));
+        }
+    }
+
+    @Test
+    public void booleansAreFormattedLikeBooleanToString() {
+        assertEquals("true", new String(buffer, 0, AsciiFormat.putBoolean(buffer, 0, true), Charsets.US_ASCII));
+        assertEquals("false", new String(buffer, 0, AsciiFormat.putBoolean(buffer, 0, false), Charsets.US_ASCII));
+    }
+
+    @Test
+    public void specialFloatsAreFormattedLikeFloatToString() {
+        float[] values = {0f, -0f, 1f, -1f, 0.1f, 0.3f, 9.81f, 100f, 1e-3f, -1e-3f, Math.nextAfter(1e-3f, 0), 1e7f,
+                Math.nextAfter(1e7f, 0), 8388608f, 16777216f, 0.001953125f, 1e-10f, 3.4028235e38f, Float.MIN_VALUE,
+                Float.MIN_NORMAL, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (float value : values) {
+            assertEquals(Float.toString(value), formatFloat(value));
+        }
+    }
+
+    @Test
+    public void floatsAreFormattedLikeFloatToString() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            assertFloat(Float.intBitsToFloat(random.nextInt()));
+            assertFloat(random.nextFloat());
+            assertFloat((float) random.nextGaussian() * 10);
+            assertFloat(Math.round(random.nextGaussian() * 100000) / 1000f);
+        }
+    }
+
+    @Test
+    public void longsAreParsedLikeLongParseLong() {
+        String[] strings = {"0", "-0", "1", "-1", "007", "1399593600000", "9223372036854775807", "-9223372036854775808"};
+        for (String string : strings) {
+            assertEquals(Long.parseLong(string), parseLong(string));
+        }
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            assertEquals(value, parseLong(Long.toString(value)));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void longsMustNotOverflow() {
+        parseLong("9223372036854775808");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void longsMustNotBeEmpty() {
+        parseLong("");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void longsMustBeDigits() {
+        parseLong("12a");
+    }
+
+    @Test
+    public void booleansAreParsedLikeBooleanParseBoolean() {
+        String[] strings = {"true", "TRUE", "True", "false", "", "yes", "truee", "tru"};
+        for (String string : strings) {
+            assertEquals(Boolean.parseBoolean(string), AsciiFormat.parseBoolean(string.getBytes(Charsets.US_ASCII), 0, string.length()));
+        }
+    }
+
+    @Test
+    public void specialFloatsAreParsedLikeFloatParseFloat() {
+        String[] strings = {"0", "0.0", "-0.0", "1", "1.", ".5", "-9.81", "0.115404725", "1.0E-4", "1e5", "1.5E+3",
+                "3.4028235E38", "3.4028236E38", "1.4E-45", "1.17549435E-38", "0.12345678901234567890", "NaN", "-Infinity",
+                " 1.0 ", "+1.0", "1.0f", "0x1p3", "16777217", "1.00000017881393432617187499", "1.000000178813934326171875"};
+        for (String string : strings) {
+            assertEquals(string, Float.floatToRawIntBits(Float.parseFloat(string)), Float.floatToRawIntBits(parseFloat(string)));
+        }
+    }
+
+    @Test
+    public void floatsAreParsedLikeFloatParseFloat() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            String string = Float.toString(Float.intBitsToFloat(random.nextInt()));
+            assertEquals(string, Float.floatToRawIntBits(Float.parseFloat(string)), Float.floatToRawIntBits(parseFloat(string)));
+
+            StringBuilder builder = new StringBuilder();
+            int digits = 1 + random.nextInt(17);
+            for (int j = 0; j < digits; j++) {
+                builder.append((char) ('0' + random.nextInt(10)));
+            }
+            builder.insert(random.nextInt(digits + 1), '.');
+            if (random.nextBoolean()) {
+                builder.append('E').append(random.nextInt(61) - 30);
+            }
+            string = builder.toString();
+            if (!".".equals(string)) {
+                assertEquals(string, Float.floatToRawIntBits(Float.parseFloat(string)), Float.floatToRawIntBits(parseFloat(string)));
+            }
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void floatsMustBeNumbers() {
+        parseFloat("1.0.0");
+    }
+
+    private void assertFloat(float value) {
+        assertEquals(Float.toString(value), formatFloat(value));
+    }
+
+    private String formatLong(long value) {
+        return new String(buffer, 0, AsciiFormat.putLong(buffer, 0, value), Charsets.US_ASCII);
+    }
+
+    private static long parseLong(String string) {
+        return AsciiFormat.parseLong(string.getBytes(Charsets.US_ASCII), 0, string.length());
+    }
+
+    private static float parseFloat(String string) {
+        return AsciiFormat.parseFloat(string.getBytes(Charsets.US_ASCII), 0, string.length());
+    }
+
+    private String formatFloat(float value) {
+        return new String(buffer, 0, AsciiFormat.putFloat(buffer, 0, value), Charsets.US_ASCII);
+    }
+}
@@ -0,0 +1,255 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.jsense.AccelerometerEvent;
+import org.jsense.ModelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link org.jsense.serialize.AsyncSerializer} and {@link org.jsense.serialize.MpscRingBuffer}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestAsyncSerializer {
+
+    private static final int SEED = 66120;
+    private static final int PRODUCERS = 8;
+    private static final int EVENTS_PER_PRODUCER = 5000;
+    private static final int CAPACITY = 64;
+
+    private ByteArrayOutputStream out;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        executor = Executors.newFixedThreadPool(PRODUCERS);
+        ModelFactory.setSeed(SEED);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void ringBufferIsFirstInFirstOut() {
+        MpscRingBuffer<Integer> queue = new MpscRingBuffer<Integer>(3);
+        assertEquals(4, queue.capacity());
+        assertTrue(queue.isEmpty());
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(queue.offer(i));
+            }
+            assertEquals(false, queue.offer(4));
+            for (int i = 0; i < 4; i++) {
+                assertEquals(Integer.valueOf(i), queue.poll());
+            }
+            assertEquals(null, queue.poll());
+        }
+    }
+
+    @Test
+    public void manyProducersKeepTheirOrder() throws Exception {
+        final AsyncSerializer<AccelerometerEvent> serializer = AsyncSerializer.<AccelerometerEvent>newBuilder()
+                .setSerializer(SimpleAccelerometerEventSerializer.newSingleWriterSerializer(out))
+                .setCapacity(CAPACITY)
+                .build();
+
+        List<Future<Void>> futures = Lists.newArrayList();
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            final int relativeTimestamp = producer;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                        // The producer is in the relative timestamp, and the sequence number in the absolute timestamp
+                        serializer.serialize(AccelerometerEvent.newBuilder()
+                                .setAbsoluteTimestampMillis(i)
+                                .setRelativeTimestamp(relativeTimestamp)
+                                .setX(0)
+                                .setY(0)
+                                .setZ(0)
+                                .build());
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        serializer.close();
+
+        long[] next = new long[PRODUCERS];
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        for (AccelerometerEvent event : deserializer.deserialize()) {
+            int producer = (int) event.getRelativeTimestamp();
+            assertEquals(next[producer]++, event.getAbsoluteTimestampMillis());
+        }
+        for (long count : next) {
+            assertEquals(EVENTS_PER_PRODUCER, count);
+        }
+    }
+
+    @Test
+    public void flushWritesSerializedValues() throws IOException {
+        AsyncSerializer<AccelerometerEvent> serializer = AsyncSerializer.<AccelerometerEvent>newBuilder()
+                .setSerializer(SimpleAccelerometerEventSerializer.newSingleWriterSerializer(out))
+                .build();
+        AccelerometerEvent event = ModelFactory.newRandomAccelerometerEvent();
+        serializer.serialize(event);
+        serializer.flush();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new SimpleAccelerometerEventSerializer(expected).serialize(event).close();
+        assertEquals(expected.toString(Charsets.UTF_8.name()), out.toString(Charsets.UTF_8.name()));
+        serializer.close();
+    }
+
+    @Test
+    public void dropWhenFull() throws Exception {
+        BlockingSerializer blocking = new BlockingSerializer();
+        AsyncSerializer<AccelerometerEvent> serializer = AsyncSerializer.<AccelerometerEvent>newBuilder()
+                .setSerializer(blocking)
+                .setCapacity(CAPACITY)
+                .setOverflowPolicy(AsyncSerializer.OverflowPolicy.DROP)
+                .build();
+
+        AccelerometerEvent event = ModelFactory.newRandomAccelerometerEvent();
+        serializer.serialize(event);
+        blocking.started.await();
+        for (int i = 0; i < CAPACITY + 10; i++) {
+            serializer.serialize(event);
+        }
+        assertEquals(10, serializer.getDroppedCount());
+
+        blocking.release.countDown();
+        serializer.close();
+        assertEquals(CAPACITY + 1, blocking.count);
+    }
+
+    @Test(expected = IOException.class)
+    public void failWhenFull() throws Exception {
+        BlockingSerializer blocking = new BlockingSerializer();
+        AsyncSerializer<AccelerometerEvent> serializer = AsyncSerializer.<AccelerometerEvent>newBuilder()
+                .setSerializer(blocking)
+                .setCapacity(CAPACITY)
+                .setOverflowPolicy(AsyncSerializer.OverflowPolicy.FAIL)
+                .build();
+
+        AccelerometerEvent event = ModelFactory.newRandomAccelerometerEvent();
+        serializer.serialize(event);
+        blocking.started.await();
+        try {
+            for (int i = 0; i <= CAPACITY; i++) {
+                serializer.serialize(event);
+            }
+        } finally {
+            blocking.release.countDown();
+            serializer.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void failuresAreRethrown() throws IOException {
+        AsyncSerializer<AccelerometerEvent> serializer = AsyncSerializer.<AccelerometerEvent>newBuilder()
+                .setSerializer(SimpleAccelerometerEventSerializer.newSingleWriterSerializer(new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("Broken.");
+                    }
+                }))
+                .build();
+        serializer.serialize(ModelFactory.newRandomAccelerometerEvent());
+        serializer.flush();
+    }
+
+    @Test(expected = IOException.class)
+    public void cantWriteAfterClose() throws IOException {
+        AsyncSerializer<AccelerometerEvent> serializer = AsyncSerializer.<AccelerometerEvent>newBuilder()
+                .setSerializer(SimpleAccelerometerEventSerializer.newSingleWriterSerializer(out))
+                .build();
+        serializer.close();
+        serializer.serialize(ImmutableList.of(ModelFactory.newRandomAccelerometerEvent()));
+    }
+
+    @Test(expected = IOException.class, timeout = 10000)
+    public void flushFailsWhenWriterHasStopped() throws IOException {
+        // A writer thread that stops at once, like one that has handled a close queued before the flush
+        AsyncSerializer<AccelerometerEvent> serializer = AsyncSerializer.<AccelerometerEvent>newBuilder()
+                .setSerializer(SimpleAccelerometerEventSerializer.newSingleWriterSerializer(out))
+                .setThreadFactory(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return new Thread();
+                    }
+                })
+                .build();
+        serializer.flush();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void serializerMustBeSet() {
+        AsyncSerializer.<AccelerometerEvent>newBuilder().build();
+    }
+
+    /**
+     * A {@link org.jsense.serialize.Serializer} that blocks on the first value until released.
+     */
+    private static final class BlockingSerializer implements Serializer<AccelerometerEvent> {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private int count;
+
+        @Override
+        public Serializer<AccelerometerEvent> serialize(AccelerometerEvent value) throws IOException {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            count++;
+            return this;
+        }
+
+        @Override
+        public Serializer<AccelerometerEvent> serialize(Iterable<AccelerometerEvent> values) throws IOException {
+            for (AccelerometerEvent value : values) {
+                serialize(value);
+            }
+            return this;
+        }
+
+        @Override
+        public void flush() {
+
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.jsense.serialize;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.jsense.AccelerometerEvent;
+import org.jsense.ModelFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for the {@link org.jsense.serialize.BinaryAccelerometerEventSerializer},
+ * {@link org.jsense.serialize.BinaryAccelerometerEventDeserializer} and
+ * {@link org.jsense.serialize.MappedBinaryAccelerometerEventDeserializer}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestBinarySerialization {
+
+    private static final int SEED = 10213;
+    private static final int EVENTS = 5000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ByteArrayOutputStream out;
+    private Serializer<AccelerometerEvent> serializer;
+    private List<AccelerometerEvent> events;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        serializer = new BinaryAccelerometerEventSerializer(out);
+
+        ModelFactory.setSeed(SEED);
+        events = Lists.newArrayList();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+    }
+
+    @Test
+    public void recordsHaveFixedWidth() throws IOException {
+        serializer.serialize(events).flush();
+        assertEquals(BinaryFormat.HEADER_SIZE + EVENTS * BinaryFormat.RECORD_SIZE, out.size());
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        serializer.serialize(events).flush();
+        Deserializer<AccelerometerEvent> deserializer = new BinaryAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(events, ImmutableList.copyOf(deserializer.deserialize()));
+    }
+
+    @Test
+    public void deserializeCanBeCalledAgain() throws IOException {
+        serializer.serialize(events).flush();
+        Deserializer<AccelerometerEvent> deserializer = new BinaryAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(events.get(0), deserializer.deserialize().iterator().next());
+        assertEquals(events.subList(1, EVENTS), ImmutableList.copyOf(deserializer.deserialize()));
+    }
+
+    @Test
+    public void emptyInputHasNoEvents() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = new BinaryAccelerometerEventDeserializer(new ByteArrayInputStream(new byte[0]));
+        assertFalse(deserializer.deserialize().iterator().hasNext());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void wrongMagicNumber() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = new BinaryAccelerometerEventDeserializer(new ByteArrayInputStream(new byte[BinaryFormat.HEADER_SIZE]));
+        deserializer.deserialize().iterator().hasNext();
+    }
+
+    @Test
+    public void mappedRandomAccess() throws IOException {
+        File file = writeFile();
+        MappedBinaryAccelerometerEventDeserializer deserializer = new MappedBinaryAccelerometerEventDeserializer(file);
+
+        assertEquals(EVENTS, deserializer.size());
+        assertEquals(events.get(EVENTS - 1), deserializer.get(EVENTS - 1));
+        assertEquals(events.get(EVENTS / 2), deserializer.get(EVENTS / 2));
+        assertEquals(events.subList(EVENTS / 2, EVENTS / 2 + 10), ImmutableList.copyOf(deserializer.deserialize(EVENTS / 2, EVENTS / 2 + 10)));
+        assertEquals(events, ImmutableList.copyOf(deserializer.deserialize()));
+        deserializer.close();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void mappedIndexOutOfBounds() throws IOException {
+        new MappedBinaryAccelerometerEventDeserializer(writeFile()).get(EVENTS);
+    }
+
+    @Test(expected = IOException.class)
+    public void mappedCantDeserializeAfterClose() throws IOException {
+        MappedBinaryAccelerometerEventDeserializer deserializer = new MappedBinaryAccelerometerEventDeserializer(writeFile());
+        deserializer.close();
+        deserializer.deserialize();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void serializeValueCantBeNull() throws IOException {
+        serializer.serialize((AccelerometerEvent) null);
+    }
+
+    @Test(expected = IOException.class)
+    public void cantWriteAfterClose() throws IOException {
+        serializer.close();
+        serializer.serialize(events);
+    }
+
+    @Test(expected = IOException.class)
+    public void cantDeserializeAfterClose() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = new BinaryAccelerometerEventDeserializer(new ByteArrayInputStream(new byte[0]));
+        deserializer.close();
+        deserializer.deserialize();
+    }
+
+    private File writeFile() throws IOException {
+        serializer.serialize(events).close();
+        File file = folder.newFile();
+        Files.write(out.toByteArray(), file);
+        return file;
+    }
+}
@@ -0,0 +1,230 @@
+package org.jsense.serialize;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import org.jsense.AccelerometerEvent;
+import org.jsense.ModelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link org.jsense.serialize.BlockCompressedOutputStream} and
+ * {@link org.jsense.serialize.BlockCompressedInputStream}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestBlockCompression {
+
+    private static final int SEED = 32145;
+    private static final int EVENTS = 2000;
+    private static final int BLOCK_SIZE = 1000;
+    private static final int THREADS = 4;
+    private static final int BLOCKS_IN_FLIGHT = 3;
+
+    private ByteArrayOutputStream out;
+    private List<AccelerometerEvent> events;
+    private byte[] bytes;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        executor = Executors.newFixedThreadPool(THREADS);
+
+        ModelFactory.setSeed(SEED);
+        events = Lists.newArrayList();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+
+        bytes = new byte[10 * BLOCK_SIZE + 7];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i % 10);
+        }
+    }
+
+    @Test
+    public void roundTripSerializer() throws IOException {
+        new SimpleAccelerometerEventSerializer(new BlockCompressedOutputStream(out, BlockCodecs.DEFLATE, BLOCK_SIZE))
+                .serialize(events).close();
+        ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        new SimpleAccelerometerEventSerializer(uncompressed).serialize(events).close();
+
+        assertTrue(out.size() < uncompressed.size());
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(
+                new BlockCompressedInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(events, Lists.newArrayList(deserializer.deserialize()));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void roundTripSerializerInParallel() throws IOException {
+        new SimpleAccelerometerEventSerializer(new BlockCompressedOutputStream(out, BlockCodecs.DEFLATE, BLOCK_SIZE))
+                .serialize(events).close();
+
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(
+                new BlockCompressedInputStream(new ByteArrayInputStream(out.toByteArray()), executor, BLOCKS_IN_FLIGHT));
+        assertEquals(events, Lists.newArrayList(deserializer.deserialize()));
+    }
+
+    @Test
+    public void roundTripBytesInParallel() throws IOException {
+        write(BlockCodecs.DEFLATE, bytes);
+        assertArrayEquals(bytes, ByteStreams.toByteArray(new BlockCompressedInputStream(new ByteArrayInputStream(out.toByteArray()), executor)));
+    }
+
+    @Test
+    public void roundTripBytes() throws IOException {
+        write(BlockCodecs.DEFLATE, bytes);
+        assertArrayEquals(bytes, read(out.toByteArray()));
+    }
+
+    @Test
+    public void roundTripSingleBytes() throws IOException {
+        BlockCompressedOutputStream compressed = new BlockCompressedOutputStream(out, BlockCodecs.deflate(1), BLOCK_SIZE);
+        for (byte b : bytes) {
+            compressed.write(b);
+        }
+        compressed.close();
+
+        BlockCompressedInputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(out.toByteArray()));
+        for (byte b : bytes) {
+            assertEquals(b & 0xff, in.read());
+        }
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void incompressibleBlocksAreStored() throws IOException {
+        byte[] random = new byte[BLOCK_SIZE];
+        new Random(SEED).nextBytes(random);
+        write(BlockCodecs.DEFLATE, random);
+
+        assertEquals(BlockCompressionFormat.HEADER_SIZE + BlockCompressionFormat.FRAME_HEADER_SIZE + BLOCK_SIZE, out.size());
+        assertEquals(BlockCodecs.NONE.getId(), out.toByteArray()[BlockCompressionFormat.HEADER_SIZE]);
+        assertArrayEquals(random, read(out.toByteArray()));
+    }
+
+    @Test
+    public void flushWritesPartialBlock() throws IOException {
+        BlockCompressedOutputStream compressed = new BlockCompressedOutputStream(out, BlockCodecs.NONE, BLOCK_SIZE);
+        compressed.write(bytes, 0, 3);
+        compressed.flush();
+
+        assertArrayEquals(Arrays.copyOf(bytes, 3), read(out.toByteArray()));
+    }
+
+    @Test
+    public void skipWholeAndPartialBlocks() throws IOException {
+        write(BlockCodecs.DEFLATE, bytes);
+        BlockCompressedInputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(10, in.skip(10));
+        assertEquals(bytes[10], in.read());
+        assertEquals(3 * BLOCK_SIZE + 5, in.skip(3 * BLOCK_SIZE + 5));
+        assertEquals(bytes[3 * BLOCK_SIZE + 16], in.read());
+        assertEquals(bytes.length - 3 * BLOCK_SIZE - 17, in.skip(bytes.length));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void skipWholeAndPartialBlocksInParallel() throws IOException {
+        write(BlockCodecs.DEFLATE, bytes);
+        BlockCompressedInputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(out.toByteArray()), executor, BLOCKS_IN_FLIGHT);
+
+        assertEquals(10, in.skip(10));
+        assertEquals(bytes[10], in.read());
+        assertEquals(3 * BLOCK_SIZE + 5, in.skip(3 * BLOCK_SIZE + 5));
+        assertEquals(bytes[3 * BLOCK_SIZE + 16], in.read());
+        assertEquals(5 * BLOCK_SIZE, in.skip(5 * BLOCK_SIZE));
+        assertEquals(bytes[8 * BLOCK_SIZE + 17], in.read());
+        assertEquals(bytes.length - 8 * BLOCK_SIZE - 18, in.skip(bytes.length));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void customCodec() throws IOException {
+        BlockCodec droppingLastByte = new BlockCodec() {
+            @Override
+            public int getId() {
+                return 100;
+            }
+
+            @Override
+            public int compress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength) {
+                // Drop the last byte, and reconstruct it as 9 when decompressing
+                for (int i = 0; i < inputLength - 1; i++) {
+                    output[outputOffset + i] = input[inputOffset + i];
+                }
+                return inputLength - 1;
+            }
+
+            @Override
+            public void decompress(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int outputLength) {
+                System.arraycopy(input, inputOffset, output, outputOffset, inputLength);
+                output[outputOffset + outputLength - 1] = 9;
+            }
+        };
+        write(droppingLastByte, Arrays.copyOf(bytes, BLOCK_SIZE));
+
+        assertArrayEquals(Arrays.copyOf(bytes, BLOCK_SIZE),
+                ByteStreams.toByteArray(new BlockCompressedInputStream(new ByteArrayInputStream(out.toByteArray()), droppingLastByte)));
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownCodecFails() throws IOException {
+        write(BlockCodecs.DEFLATE, bytes);
+        byte[] compressed = out.toByteArray();
+        compressed[BlockCompressionFormat.HEADER_SIZE] = 100;
+        read(compressed);
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptBlockFails() throws IOException {
+        write(BlockCodecs.NONE, bytes);
+        byte[] compressed = out.toByteArray();
+        compressed[compressed.length - 1]++;
+        read(compressed);
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptBlockFailsInParallel() throws IOException {
+        write(BlockCodecs.NONE, bytes);
+        byte[] compressed = out.toByteArray();
+        compressed[compressed.length - 1]++;
+        ByteStreams.toByteArray(new BlockCompressedInputStream(new ByteArrayInputStream(compressed), executor));
+    }
+
+    @Test
+    public void emptyInput() throws IOException {
+        new BlockCompressedOutputStream(out, BlockCodecs.DEFLATE).close();
+        assertEquals(0, out.size());
+        assertEquals(0, read(out.toByteArray()).length);
+    }
+
+    private void write(BlockCodec codec, byte[] data) throws IOException {
+        BlockCompressedOutputStream compressed = new BlockCompressedOutputStream(out, codec, BLOCK_SIZE);
+        compressed.write(data);
+        compressed.close();
+    }
+
+    private static byte[] read(byte[] compressed) throws IOException {
+        return ByteStreams.toByteArray(new BlockCompressedInputStream(new ByteArrayInputStream(compressed)));
+    }
+}
@@ -0,0 +1,141 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.jsense.AccelerometerEvent;
+import org.jsense.ModelFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link org.jsense.serialize.SimpleAccelerometerEventChunkDecoder} and
+ * {@link org.jsense.serialize.ChunkDecoders}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestChunkDecoders {
+
+    private static final int SEED = 6621;
+    private static final int EVENTS = 500;
+    private static final int MAX_CHUNK_SIZE = 100;
+
+    private List<AccelerometerEvent> events;
+    private List<AccelerometerEvent> decoded;
+    private ChunkDecoder<AccelerometerEvent> decoder;
+    private byte[] bytes;
+
+    @Before
+    public void setUp() throws IOException {
+        ModelFactory.setSeed(SEED);
+        events = Lists.newArrayList();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SimpleAccelerometerEventSerializer(out).serialize(events).close();
+        bytes = out.toByteArray();
+
+        decoded = Lists.newArrayList();
+        decoder = new SimpleAccelerometerEventChunkDecoder(new ChunkDecoder.Listener<AccelerometerEvent>() {
+            @Override
+            public void onValue(AccelerometerEvent event) {
+                decoded.add(event);
+            }
+        });
+    }
+
+    @Test
+    public void decodeWholeInput() throws IOException {
+        decoder.decode(ByteBuffer.wrap(bytes));
+        decoder.finish();
+        assertEquals(events, decoded);
+    }
+
+    @Test
+    public void decodeSingleBytes() throws IOException {
+        for (byte b : bytes) {
+            decoder.decode(ByteBuffer.wrap(new byte[]{b}));
+        }
+        decoder.finish();
+        assertEquals(events, decoded);
+    }
+
+    @Test
+    public void decodeRandomDirectChunks() throws IOException {
+        Random random = new Random(SEED);
+        ByteBuffer chunk = ByteBuffer.allocateDirect(MAX_CHUNK_SIZE);
+        int position = 0;
+        while (position < bytes.length) {
+            int length = Math.min(random.nextInt(MAX_CHUNK_SIZE + 1), bytes.length - position);
+            chunk.clear();
+            chunk.put(bytes, position, length).flip();
+            decoder.decode(chunk);
+            assertFalse(chunk.hasRemaining());
+            position += length;
+        }
+        decoder.finish();
+        assertEquals(events, decoded);
+    }
+
+    @Test
+    public void eventsArePushedWhenLineIsComplete() throws IOException {
+        String line = "1,false,0,0.1,0.2,0.3";
+        decoder.decode(ByteBuffer.wrap(line.getBytes(Charsets.UTF_8)));
+        assertTrue(decoded.isEmpty());
+        decoder.decode(ByteBuffer.wrap("\r".getBytes(Charsets.UTF_8)));
+        assertEquals(1, decoded.size());
+        decoder.decode(ByteBuffer.wrap(("\n" + line + "\r\n" + line).getBytes(Charsets.UTF_8)));
+        assertEquals(2, decoded.size());
+        decoder.finish();
+        assertEquals(3, decoded.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidLineFails() throws IOException {
+        decoder.decode(ByteBuffer.wrap("1,false\n".getBytes(Charsets.UTF_8)));
+    }
+
+    @Test
+    public void readBlockingChannel() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_CHUNK_SIZE);
+        assertFalse(ChunkDecoders.read(Channels.newChannel(new ByteArrayInputStream(bytes)), buffer, decoder));
+        assertEquals(events, decoded);
+    }
+
+    @Test
+    public void readNonBlockingChannel() throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_CHUNK_SIZE);
+
+        assertTrue(ChunkDecoders.read(pipe.source(), buffer, decoder));
+        assertTrue(decoded.isEmpty());
+
+        int half = bytes.length / 2;
+        writeFully(pipe.sink(), ByteBuffer.wrap(bytes, 0, half));
+        assertTrue(ChunkDecoders.read(pipe.source(), buffer, decoder));
+        writeFully(pipe.sink(), ByteBuffer.wrap(bytes, half, bytes.length - half));
+        pipe.sink().close();
+        while (ChunkDecoders.read(pipe.source(), buffer, decoder)) {
+            Thread.yield();
+        }
+        assertEquals(events, decoded);
+    }
+
+    private static void writeFully(Pipe.SinkChannel sink, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            sink.write(source);
+        }
+    }
+}
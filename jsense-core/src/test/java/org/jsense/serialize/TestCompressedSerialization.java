@@ -0,0 +1,195 @@
+package org.jsense.serialize;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.jsense.AccelerometerEvent;
+import org.jsense.ModelFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link org.jsense.serialize.CompressedAccelerometerEventSerializer} and
+ * {@link org.jsense.serialize.CompressedAccelerometerEventDeserializer}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestCompressedSerialization {
+
+    private static final int SEED = 77123;
+    private static final int EVENTS = 5000;
+    private static final int BLOCK_SIZE = 100;
+    private static final long START = 1400000000000L;
+    private static final long SAMPLE_INTERVAL_MILLIS = 20L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private ByteArrayOutputStream out;
+    private List<AccelerometerEvent> randomEvents;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+
+        ModelFactory.setSeed(SEED);
+        randomEvents = Lists.newArrayList();
+        for (int i = 0; i < EVENTS; i++) {
+            randomEvents.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+    }
+
+    @Test
+    public void roundTripRandomEvents() throws IOException {
+        new CompressedAccelerometerEventSerializer(out, BLOCK_SIZE).serialize(randomEvents).close();
+        assertEquals(randomEvents, deserialize(out.toByteArray()));
+    }
+
+    @Test
+    public void roundTripRegularEvents() throws IOException {
+        List<AccelerometerEvent> events = newRegularEvents(EVENTS);
+        new CompressedAccelerometerEventSerializer(out, BLOCK_SIZE).serialize(events).close();
+        assertEquals(events, deserialize(out.toByteArray()));
+    }
+
+    @Test
+    public void roundTripExtremeValues() throws IOException {
+        List<AccelerometerEvent> events = ImmutableList.of(
+                newEvent(Long.MAX_VALUE, Float.NaN, Float.POSITIVE_INFINITY, -0f).setRelativeTimestamp(Long.MIN_VALUE).build(),
+                newEvent(Long.MIN_VALUE, Float.MIN_VALUE, Float.MAX_VALUE, Float.NEGATIVE_INFINITY).setRelativeTimestamp(Long.MAX_VALUE).build(),
+                newEvent(0, 0f, -Float.MAX_VALUE, 1f).build(),
+                newEvent(Long.MAX_VALUE, 1f, 1f, 1f).setRelativeTimestamp(0).build(),
+                newEvent(Long.MAX_VALUE, 1f, 1.0000001f, 1f).build());
+        new CompressedAccelerometerEventSerializer(out).serialize(events).close();
+        assertEquals(events, deserialize(out.toByteArray()));
+    }
+
+    @Test
+    public void flushWritesPartialBlock() throws IOException {
+        Serializer<AccelerometerEvent> serializer = new CompressedAccelerometerEventSerializer(out);
+        serializer.serialize(randomEvents.get(0)).flush();
+
+        assertEquals(randomEvents.subList(0, 1), deserialize(out.toByteArray()));
+
+        serializer.serialize(randomEvents.subList(1, EVENTS)).close();
+
+        assertEquals(randomEvents, deserialize(out.toByteArray()));
+    }
+
+    @Test
+    public void regularEventsAreSmall() throws IOException {
+        new CompressedAccelerometerEventSerializer(out).serialize(newRegularEvents(EVENTS)).close();
+        ByteArrayOutputStream binaryOut = new ByteArrayOutputStream();
+        new BinaryAccelerometerEventSerializer(binaryOut).serialize(newRegularEvents(EVENTS)).close();
+
+        assertTrue(out.size() * 5 < binaryOut.size());
+    }
+
+    @Test
+    public void deserializeEmptyInput() throws IOException {
+        assertFalse(new CompressedAccelerometerEventDeserializer(new ByteArrayInputStream(new byte[0])).deserialize().iterator().hasNext());
+    }
+
+    @Test
+    public void deserializeOnlyHeader() throws IOException {
+        new CompressedAccelerometerEventSerializer(out).close();
+        assertEquals(0, out.size());
+        new CompressedAccelerometerEventSerializer(out).flush();
+        assertEquals(CompressedFormat.HEADER_SIZE, out.size());
+        assertTrue(deserialize(out.toByteArray()).isEmpty());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void deserializeWrongMagicNumber() throws IOException {
+        deserialize(new byte[CompressedFormat.HEADER_SIZE]);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void deserializeTruncatedBlock() throws IOException {
+        new CompressedAccelerometerEventSerializer(out).serialize(randomEvents).close();
+        byte[] bytes = out.toByteArray();
+        deserialize(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void deserializeHugeBlockLength() throws IOException {
+        deserialize(newHeaders(1, 0x7ffffff0));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void deserializeTooManyEventsForBlockLength() throws IOException {
+        deserialize(newHeaders(Integer.MAX_VALUE, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blockSizeMustFitInABlock() {
+        new CompressedAccelerometerEventSerializer(out, CompressedFormat.MAX_BLOCK_EVENTS + 1);
+    }
+
+    @Test
+    public void deserializeCanBeCalledAgain() throws IOException {
+        new CompressedAccelerometerEventSerializer(out, BLOCK_SIZE).serialize(randomEvents).close();
+        Deserializer<AccelerometerEvent> deserializer = new CompressedAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(randomEvents.get(0), deserializer.deserialize().iterator().next());
+        assertEquals(randomEvents.subList(1, EVENTS), Lists.newArrayList(deserializer.deserialize()));
+    }
+
+    @Test(expected = IOException.class)
+    public void serializeAfterCloseFails() throws IOException {
+        Serializer<AccelerometerEvent> serializer = new CompressedAccelerometerEventSerializer(out);
+        serializer.close();
+        serializer.serialize(randomEvents.get(0));
+    }
+
+    @Test
+    public void bitsRoundTrip() throws IOException {
+        BitOutput output = new BitOutput();
+        for (int count = 1; count <= Long.SIZE; count++) {
+            output.writeBits(-count, count);
+            output.writeBit(count % 2 == 0);
+        }
+        output.finish();
+
+        BitInput input = new BitInput();
+        input.reset(output.buffer(), output.length());
+        for (int count = 1; count <= Long.SIZE; count++) {
+            assertEquals(-count, input.readSignedBits(count));
+            assertEquals(count % 2 == 0, input.readBit());
+        }
+    }
+
+    /**
+     * Create events like those from a 50 Hz accelerometer, with some jitter and slowly changing values.
+     */
+    private static List<AccelerometerEvent> newRegularEvents(int count) {
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            long jitter = i % 7 == 0 ? 1 : 0;
+            events.add(newEvent(START + i * SAMPLE_INTERVAL_MILLIS + jitter, 0.25f * (i / 50), -0.5f, 9.75f + 0.25f * (i / 100 % 2))
+                    .setRelativeTimestamp((i * SAMPLE_INTERVAL_MILLIS + jitter) * NANOS_PER_MILLI)
+                    .build());
+        }
+        return events;
+    }
+
+    private static AccelerometerEvent.Builder newEvent(long absoluteTimestampMillis, float x, float y, float z) {
+        return AccelerometerEvent.newBuilder().setAbsoluteTimestampMillis(absoluteTimestampMillis).setX(x).setY(y).setZ(z);
+    }
+
+    private static byte[] newHeaders(int events, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(CompressedFormat.HEADER_SIZE + CompressedFormat.BLOCK_HEADER_SIZE).order(CompressedFormat.BYTE_ORDER);
+        CompressedFormat.putHeader(buffer);
+        return buffer.putInt(events).putInt(length).array();
+    }
+
+    private static List<AccelerometerEvent> deserialize(byte[] bytes) throws IOException {
+        return Lists.newArrayList(new CompressedAccelerometerEventDeserializer(new ByteArrayInputStream(bytes)).deserialize());
+    }
+}
@@ -0,0 +1,134 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.jsense.AccelerometerEvent;
+import org.jsense.ModelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link org.jsense.serialize.ParallelSimpleAccelerometerEventDeserializer}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestParallelSimpleDeserialization {
+
+    private static final int SEED = 90210;
+    private static final int EVENTS = 2000;
+    private static final int THREADS = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<AccelerometerEvent> events;
+    private File file;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        ModelFactory.setSeed(SEED);
+        events = Lists.newArrayList();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+        file = folder.newFile();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SimpleAccelerometerEventSerializer(out).serialize(events).close();
+        Files.write(out.toByteArray(), file);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void deserializeInOrderWithAnyChunkSize() throws IOException {
+        for (int chunkSize : new int[]{1, 7, 100, 4096, 1 << 20}) {
+            for (int maxChunksInFlight : new int[]{1, 3, 16}) {
+                assertEquals(events, deserialize(chunkSize, maxChunksInFlight));
+            }
+        }
+    }
+
+    @Test
+    public void deserializeIsRepeatable() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = newDeserializer(1000, 2);
+        Iterable<AccelerometerEvent> deserialized = deserializer.deserialize();
+        assertEquals(events, Lists.newArrayList(deserialized));
+        assertEquals(events, Lists.newArrayList(deserialized));
+        deserializer.close();
+    }
+
+    @Test
+    public void lineEndingsMatchSequentialDeserializer() throws IOException {
+        String[] inputs = {
+                "1,false,0,0.1,0.2,0.3\r\n2,true,5,0.4,0.5,0.6\r\n",
+                "1,false,0,0.1,0.2,0.3\r2,true,5,0.4,0.5,0.6\r3,false,0,0.7,0.8,0.9",
+                "1,false,0,0.1,0.2,0.3\n2,true,5,0.4,0.5,0.6\r\n3,false,0,0.7,0.8,0.9\r",
+        };
+        for (String input : inputs) {
+            byte[] bytes = input.getBytes(Charsets.UTF_8);
+            Files.write(bytes, file);
+            List<AccelerometerEvent> expected = Lists.newArrayList(
+                    new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(bytes)).deserialize());
+            for (int chunkSize = 1; chunkSize <= bytes.length; chunkSize++) {
+                assertEquals(expected, deserialize(chunkSize, 2));
+            }
+        }
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        Files.write(new byte[0], file);
+        assertTrue(deserialize(1, 1).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLineFails() throws IOException {
+        Files.write("1,false,0,0.1,0.2,0.3\n1,false\n".getBytes(Charsets.UTF_8), file);
+        deserialize(10, 2);
+    }
+
+    @Test(expected = IOException.class)
+    public void deserializingWhenClosedFails() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = newDeserializer(1000, 2);
+        deserializer.close();
+        deserializer.deserialize();
+    }
+
+    private List<AccelerometerEvent> deserialize(int chunkSize, int maxChunksInFlight) throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = newDeserializer(chunkSize, maxChunksInFlight);
+        try {
+            return Lists.newArrayList(deserializer.deserialize());
+        } finally {
+            deserializer.close();
+        }
+    }
+
+    private Deserializer<AccelerometerEvent> newDeserializer(int chunkSize, int maxChunksInFlight) throws IOException {
+        return ParallelSimpleAccelerometerEventDeserializer.newBuilder()
+                .setFile(file)
+                .setExecutor(executor)
+                .setChunkSize(chunkSize)
+                .setMaxChunksInFlight(maxChunksInFlight)
+                .build();
+    }
+}
@@ -3,17 +3,23 @@ package org.jsense.serialize;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import org.joda.time.Instant;
 import org.jsense.AccelerometerEvent;
 import org.jsense.ModelFactory;
+import org.jsense.ReadableAccelerometerEvent;
+import org.jsense.compute.SampleBasedSlidingWindow;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Iterator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -59,6 +65,30 @@ public class TestSimpleSerialization {
         assertEquals(ACCELEROMETER_EVENTS_SIMPLE, out.toString(Charsets.UTF_8.name()));
     }
 
+    @Test
+    public void serializeAccelerometerEventWithoutRelativeTimestamp() throws IOException {
+        AccelerometerEvent event = AccelerometerEvent.newBuilder()
+                .setAbsoluteTimestamp(new Instant(1399593600000L))
+                .setX(0.1f)
+                .setY(-9.81f)
+                .setZ(0)
+                .build();
+        serializer.serialize(event);
+        serializer.close();
+        assertEquals("1399593600000,false,0,0.1,-9.81,0.0\n", out.toString(Charsets.UTF_8.name()));
+
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(ImmutableList.of(event), ImmutableList.copyOf(deserializer.deserialize()));
+    }
+
+    @Test
+    public void singleWriterSerializerHasSameOutput() throws IOException {
+        serializer = SimpleAccelerometerEventSerializer.newSingleWriterSerializer(out);
+        serializer.serialize(ImmutableList.of(event2, event1));
+        serializer.flush();
+        assertEquals(ACCELEROMETER_EVENTS_SIMPLE, out.toString(Charsets.UTF_8.name()));
+    }
+
     @Test(expected = NullPointerException.class)
     public void serializeValueCantBeNull() throws IOException {
         serializer.serialize((AccelerometerEvent) null);
@@ -120,6 +150,111 @@ public class TestSimpleSerialization {
         assertEquals(event1, eventsIterator.next());
     }
 
+    @Test
+    public void deserializeWithAnyLineSeparator() throws IOException {
+        String input = ACCELEROMETER_EVENT_SIMPLE.replace("\n", "\r\n") + ACCELEROMETER_EVENT_SIMPLE.replace("\n", "\r")
+                + ACCELEROMETER_EVENT_SIMPLE.replace("\n", "");
+        // A source that returns one byte per read, so line separators are split between reads
+        InputStream slow = new ByteArrayInputStream(input.getBytes(Charsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(slow);
+        assertEquals(ImmutableList.of(event1, event1, event1), ImmutableList.copyOf(deserializer.deserialize()));
+    }
+
+    @Test
+    public void deserializeManyAccelerometerEvents() throws IOException {
+        ImmutableList.Builder<AccelerometerEvent> events = ImmutableList.builder();
+        for (int i = 0; i < 10000; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+        serializer.serialize(events.build());
+        serializer.close();
+
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(events.build(), ImmutableList.copyOf(deserializer.deserialize()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deserializeLineWithTooFewFields() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream("1,true,2,0.1,0.2\n".getBytes(Charsets.UTF_8)));
+        ImmutableList.copyOf(deserializer.deserialize());
+    }
+
+    @Test
+    public void deserializeIsLazy() throws IOException {
+        // A source that never ends, repeating the same line forever
+        final byte[] line = ACCELEROMETER_EVENT_SIMPLE.getBytes(Charsets.UTF_8);
+        InputStream endless = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                int b = line[position];
+                position = (position + 1) % line.length;
+                return b;
+            }
+        };
+
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(endless);
+        Iterator<AccelerometerEvent> eventsIterator = deserializer.deserialize().iterator();
+        assertEquals(event1, eventsIterator.next());
+        assertEquals(event1, eventsIterator.next());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deserializedEventsCanOnlyBeIteratedOnce() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(ACCELEROMETER_EVENT_SIMPLE.getBytes(Charsets.UTF_8)));
+        Iterable<AccelerometerEvent> events = deserializer.deserialize();
+        events.iterator().next();
+        events.iterator();
+    }
+
+    @Test
+    public void deserializedEventsCanBeCheckedBeforeIterating() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(ACCELEROMETER_EVENTS_SIMPLE.getBytes(Charsets.UTF_8)));
+        Iterable<AccelerometerEvent> events = deserializer.deserialize();
+        assertTrue(events.iterator().hasNext());
+        assertEquals(2, ImmutableList.copyOf(events).size());
+    }
+
+    @Test
+    public void serializeDeserializedEvents() throws IOException {
+        serializer.serialize(ImmutableList.of(event1, event2));
+        serializer.close();
+
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        new SimpleAccelerometerEventSerializer(copy).serialize(deserializer.deserialize()).close();
+
+        assertEquals(new String(out.toByteArray(), Charsets.UTF_8), new String(copy.toByteArray(), Charsets.UTF_8));
+    }
+
+    @Test
+    public void slidingWindowOverDeserializedEvents() throws IOException {
+        ImmutableList.Builder<AccelerometerEvent> events = ImmutableList.builder();
+        for (int i = 0; i < 8; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+        serializer.serialize(events.build());
+        serializer.close();
+
+        Deserializer<AccelerometerEvent> deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        SampleBasedSlidingWindow<AccelerometerEvent> slidingWindow = SampleBasedSlidingWindow.<AccelerometerEvent>newBuilder()
+                .setSize(4)
+                .add(deserializer.deserialize())
+                .build();
+
+        Iterator<Iterable<AccelerometerEvent>> windows = slidingWindow.iterator();
+        assertEquals(events.build().subList(0, 4), ImmutableList.copyOf(windows.next()));
+        assertEquals(events.build().subList(4, 8), ImmutableList.copyOf(windows.next()));
+        assertFalse(windows.hasNext());
+    }
+
     @Test(expected = NullPointerException.class)
     public void sourceCantBeNull() throws IOException {
         new SimpleAccelerometerEventDeserializer(null);
@@ -131,4 +266,52 @@ public class TestSimpleSerialization {
         deserializer.close();
         deserializer.deserialize();
     }
+
+    @Test
+    public void cursorReusesOneEvent() throws IOException {
+        ImmutableList.Builder<AccelerometerEvent> events = ImmutableList.builder();
+        for (int i = 0; i < 1000; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+        serializer.serialize(events.build());
+        serializer.close();
+
+        SimpleAccelerometerEventDeserializer deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        Cursor<ReadableAccelerometerEvent> cursor = deserializer.cursor();
+        ImmutableList.Builder<AccelerometerEvent> deserialized = ImmutableList.builder();
+        ReadableAccelerometerEvent first = null;
+        while (cursor.next()) {
+            if (first == null) {
+                first = cursor.get();
+            }
+            assertSame(first, cursor.get());
+            deserialized.add(cursor.get().toAccelerometerEvent());
+        }
+        assertFalse(cursor.next());
+        assertEquals(events.build(), deserialized.build());
+    }
+
+    @Test
+    public void cursorClearsRelativeTimestamp() throws IOException {
+        Cursor<ReadableAccelerometerEvent> cursor = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(
+                "1,true,5,0.1,0.2,0.3\n2,false,0,0.4,0.5,0.6\n".getBytes(Charsets.UTF_8))).cursor();
+        assertTrue(cursor.next());
+        assertTrue(cursor.get().hasRelativeTimestamp());
+        assertTrue(cursor.next());
+        assertFalse(cursor.get().hasRelativeTimestamp());
+        assertEquals(2, cursor.get().getAbsoluteTimestampMillis());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cursorHasNoEventBeforeNext() throws IOException {
+        new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(ACCELEROMETER_EVENT_SIMPLE.getBytes(Charsets.UTF_8))).cursor().get();
+    }
+
+    @Test(expected = IOException.class)
+    public void cantReadCursorAfterClose() throws IOException {
+        SimpleAccelerometerEventDeserializer deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(ACCELEROMETER_EVENT_SIMPLE.getBytes(Charsets.UTF_8)));
+        Cursor<ReadableAccelerometerEvent> cursor = deserializer.cursor();
+        deserializer.close();
+        cursor.next();
+    }
 }
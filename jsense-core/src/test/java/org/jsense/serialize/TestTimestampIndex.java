@@ -0,0 +1,137 @@
+package org.jsense.serialize;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.joda.time.Instant;
+import org.jsense.AccelerometerEvent;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the {@link org.jsense.serialize.TimestampIndex} and the time range queries using it.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestTimestampIndex {
+
+    private static final int EVENTS = 100000;
+    private static final long SAMPLE_INTERVAL = 10L;
+    private static final int FROM = 50000;
+    private static final int TO = 50500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<AccelerometerEvent> events;
+
+    @Before
+    public void setUp() {
+        events = Lists.newArrayList();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(AccelerometerEvent.newBuilder()
+                    .setAbsoluteTimestamp(new Instant(i * SAMPLE_INTERVAL))
+                    .setRelativeTimestamp(i)
+                    .setX(i)
+                    .setY(-i)
+                    .setZ(1)
+                    .build());
+        }
+    }
+
+    @Test
+    public void indexHasOneEntryPerInterval() throws IOException {
+        TimestampIndex index = writeSimple(new ByteArrayOutputStream());
+        assertEquals((EVENTS + TimestampIndex.DEFAULT_INTERVAL - 1) / TimestampIndex.DEFAULT_INTERVAL, index.size());
+        assertEquals(0, index.getOffset(0));
+    }
+
+    @Test
+    public void simpleTimeRange() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TimestampIndex index = writeSimple(out);
+
+        ReadCountingInputStream in = new ReadCountingInputStream(new ByteArrayInputStream(out.toByteArray()));
+        SimpleAccelerometerEventDeserializer deserializer = new SimpleAccelerometerEventDeserializer(in);
+        Iterable<AccelerometerEvent> range = deserializer.deserialize(index, timestampOf(FROM), timestampOf(TO));
+
+        assertEquals(events.subList(FROM, TO), ImmutableList.copyOf(range));
+        // Only a small part of the data was read
+        assertTrue(in.getCount() < out.size() / 10);
+    }
+
+    @Test
+    public void simpleTimeRangeOutsideData() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TimestampIndex index = writeSimple(out);
+
+        SimpleAccelerometerEventDeserializer deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        Iterable<AccelerometerEvent> range = deserializer.deserialize(index, timestampOf(EVENTS), timestampOf(EVENTS * 2));
+
+        assertTrue(ImmutableList.copyOf(range).isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void simpleTimeRangeMustBeFirstRead() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TimestampIndex index = writeSimple(out);
+
+        SimpleAccelerometerEventDeserializer deserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        deserializer.deserialize();
+        deserializer.deserialize(index, timestampOf(FROM), timestampOf(TO));
+    }
+
+    @Test
+    public void binaryTimeRange() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryAccelerometerEventSerializer(out).serialize(events).close();
+        File file = folder.newFile();
+        Files.write(out.toByteArray(), file);
+
+        MappedBinaryAccelerometerEventDeserializer deserializer = new MappedBinaryAccelerometerEventDeserializer(file);
+        assertEquals(events.subList(FROM, TO), ImmutableList.copyOf(deserializer.deserialize(timestampOf(FROM), timestampOf(TO))));
+        assertEquals(events.subList(0, 1), ImmutableList.copyOf(deserializer.deserialize(timestampOf(-1), timestampOf(1))));
+        assertTrue(ImmutableList.copyOf(deserializer.deserialize(timestampOf(TO), timestampOf(FROM))).isEmpty());
+        deserializer.close();
+    }
+
+    @Test
+    public void indexIsClosedWhenClosingTheSinkFails() throws IOException {
+        CloseTrackingOutputStream indexOut = new CloseTrackingOutputStream(false);
+        Serializer<AccelerometerEvent> serializer = new SimpleAccelerometerEventSerializer(new CloseTrackingOutputStream(true), indexOut);
+        serializer.serialize(events.get(0));
+        try {
+            serializer.close();
+            fail();
+        } catch (IOException e) {
+            assertTrue(indexOut.isClosed());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedIndex() throws IOException {
+        TimestampIndex.read(new ByteArrayInputStream(new byte[1]));
+    }
+
+    private TimestampIndex writeSimple(ByteArrayOutputStream out) throws IOException {
+        ByteArrayOutputStream indexOut = new ByteArrayOutputStream();
+        new SimpleAccelerometerEventSerializer(out, indexOut).serialize(events).close();
+        return TimestampIndex.read(new ByteArrayInputStream(indexOut.toByteArray()));
+    }
+
+    private static Instant timestampOf(int event) {
+        return new Instant(event * SAMPLE_INTERVAL);
+    }
+}
@@ -0,0 +1,403 @@
+package org.jsense.serialize;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import org.jsense.AccelerometerEvent;
+import org.jsense.AccelerometerEventBatch;
+import org.jsense.serialize.gen.ProtoModel.ThreeAxisSensorEventBatch;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The events of one {@code ThreeAxisSensorEventBatch} message, kept column by column in growing primitive arrays.
+ * <p>
+ * The packed fields are encoded and decoded by hand, as the generated message would box every value in its repeated
+ * fields. Decoding accepts both packed and unpacked fields, and skips unknown fields, like the generated code does.
+ * Relative timestamps are kept per event, with 0 for events without one, and only written for the events with one.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+final class PbAccelerometerEventBatchBuffer {
+
+    private static final int TAG_TYPE_MASK = 7;
+    private static final int FLOAT_SIZE = 4;
+    private static final int BOOLEAN_SIZE = 1;
+
+    /**
+     * The largest batch message, which protects readers from allocating huge columns for damaged lengths.
+     */
+    private static final int MAX_MESSAGE_SIZE = 1 << 26;
+
+    private final LongColumn absoluteTimestamps = new LongColumn();
+    private final LongColumn relativeTimestamps = new LongColumn();
+    private final BooleanColumn hasRelativeTimestamps = new BooleanColumn();
+    private final FloatColumn x = new FloatColumn();
+    private final FloatColumn y = new FloatColumn();
+    private final FloatColumn z = new FloatColumn();
+    private int relativeTimestampCount;
+
+    int size() {
+        return absoluteTimestamps.size;
+    }
+
+    void add(AccelerometerEvent event) {
+        absoluteTimestamps.add(event.getAbsoluteTimestampMillis());
+        if (event.hasRelativeTimestamp()) {
+            relativeTimestamps.add(event.getRelativeTimestamp());
+            hasRelativeTimestamps.add(true);
+            relativeTimestampCount++;
+        } else {
+            relativeTimestamps.add(0);
+            hasRelativeTimestamps.add(false);
+        }
+        x.add(event.getX());
+        y.add(event.getY());
+        z.add(event.getZ());
+    }
+
+    void clear() {
+        absoluteTimestamps.size = 0;
+        relativeTimestamps.size = 0;
+        hasRelativeTimestamps.size = 0;
+        x.size = 0;
+        y.size = 0;
+        z.size = 0;
+        relativeTimestampCount = 0;
+    }
+
+    /**
+     * Build the event at an index.
+     */
+    AccelerometerEvent toEvent(int index, AccelerometerEvent.Builder builder) {
+        builder.reset()
+                .setAbsoluteTimestampMillis(absoluteTimestamps.values[index])
+                .setX(x.values[index])
+                .setY(y.values[index])
+                .setZ(z.values[index]);
+        if (hasRelativeTimestamps.values[index]) {
+            builder.setRelativeTimestamp(relativeTimestamps.values[index]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Add all events to a batch, without creating them.
+     */
+    void addTo(AccelerometerEventBatch.Builder builder) {
+        for (int i = 0; i < size(); i++) {
+            if (hasRelativeTimestamps.values[i]) {
+                builder.add(absoluteTimestamps.values[i], relativeTimestamps.values[i], x.values[i], y.values[i], z.values[i]);
+            } else {
+                builder.add(absoluteTimestamps.values[i], x.values[i], y.values[i], z.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Write the events as one length-delimited message.
+     *
+     * @return The number of bytes written.
+     */
+    int writeDelimitedTo(CodedOutputStream output) throws IOException {
+        int size = size();
+        boolean mixed = relativeTimestampCount != 0 && relativeTimestampCount != size;
+        int absoluteTimestampsSize = computeDeltasSize(absoluteTimestamps, null);
+        int relativeTimestampsSize = computeDeltasSize(relativeTimestamps, hasRelativeTimestamps);
+        int floatsSize = size * FLOAT_SIZE;
+        int hasRelativeTimestampsSize = mixed ? size * BOOLEAN_SIZE : 0;
+        int messageSize = computeFieldSize(ThreeAxisSensorEventBatch.ABSOLUTE_TIMESTAMP_FIELD_NUMBER, absoluteTimestampsSize)
+                + computeFieldSize(ThreeAxisSensorEventBatch.RELATIVE_TIMESTAMP_FIELD_NUMBER, relativeTimestampsSize)
+                + computeFieldSize(ThreeAxisSensorEventBatch.X_FIELD_NUMBER, floatsSize)
+                + computeFieldSize(ThreeAxisSensorEventBatch.Y_FIELD_NUMBER, floatsSize)
+                + computeFieldSize(ThreeAxisSensorEventBatch.Z_FIELD_NUMBER, floatsSize)
+                + computeFieldSize(ThreeAxisSensorEventBatch.HAS_RELATIVE_TIMESTAMP_FIELD_NUMBER, hasRelativeTimestampsSize);
+
+        output.writeRawVarint32(messageSize);
+        writeDeltas(output, ThreeAxisSensorEventBatch.ABSOLUTE_TIMESTAMP_FIELD_NUMBER, absoluteTimestamps, null, absoluteTimestampsSize);
+        writeDeltas(output, ThreeAxisSensorEventBatch.RELATIVE_TIMESTAMP_FIELD_NUMBER, relativeTimestamps, hasRelativeTimestamps, relativeTimestampsSize);
+        writeFloats(output, ThreeAxisSensorEventBatch.X_FIELD_NUMBER, x, floatsSize);
+        writeFloats(output, ThreeAxisSensorEventBatch.Y_FIELD_NUMBER, y, floatsSize);
+        writeFloats(output, ThreeAxisSensorEventBatch.Z_FIELD_NUMBER, z, floatsSize);
+        if (mixed) {
+            writeFieldHeader(output, ThreeAxisSensorEventBatch.HAS_RELATIVE_TIMESTAMP_FIELD_NUMBER, hasRelativeTimestampsSize);
+            for (int i = 0; i < size; i++) {
+                output.writeBoolNoTag(hasRelativeTimestamps.values[i]);
+            }
+        }
+
+        return CodedOutputStream.computeRawVarint32Size(messageSize) + messageSize;
+    }
+
+    /**
+     * Replace the events with the next length-delimited message in the input.
+     *
+     * @return If a message was read, or false at the end of the input.
+     */
+    boolean readDelimitedFrom(CodedInputStream input) throws IOException {
+        clear();
+        if (input.isAtEnd()) {
+            return false;
+        }
+
+        int length = input.readRawVarint32();
+        if (length < 0 || length > MAX_MESSAGE_SIZE) {
+            throw new InvalidProtocolBufferException("Invalid batch message length " + length + ".");
+        }
+        int oldLimit = input.pushLimit(length);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ThreeAxisSensorEventBatch.ABSOLUTE_TIMESTAMP_FIELD_NUMBER:
+                    readLongs(input, tag, absoluteTimestamps);
+                    break;
+                case ThreeAxisSensorEventBatch.RELATIVE_TIMESTAMP_FIELD_NUMBER:
+                    readLongs(input, tag, relativeTimestamps);
+                    break;
+                case ThreeAxisSensorEventBatch.X_FIELD_NUMBER:
+                    readFloats(input, tag, x);
+                    break;
+                case ThreeAxisSensorEventBatch.Y_FIELD_NUMBER:
+                    readFloats(input, tag, y);
+                    break;
+                case ThreeAxisSensorEventBatch.Z_FIELD_NUMBER:
+                    readFloats(input, tag, z);
+                    break;
+                case ThreeAxisSensorEventBatch.HAS_RELATIVE_TIMESTAMP_FIELD_NUMBER:
+                    readBooleans(input, tag, hasRelativeTimestamps);
+                    break;
+                default:
+                    input.skipField(tag);
+            }
+        }
+        input.popLimit(oldLimit);
+        // The size limit is meant for single messages, not for endless streams of them
+        input.resetSizeCounter();
+
+        absoluteTimestamps.undoDeltas();
+        relativeTimestamps.undoDeltas();
+        spreadRelativeTimestamps();
+        return true;
+    }
+
+    /**
+     * Check the column sizes, and move the relative timestamps, which are read only for the events with one, to the
+     * index of their event.
+     */
+    private void spreadRelativeTimestamps() throws IOException {
+        int size = size();
+        if (x.size != size || y.size != size || z.size != size) {
+            throw new IOException("Invalid event batch, the number of timestamps and sample values differ.");
+        }
+        relativeTimestampCount = relativeTimestamps.size;
+        if (hasRelativeTimestamps.size == 0) {
+            if (relativeTimestampCount != 0 && relativeTimestampCount != size) {
+                throw new IOException("Invalid event batch, some relative timestamps are missing.");
+            }
+            hasRelativeTimestamps.ensureCapacity(size);
+            Arrays.fill(hasRelativeTimestamps.values, 0, size, relativeTimestampCount != 0);
+            hasRelativeTimestamps.size = size;
+            relativeTimestamps.ensureCapacity(size);
+            relativeTimestamps.size = size;
+            return;
+        }
+        if (hasRelativeTimestamps.size != size || hasRelativeTimestamps.count(true) != relativeTimestampCount) {
+            throw new IOException("Invalid event batch, the relative timestamps don't match their flags.");
+        }
+        relativeTimestamps.ensureCapacity(size);
+        int from = relativeTimestampCount;
+        for (int i = size - 1; i >= 0; i--) {
+            relativeTimestamps.values[i] = hasRelativeTimestamps.values[i] ? relativeTimestamps.values[--from] : 0;
+        }
+        relativeTimestamps.size = size;
+    }
+
+    private static int computeFieldSize(int fieldNumber, int dataSize) {
+        if (dataSize == 0) {
+            return 0;
+        }
+        return CodedOutputStream.computeTagSize(fieldNumber) + CodedOutputStream.computeRawVarint32Size(dataSize) + dataSize;
+    }
+
+    private static void writeFieldHeader(CodedOutputStream output, int fieldNumber, int dataSize) throws IOException {
+        output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeRawVarint32(dataSize);
+    }
+
+    /**
+     * Compute the size of the delta encoded values, leaving out those not in the filter, if any.
+     */
+    private static int computeDeltasSize(LongColumn column, BooleanColumn filter) {
+        int dataSize = 0;
+        long previous = 0;
+        for (int i = 0; i < column.size; i++) {
+            if (filter == null || filter.values[i]) {
+                dataSize += CodedOutputStream.computeSInt64SizeNoTag(column.values[i] - previous);
+                previous = column.values[i];
+            }
+        }
+        return dataSize;
+    }
+
+    private static void writeDeltas(CodedOutputStream output, int fieldNumber, LongColumn column, BooleanColumn filter,
+                                    int dataSize) throws IOException {
+        if (dataSize == 0) {
+            return;
+        }
+        writeFieldHeader(output, fieldNumber, dataSize);
+        long previous = 0;
+        for (int i = 0; i < column.size; i++) {
+            if (filter == null || filter.values[i]) {
+                output.writeSInt64NoTag(column.values[i] - previous);
+                previous = column.values[i];
+            }
+        }
+    }
+
+    private static void writeFloats(CodedOutputStream output, int fieldNumber, FloatColumn column, int dataSize) throws IOException {
+        if (dataSize == 0) {
+            return;
+        }
+        writeFieldHeader(output, fieldNumber, dataSize);
+        for (int i = 0; i < column.size; i++) {
+            output.writeFloatNoTag(column.values[i]);
+        }
+    }
+
+    private static int pushPackedLimit(CodedInputStream input) throws IOException {
+        int length = input.readRawVarint32();
+        // Checked here, as pushLimit can overflow on lengths near Integer.MAX_VALUE
+        if (length < 0 || length > input.getBytesUntilLimit()) {
+            throw new InvalidProtocolBufferException("Invalid packed field length " + length + ".");
+        }
+        return input.pushLimit(length);
+    }
+
+    private static void readLongs(CodedInputStream input, int tag, LongColumn column) throws IOException {
+        switch (tag & TAG_TYPE_MASK) {
+            case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+                int oldLimit = pushPackedLimit(input);
+                while (input.getBytesUntilLimit() > 0) {
+                    column.add(input.readSInt64());
+                }
+                input.popLimit(oldLimit);
+                break;
+            case WireFormat.WIRETYPE_VARINT:
+                column.add(input.readSInt64());
+                break;
+            default:
+                input.skipField(tag);
+        }
+    }
+
+    private static void readFloats(CodedInputStream input, int tag, FloatColumn column) throws IOException {
+        switch (tag & TAG_TYPE_MASK) {
+            case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+                int oldLimit = pushPackedLimit(input);
+                // The packed length is checked against the message's, so this is bounded by the maximum message size
+                column.ensureCapacity(column.size + input.getBytesUntilLimit() / FLOAT_SIZE);
+                while (input.getBytesUntilLimit() > 0) {
+                    column.add(input.readFloat());
+                }
+                input.popLimit(oldLimit);
+                break;
+            case WireFormat.WIRETYPE_FIXED32:
+                column.add(input.readFloat());
+                break;
+            default:
+                input.skipField(tag);
+        }
+    }
+
+    private static void readBooleans(CodedInputStream input, int tag, BooleanColumn column) throws IOException {
+        switch (tag & TAG_TYPE_MASK) {
+            case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+                int oldLimit = pushPackedLimit(input);
+                while (input.getBytesUntilLimit() > 0) {
+                    column.add(input.readBool());
+                }
+                input.popLimit(oldLimit);
+                break;
+            case WireFormat.WIRETYPE_VARINT:
+                column.add(input.readBool());
+                break;
+            default:
+                input.skipField(tag);
+        }
+    }
+
+    private static int grow(int length, int capacity) {
+        return Math.max(capacity, Math.max(length * 2, 1));
+    }
+
+    private static final class LongColumn {
+
+        private long[] values = new long[0];
+        private int size;
+
+        private void add(long value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+
+        private void undoDeltas() {
+            for (int i = 1; i < size; i++) {
+                values[i] += values[i - 1];
+            }
+        }
+    }
+
+    private static final class FloatColumn {
+
+        private float[] values = new float[0];
+        private int size;
+
+        private void add(float value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+    }
+
+    private static final class BooleanColumn {
+
+        private boolean[] values = new boolean[0];
+        private int size;
+
+        private void add(boolean value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+
+        private int count(boolean value) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.protobuf.CodedInputStream;
+import org.jsense.AccelerometerEvent;
+import org.jsense.AccelerometerEventBatch;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@link org.jsense.serialize.Deserializer} that deserializes {@link org.jsense.AccelerometerEvent}s from the
+ * Protocol Buffers batch format written by {@link org.jsense.serialize.PbAccelerometerEventBatchSerializer}.
+ * <p>
+ * Messages are decoded lazily, one batch at a time, as the returned {@link java.lang.Iterable} is iterated. The values
+ * of a batch are decoded into reused primitive arrays, so only the events themselves are created. With
+ * {@link #deserializeBatches()}, each message is instead read into an {@link org.jsense.AccelerometerEventBatch},
+ * without creating any events. The {@link java.lang.Iterable} can only be iterated once, and an
+ * {@link java.io.IOException} during iteration is rethrown wrapped in a {@link java.lang.RuntimeException}.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.serialize.PbAccelerometerEventBatchSerializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class PbAccelerometerEventBatchDeserializer implements Deserializer<AccelerometerEvent> {
+
+    private final InputStream source;
+    private final PbAccelerometerEventBatchBuffer batch = new PbAccelerometerEventBatchBuffer();
+    private CodedInputStream input;
+    private boolean closed;
+
+    public PbAccelerometerEventBatchDeserializer(InputStream source) {
+        this.source = Preconditions.checkNotNull(source);
+    }
+
+    @Override
+    public Iterable<AccelerometerEvent> deserialize() throws IOException {
+        checkOpen();
+
+        return new SingleUseIterable<AccelerometerEvent>(new EventIterator());
+    }
+
+    /**
+     * Deserializes the messages as {@link org.jsense.AccelerometerEventBatch}es, one per message.
+     *
+     * @return An {@link java.lang.Iterable} over the batches.
+     * @throws IOException If there is a problem deserializing. In particular, an {@link java.io.IOException} is thrown if the {@code Deserializer} is closed.
+     */
+    public Iterable<AccelerometerEventBatch> deserializeBatches() throws IOException {
+        checkOpen();
+
+        return new SingleUseIterable<AccelerometerEventBatch>(new BatchIterator());
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+        closed = true;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+
+        if (input == null) {
+            input = CodedInputStream.newInstance(source);
+        }
+    }
+
+    private boolean readBatch() {
+        try {
+            return batch.readDelimitedFrom(input);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * An {@link java.util.Iterator} that decodes a message whenever the events of the previous one are used up.
+     */
+    private final class EventIterator extends AbstractIterator<AccelerometerEvent> {
+
+        private final AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+        private int index;
+
+        @Override
+        protected AccelerometerEvent computeNext() {
+            // Loop, as a message may hold no events
+            while (index == batch.size()) {
+                if (!readBatch()) {
+                    return endOfData();
+                }
+                index = 0;
+            }
+            return batch.toEvent(index++, builder);
+        }
+    }
+
+    /**
+     * An {@link java.util.Iterator} that decodes one message per batch.
+     */
+    private final class BatchIterator extends AbstractIterator<AccelerometerEventBatch> {
+
+        private final AccelerometerEventBatch.Builder builder = AccelerometerEventBatch.newBuilder();
+
+        @Override
+        protected AccelerometerEventBatch computeNext() {
+            if (!readBatch()) {
+                return endOfData();
+            }
+
+            batch.addTo(builder.reset());
+            return builder.build();
+        }
+    }
+}
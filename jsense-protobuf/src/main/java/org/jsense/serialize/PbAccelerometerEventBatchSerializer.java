@@ -0,0 +1,127 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.protobuf.CodedOutputStream;
+import org.jsense.AccelerometerEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@link org.jsense.serialize.Serializer} that serializes {@link org.jsense.AccelerometerEvent}s into Protocol Buffers
+ * format, many events per message.
+ * <p>
+ * Events are collected into batches, which are written length-delimited as {@code ThreeAxisSensorEventBatch} messages,
+ * see {@code proto_model.proto}. Each value of an event is stored in a packed field, with delta encoded timestamps,
+ * so there is no length prefix or field tag per event. For regularly sampled data, this takes a little over half the space of
+ * {@link org.jsense.serialize.PbAccelerometerEventSerializer}, and decodes faster.
+ * <p>
+ * A batch is written when it is full, and when the {@code Serializer} is flushed or closed, so flushing often gives
+ * smaller batches.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @see org.jsense.serialize.PbAccelerometerEventBatchDeserializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class PbAccelerometerEventBatchSerializer implements Serializer<AccelerometerEvent> {
+
+    /**
+     * The default number of events in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    // At most 33 bytes per event, so a full batch stays below the maximum message size
+    private static final int MAX_BATCH_SIZE = 1 << 20;
+
+    private final OutputStream sink;
+    private final CodedOutputStream output;
+    private final int batchSize;
+    private final PbAccelerometerEventBatchBuffer batch = new PbAccelerometerEventBatchBuffer();
+    private boolean closed;
+
+    public PbAccelerometerEventBatchSerializer(OutputStream sink) {
+        this(sink, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a {@code PbAccelerometerEventBatchSerializer} with a given batch size.
+     *
+     * @param sink The stream to write the events to.
+     * @param batchSize The maximum number of events in a batch, which must be positive and at most 1048576.
+     */
+    public PbAccelerometerEventBatchSerializer(OutputStream sink, int batchSize) {
+        Preconditions.checkArgument(batchSize > 0 && batchSize <= MAX_BATCH_SIZE, "Batch size must be positive and at most 1048576.");
+        this.sink = Preconditions.checkNotNull(sink);
+        this.output = CodedOutputStream.newInstance(sink, BUFFER_SIZE);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
+        Preconditions.checkNotNull(event);
+
+        checkClosed();
+
+        addEvent(event);
+
+        return this;
+    }
+
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(Iterable<AccelerometerEvent> events) throws IOException {
+        Preconditions.checkNotNull(events);
+        Preconditions.checkState(!Iterables.isEmpty(events));
+
+        checkClosed();
+
+        for (AccelerometerEvent event : events) {
+            addEvent(Preconditions.checkNotNull(event));
+        }
+
+        return this;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        checkClosed();
+
+        writeBatch();
+        output.flush();
+        sink.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            writeBatch();
+            output.flush();
+        }
+        sink.close();
+        closed = true;
+    }
+
+    private void addEvent(AccelerometerEvent event) throws IOException {
+        batch.add(event);
+        if (batch.size() == batchSize) {
+            writeBatch();
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        if (batch.size() > 0) {
+            batch.writeDelimitedTo(output);
+            batch.clear();
+        }
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.jsense.AccelerometerEvent;
+import org.jsense.serialize.gen.ProtoModel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A {@link org.jsense.serialize.ChunkDecoder} for {@link org.jsense.AccelerometerEvent}s in Protocol Buffers format,
+ * as written by {@link org.jsense.serialize.PbAccelerometerEventSerializer}.
+ * <p>
+ * Chunks are appended to a reused byte buffer, and every complete length-delimited message in it is decoded with a
+ * reused message builder. A message or length prefix split between chunks is kept until the rest of it arrives.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class PbAccelerometerEventChunkDecoder implements ChunkDecoder<AccelerometerEvent> {
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int MAX_VARINT32_LENGTH = 5;
+    private static final int VARINT_PAYLOAD_MASK = 0x7f;
+    private static final int VARINT_CONTINUATION_BIT = 0x80;
+    private static final int VARINT_PAYLOAD_BITS = 7;
+    private static final int MAX_MESSAGE_LENGTH = 64 << 20;
+
+    private final Listener<AccelerometerEvent> listener;
+    private final ProtoModel.ThreeAxisSensorEvent.Builder protoBuilder = ProtoModel.ThreeAxisSensorEvent.newBuilder();
+    private final AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int limit;
+    private int prefixLength;
+
+    public PbAccelerometerEventChunkDecoder(Listener<AccelerometerEvent> listener) {
+        this.listener = Preconditions.checkNotNull(listener);
+    }
+
+    @Override
+    public void decode(ByteBuffer chunk) throws IOException {
+        int length = chunk.remaining();
+        if (limit + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(limit + length, buffer.length * 2));
+        }
+        chunk.get(buffer, limit, length);
+        limit += length;
+
+        int position = 0;
+        while (true) {
+            int messageLength = readLength(position);
+            if (messageLength < 0 || position + prefixLength + messageLength > limit) {
+                break;
+            }
+            position += prefixLength;
+            decodeMessage(position, messageLength);
+            position += messageLength;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (limit > 0) {
+            limit = 0;
+            throw new EOFException("The input ends in the middle of a message.");
+        }
+    }
+
+    /**
+     * Read the varint length prefix of the message at {@code position}, and set {@code prefixLength} to its length.
+     *
+     * @return The length of the message, or -1 if the prefix isn't complete yet.
+     */
+    private int readLength(int position) throws InvalidProtocolBufferException {
+        int result = 0;
+        for (int i = 0; i < MAX_VARINT32_LENGTH; i++) {
+            if (position + i == limit) {
+                return -1;
+            }
+            byte b = buffer[position + i];
+            result |= (b & VARINT_PAYLOAD_MASK) << (VARINT_PAYLOAD_BITS * i);
+            if ((b & VARINT_CONTINUATION_BIT) == 0) {
+                if (result < 0 || result > MAX_MESSAGE_LENGTH) {
+                    throw new InvalidProtocolBufferException("Invalid message length " + result + ".");
+                }
+                prefixLength = i + 1;
+                return result;
+            }
+        }
+        throw new InvalidProtocolBufferException("Invalid message length, the varint is too long.");
+    }
+
+    private void decodeMessage(int offset, int length) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(buffer, offset, length);
+        protoBuilder.clear().mergeFrom(input);
+        builder.reset()
+                .setAbsoluteTimestampMillis(protoBuilder.getAbsoluteTimestamp())
+                .setX(protoBuilder.getX())
+                .setY(protoBuilder.getY())
+                .setZ(protoBuilder.getZ());
+        if (protoBuilder.hasRelativeTimestamp()) {
+            builder.setRelativeTimestamp(protoBuilder.getRelativeTimestamp());
+        }
+        listener.onValue(builder.build());
+    }
+}
@@ -2,19 +2,33 @@ package org.jsense.serialize;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
-import org.joda.time.Instant;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import org.joda.time.ReadableInstant;
 import org.jsense.AccelerometerEvent;
+import org.jsense.MutableAccelerometerEvent;
+import org.jsense.ReadableAccelerometerEvent;
 import org.jsense.serialize.gen.ProtoModel;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
 
 /**
  * A {@link org.jsense.serialize.Deserializer} that deserializes {@link org.jsense.AccelerometerEvent}s from Protocol Buffers format.
  * <p>
- * Currently loads all data into memory.
+ * Messages are decoded lazily, one length-delimited message at a time, as the returned {@link java.lang.Iterable} is
+ * iterated. A single {@link com.google.protobuf.CodedInputStream} is reused for all messages, so this also works on
+ * endless sources such as sockets or pipes. The fields are decoded directly from it, without creating a message
+ * object. The {@link java.lang.Iterable} can only be iterated once, and an {@link java.io.IOException} during
+ * iteration is rethrown wrapped in a {@link java.lang.RuntimeException}.
+ * <p>
+ * Consumers that don't keep the events can read them with {@link #cursor()} instead, which doesn't allocate per event.
+ * <p>
+ * A time range can be read with the help of a {@link org.jsense.serialize.TimestampIndex}, see
+ * {@link #deserialize(TimestampIndex, ReadableInstant, ReadableInstant)}.
  * <p>
  * This class is not thread-safe.
  *
@@ -24,7 +38,17 @@ import java.util.List;
 @Beta
 public final class PbAccelerometerEventDeserializer implements Deserializer<AccelerometerEvent> {
 
+    private static final int TAG_TYPE_BITS = 3;
+    private static final int ABSOLUTE_TIMESTAMP_TAG =
+            ProtoModel.ThreeAxisSensorEvent.ABSOLUTE_TIMESTAMP_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+    private static final int RELATIVE_TIMESTAMP_TAG =
+            ProtoModel.ThreeAxisSensorEvent.RELATIVE_TIMESTAMP_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_VARINT;
+    private static final int X_TAG = ProtoModel.ThreeAxisSensorEvent.X_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED32;
+    private static final int Y_TAG = ProtoModel.ThreeAxisSensorEvent.Y_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED32;
+    private static final int Z_TAG = ProtoModel.ThreeAxisSensorEvent.Z_FIELD_NUMBER << TAG_TYPE_BITS | WireFormat.WIRETYPE_FIXED32;
+
     private final InputStream source;
+    private CodedInputStream input;
     private boolean closed;
 
     public PbAccelerometerEventDeserializer(InputStream source) {
@@ -37,21 +61,58 @@ public final class PbAccelerometerEventDeserializer implements Deserializer<Acce
             throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
         }
 
-        ProtoModel.ThreeAxisSensorEvent proto;
-        AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
-        List<AccelerometerEvent> events = Lists.newArrayList();
-        while ((proto = ProtoModel.ThreeAxisSensorEvent.parseDelimitedFrom(source)) != null) {
-            builder.setAbsoluteTimestamp(new Instant(proto.getAbsoluteTimestamp()))
-                    .setX(proto.getX())
-                    .setY(proto.getY())
-                    .setZ(proto.getZ());
-            if (proto.hasRelativeTimestamp()) {
-                builder.setRelativeTimestamp(proto.getRelativeTimestamp());
-            }
-            events.add(builder.build());
-            builder.reset();
+        if (input == null) {
+            input = CodedInputStream.newInstance(source);
+        }
+
+        return new SingleUseIterable<AccelerometerEvent>(new EventIterator());
+    }
+
+    /**
+     * Deserializes the events into a single reused {@link org.jsense.MutableAccelerometerEvent}, which is filled again
+     * for every message, so reading allocates nothing per event.
+     *
+     * @return A {@link org.jsense.serialize.Cursor} over the events.
+     * @throws IOException If the {@code Deserializer} is closed.
+     */
+    public Cursor<ReadableAccelerometerEvent> cursor() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
         }
-        return events;
+
+        if (input == null) {
+            input = CodedInputStream.newInstance(source);
+        }
+
+        return new EventCursor();
+    }
+
+    /**
+     * Deserializes the events with an absolute timestamp in {@code [from, to)}, using an index to skip to shortly
+     * before {@code from}. The source must not have been read from yet, and skipping in it should be cheap, as it is
+     * for a {@link java.io.FileInputStream}. The cost is then proportional to the size of the range, not to the size of
+     * the source.
+     *
+     * @param index The index written with the events.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return An {@link java.lang.Iterable} over the events in the range.
+     * @throws IOException If there is a problem deserializing. In particular, an {@link java.io.IOException} is thrown if the {@code Deserializer} is closed.
+     * @see PbAccelerometerEventSerializer#PbAccelerometerEventSerializer(java.io.OutputStream, java.io.OutputStream)
+     */
+    public Iterable<AccelerometerEvent> deserialize(TimestampIndex index, ReadableInstant from, ReadableInstant to) throws IOException {
+        Preconditions.checkNotNull(index);
+        Preconditions.checkNotNull(from);
+        Preconditions.checkNotNull(to);
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+        Preconditions.checkState(input == null, "The source has already been read from.");
+
+        ByteStreams.skipFully(source, index.getOffset(from.getMillis()));
+        input = CodedInputStream.newInstance(source);
+
+        return new SingleUseIterable<AccelerometerEvent>(new TimeRangeIterator(new EventIterator(), from.getMillis(), to.getMillis()));
     }
 
     @Override
@@ -59,4 +120,90 @@ public final class PbAccelerometerEventDeserializer implements Deserializer<Acce
         source.close();
         closed = true;
     }
+
+    /**
+     * Decode the next length-delimited message into {@code event}, reading the fields directly, like the generated
+     * code does. Unknown fields are skipped, and fields that aren't set are zero.
+     *
+     * @return The {@code event}, for method chaining.
+     */
+    private MutableAccelerometerEvent readEvent(MutableAccelerometerEvent event) throws IOException {
+        event.setAbsoluteTimestampMillis(0).clearRelativeTimestamp().setX(0).setY(0).setZ(0);
+        int oldLimit = input.pushLimit(input.readRawVarint32());
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag) {
+                case ABSOLUTE_TIMESTAMP_TAG:
+                    event.setAbsoluteTimestampMillis(input.readInt64());
+                    break;
+                case RELATIVE_TIMESTAMP_TAG:
+                    event.setRelativeTimestamp(input.readInt64());
+                    break;
+                case X_TAG:
+                    event.setX(input.readFloat());
+                    break;
+                case Y_TAG:
+                    event.setY(input.readFloat());
+                    break;
+                case Z_TAG:
+                    event.setZ(input.readFloat());
+                    break;
+                default:
+                    input.skipField(tag);
+            }
+        }
+        input.popLimit(oldLimit);
+        // The size limit is meant for single messages, not for endless streams of them
+        input.resetSizeCounter();
+        return event;
+    }
+
+    /**
+     * An {@link java.util.Iterator} that decodes one length-delimited message per event.
+     */
+    private final class EventIterator extends AbstractIterator<AccelerometerEvent> {
+
+        private final MutableAccelerometerEvent event = new MutableAccelerometerEvent();
+
+        @Override
+        protected AccelerometerEvent computeNext() {
+            try {
+                if (input.isAtEnd()) {
+                    return endOfData();
+                }
+                return readEvent(event).toAccelerometerEvent();
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    /**
+     * A {@link org.jsense.serialize.Cursor} that decodes one length-delimited message per event into the same event.
+     */
+    private final class EventCursor implements Cursor<ReadableAccelerometerEvent> {
+
+        private final MutableAccelerometerEvent event = new MutableAccelerometerEvent();
+        private boolean valid;
+
+        @Override
+        public boolean next() throws IOException {
+            if (closed) {
+                throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+            }
+            valid = false;
+            if (input.isAtEnd()) {
+                return false;
+            }
+            readEvent(event);
+            valid = true;
+            return true;
+        }
+
+        @Override
+        public ReadableAccelerometerEvent get() {
+            Preconditions.checkState(valid, "There is no current event.");
+            return event;
+        }
+    }
 }
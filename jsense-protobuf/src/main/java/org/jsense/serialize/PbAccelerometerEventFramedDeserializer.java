@@ -0,0 +1,301 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import org.jsense.AccelerometerEvent;
+import org.jsense.serialize.gen.ProtoModel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A {@link org.jsense.serialize.Deserializer} that deserializes {@link org.jsense.AccelerometerEvent}s from the framed
+ * Protocol Buffers container written by {@link org.jsense.serialize.PbAccelerometerEventFramedSerializer}.
+ * <p>
+ * Blocks are read and checked one at a time, as the returned {@link java.lang.Iterable} is iterated. A block that is
+ * damaged, because its header or checksum doesn't match, its events can't be decoded, or the file ends within it, is
+ * skipped, and reading continues at the next sync marker, instead of failing. The number of skipped blocks is available
+ * from {@link #getSkippedBlockCount()}. The {@link java.lang.Iterable} can only be iterated once, and an
+ * {@link java.io.IOException} during iteration is rethrown wrapped in a {@link java.lang.RuntimeException}.
+ * <p>
+ * A file can be split at arbitrary byte offsets, with a {@code Deserializer} for each split, see
+ * {@link #PbAccelerometerEventFramedDeserializer(java.io.File, long, long)}. Every block is read by exactly one of them.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @see org.jsense.serialize.PbAccelerometerEventFramedSerializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class PbAccelerometerEventFramedDeserializer implements Deserializer<AccelerometerEvent> {
+
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private final InputStream source;
+    private final long start;
+    private final long end;
+    private final byte[] sync = new byte[PbFramedFormat.SYNC_SIZE];
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private ByteBuffer view = ByteBuffer.wrap(buffer).order(PbFramedFormat.BYTE_ORDER);
+    private int position;
+    private int limit;
+    private long bufferOffset;
+    private boolean headerRead;
+    private long skippedBlockCount;
+    private boolean closed;
+
+    public PbAccelerometerEventFramedDeserializer(InputStream source) {
+        this.source = Preconditions.checkNotNull(source);
+        this.start = PbFramedFormat.HEADER_SIZE;
+        this.end = Long.MAX_VALUE;
+    }
+
+    /**
+     * Create a {@code PbAccelerometerEventFramedDeserializer} for a split of a file, which reads the blocks starting in
+     * {@code [start, end)}. The splits of a file must together cover it, and may be read in parallel.
+     *
+     * @param file The file to read.
+     * @param start The start of the split, inclusive.
+     * @param end The end of the split, exclusive.
+     * @throws IOException If the file can't be opened.
+     */
+    public PbAccelerometerEventFramedDeserializer(File file, long start, long end) throws IOException {
+        Preconditions.checkNotNull(file);
+        Preconditions.checkArgument(start >= 0 && start <= end, "Start must be non-negative and at most end.");
+        this.source = new FileInputStream(file);
+        this.start = Math.max(start, PbFramedFormat.HEADER_SIZE);
+        this.end = end;
+    }
+
+    @Override
+    public Iterable<AccelerometerEvent> deserialize() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+
+        if (!headerRead) {
+            readHeader();
+        }
+
+        return new SingleUseIterable<AccelerometerEvent>(new BlockIterator());
+    }
+
+    /**
+     * Get the number of damaged blocks skipped so far.
+     *
+     * @return The number of skipped blocks.
+     */
+    public long getSkippedBlockCount() {
+        return skippedBlockCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+        closed = true;
+    }
+
+    private void readHeader() throws IOException {
+        if (!ensure(PbFramedFormat.HEADER_SIZE)) {
+            throw new IOException("Not a framed Protocol Buffers file, the header is truncated.");
+        }
+        PbFramedFormat.checkHeader(view);
+        System.arraycopy(buffer, PbFramedFormat.SYNC_OFFSET, sync, 0, PbFramedFormat.SYNC_SIZE);
+        position = PbFramedFormat.HEADER_SIZE;
+        long skip = start - offset();
+        if (skip <= limit - position) {
+            position += skip;
+        } else {
+            ByteStreams.skipFully(source, skip - (limit - position));
+            bufferOffset = start;
+            position = 0;
+            limit = 0;
+        }
+        headerRead = true;
+    }
+
+    /**
+     * The position in the source of the next byte to read.
+     */
+    private long offset() {
+        return bufferOffset + position;
+    }
+
+    /**
+     * Make sure that at least {@code length} bytes are buffered from the current position, unless the source ends.
+     *
+     * @return Whether the bytes are buffered.
+     */
+    private boolean ensure(int length) throws IOException {
+        if (limit - position >= length) {
+            return true;
+        }
+        if (length > buffer.length) {
+            buffer = Arrays.copyOfRange(buffer, position, position + Math.max(length, buffer.length * 2));
+            view = ByteBuffer.wrap(buffer).order(PbFramedFormat.BYTE_ORDER);
+        } else {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+        }
+        bufferOffset += position;
+        limit -= position;
+        position = 0;
+        while (limit < length) {
+            int read = source.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    /**
+     * Move to the next sync marker that starts before the end of the split.
+     *
+     * @return Whether a sync marker was found.
+     */
+    private boolean findSync() throws IOException {
+        while (offset() < end && ensure(PbFramedFormat.SYNC_SIZE)) {
+            int last = (int) Math.min(limit - PbFramedFormat.SYNC_SIZE, end - 1 - bufferOffset);
+            for (; position <= last; position++) {
+                if (isSyncAt(position)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isSyncAt(int index) {
+        for (int i = 0; i < PbFramedFormat.SYNC_SIZE; i++) {
+            if (buffer[index + i] != sync[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An {@link java.util.Iterator} that reads and checks one block at a time, and returns its events.
+     */
+    private final class BlockIterator extends AbstractIterator<AccelerometerEvent> {
+
+        private final ProtoModel.ThreeAxisSensorEvent.Builder protoBuilder = ProtoModel.ThreeAxisSensorEvent.newBuilder();
+        private final AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+        private Iterator<AccelerometerEvent> events = Collections.<AccelerometerEvent>emptyList().iterator();
+        private boolean synced;
+
+        @Override
+        protected AccelerometerEvent computeNext() {
+            Preconditions.checkState(!closed, Constants.DESERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+            while (!events.hasNext()) {
+                try {
+                    List<AccelerometerEvent> block = readBlock();
+                    if (block == null) {
+                        return endOfData();
+                    }
+                    events = block.iterator();
+                } catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+            return events.next();
+        }
+
+        /**
+         * Read the next intact block of the split.
+         *
+         * @return The events of the block, or {@code null} if there are no more blocks.
+         */
+        private List<AccelerometerEvent> readBlock() throws IOException {
+            while (true) {
+                if (!synced) {
+                    if (!findSync()) {
+                        return null;
+                    }
+                    synced = true;
+                }
+                if (offset() >= end || !ensure(1)) {
+                    return null;
+                }
+                List<AccelerometerEvent> block = decodeBlock();
+                if (block != null) {
+                    return block;
+                }
+                skippedBlockCount++;
+                position++;
+                synced = false;
+            }
+        }
+
+        /**
+         * Decode the block at the current position, and move past it.
+         *
+         * @return The events of the block, or {@code null} if it is damaged, without moving.
+         */
+        private List<AccelerometerEvent> decodeBlock() throws IOException {
+            if (!ensure(PbFramedFormat.BLOCK_HEADER_SIZE) || !isSyncAt(position)) {
+                return null;
+            }
+            int count = view.getInt(position + PbFramedFormat.COUNT_OFFSET);
+            int length = view.getInt(position + PbFramedFormat.LENGTH_OFFSET);
+            if (count < 0 || length < 0 || length > PbFramedFormat.MAX_BLOCK_SIZE || count > length) {
+                return null;
+            }
+            if (!ensure(PbFramedFormat.BLOCK_HEADER_SIZE + length)) {
+                return null;
+            }
+            int blockStart = position + PbFramedFormat.BLOCK_HEADER_SIZE;
+            int checksum = view.getInt(position + PbFramedFormat.CHECKSUM_OFFSET);
+            if (checksum != PbFramedFormat.checksum(buffer, position, buffer, blockStart, length)) {
+                return null;
+            }
+
+            List<AccelerometerEvent> block = Lists.newArrayListWithCapacity(count);
+            CodedInputStream input = CodedInputStream.newInstance(buffer, blockStart, length);
+            try {
+                while (!input.isAtEnd()) {
+                    block.add(readEvent(input));
+                }
+            } catch (IOException e) {
+                return null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (block.size() != count) {
+                return null;
+            }
+            position = blockStart + length;
+            return block;
+        }
+
+        private AccelerometerEvent readEvent(CodedInputStream input) throws IOException {
+            int length = input.readRawVarint32();
+            int oldLimit = input.pushLimit(length);
+            protoBuilder.clear().mergeFrom(input);
+            input.popLimit(oldLimit);
+
+            builder.reset()
+                    .setAbsoluteTimestampMillis(protoBuilder.getAbsoluteTimestamp())
+                    .setX(protoBuilder.getX())
+                    .setY(protoBuilder.getY())
+                    .setZ(protoBuilder.getZ());
+            if (protoBuilder.hasRelativeTimestamp()) {
+                builder.setRelativeTimestamp(protoBuilder.getRelativeTimestamp());
+            }
+            return builder.build();
+        }
+    }
+}
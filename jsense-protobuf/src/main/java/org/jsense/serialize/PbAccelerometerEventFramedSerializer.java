@@ -0,0 +1,177 @@
+package org.jsense.serialize;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.protobuf.CodedOutputStream;
+import org.jsense.AccelerometerEvent;
+import org.jsense.serialize.gen.ProtoModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * A {@link org.jsense.serialize.Serializer} that serializes {@link org.jsense.AccelerometerEvent}s into a framed
+ * Protocol Buffers container, which can be split for parallel reading, and recovered when damaged.
+ * <p>
+ * Events are written length-delimited, like {@link org.jsense.serialize.PbAccelerometerEventSerializer} does, into
+ * blocks. Every block starts with a sync marker, and has a header with its length and a checksum, see
+ * {@code PbFramedFormat}. A block is written when it reaches the block size, 64 KB by default, and when the
+ * {@code Serializer} is flushed or closed, so flushing often gives smaller blocks. The sync marker is random for every
+ * file, and the overhead is 28 bytes per block.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @see org.jsense.serialize.PbAccelerometerEventFramedDeserializer
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class PbAccelerometerEventFramedSerializer implements Serializer<AccelerometerEvent> {
+
+    /**
+     * The default size of a block, in bytes.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    private final OutputStream sink;
+    private final int blockSize;
+    private final byte[] sync = new byte[PbFramedFormat.SYNC_SIZE];
+    private final BlockBuffer block;
+    private final CodedOutputStream output;
+    private final ByteBuffer blockHeader = ByteBuffer.allocate(PbFramedFormat.BLOCK_HEADER_SIZE).order(PbFramedFormat.BYTE_ORDER);
+    private final ProtoModel.ThreeAxisSensorEvent.Builder builder = ProtoModel.ThreeAxisSensorEvent.newBuilder();
+    private int blockLength;
+    private int blockCount;
+    private boolean headerWritten;
+    private boolean closed;
+
+    public PbAccelerometerEventFramedSerializer(OutputStream sink) {
+        this(sink, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a {@code PbAccelerometerEventFramedSerializer} with a given block size.
+     *
+     * @param sink The stream to write the events to.
+     * @param blockSize The size in bytes at which a block is written, which must be positive and at most 64 MB.
+     */
+    public PbAccelerometerEventFramedSerializer(OutputStream sink, int blockSize) {
+        Preconditions.checkArgument(blockSize > 0 && blockSize <= PbFramedFormat.MAX_BLOCK_SIZE / 2,
+                "Block size must be positive and at most 32 MB.");
+        this.sink = Preconditions.checkNotNull(sink);
+        this.blockSize = blockSize;
+        this.block = new BlockBuffer(blockSize);
+        this.output = CodedOutputStream.newInstance(block, blockSize);
+        UUID uuid = UUID.randomUUID();
+        ByteBuffer.wrap(sync).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
+        Preconditions.checkNotNull(event);
+
+        checkClosed();
+
+        addEvent(event);
+
+        return this;
+    }
+
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(Iterable<AccelerometerEvent> events) throws IOException {
+        Preconditions.checkNotNull(events);
+        Preconditions.checkState(!Iterables.isEmpty(events));
+
+        checkClosed();
+
+        for (AccelerometerEvent event : events) {
+            addEvent(Preconditions.checkNotNull(event));
+        }
+
+        return this;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        checkClosed();
+
+        writeBlock();
+        sink.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            writeBlock();
+        }
+        sink.close();
+        closed = true;
+    }
+
+    private void addEvent(AccelerometerEvent event) throws IOException {
+        builder.setAbsoluteTimestamp(event.getAbsoluteTimestampMillis())
+                .setX(event.getX())
+                .setY(event.getY())
+                .setZ(event.getZ());
+        if (event.hasRelativeTimestamp()) {
+            builder.setRelativeTimestamp(event.getRelativeTimestamp());
+        }
+        ProtoModel.ThreeAxisSensorEvent proto = builder.build();
+        builder.clear();
+        int size = proto.getSerializedSize();
+        output.writeRawVarint32(size);
+        proto.writeTo(output);
+        blockLength += CodedOutputStream.computeRawVarint32Size(size) + size;
+        blockCount++;
+        if (blockLength >= blockSize) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Write the header if not written yet, and the block if it has any events.
+     */
+    private void writeBlock() throws IOException {
+        if (!headerWritten) {
+            ByteBuffer header = ByteBuffer.allocate(PbFramedFormat.HEADER_SIZE).order(PbFramedFormat.BYTE_ORDER);
+            header.putInt(PbFramedFormat.MAGIC).putInt(PbFramedFormat.VERSION).put(sync);
+            sink.write(header.array());
+            headerWritten = true;
+        }
+        if (blockCount == 0) {
+            return;
+        }
+        output.flush();
+        blockHeader.clear();
+        blockHeader.put(sync).putInt(blockCount).putInt(blockLength);
+        blockHeader.putInt(PbFramedFormat.checksum(blockHeader.array(), 0, block.array(), 0, blockLength));
+        sink.write(blockHeader.array());
+        sink.write(block.array(), 0, blockLength);
+        block.reset();
+        blockLength = 0;
+        blockCount = 0;
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+    }
+
+    /**
+     * A {@link java.io.ByteArrayOutputStream} giving access to its array, to write blocks without copying.
+     */
+    private static final class BlockBuffer extends ByteArrayOutputStream {
+
+        private BlockBuffer(int size) {
+            super(size);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+}
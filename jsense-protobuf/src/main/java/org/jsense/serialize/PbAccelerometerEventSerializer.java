@@ -1,10 +1,7 @@
 package org.jsense.serialize;
 
 import com.google.common.annotations.Beta;
-import com.google.common.base.Preconditions;
-import com.google.common.collect.Iterables;
 import org.jsense.AccelerometerEvent;
-import org.jsense.serialize.gen.ProtoModel;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -12,7 +9,14 @@ import java.io.OutputStream;
 /**
  * A {@link org.jsense.serialize.Serializer} that serializes {@link org.jsense.AccelerometerEvent}s into Protocol Buffers format.
  * <p>
- * This class is thread-safe.
+ * Messages are written length-delimited, as with {@link com.google.protobuf.MessageLite#writeDelimitedTo(java.io.OutputStream)},
+ * into a buffer, which is written to the sink when full or flushed.
+ * <p>
+ * Optionally, a {@link org.jsense.serialize.TimestampIndex} is written to a separate sidecar stream, for reading time
+ * ranges with {@link PbAccelerometerEventDeserializer#deserialize(TimestampIndex, org.joda.time.ReadableInstant, org.joda.time.ReadableInstant)}.
+ * <p>
+ * This class is thread-safe. When only one thread writes, {@link #newSingleWriterSerializer(java.io.OutputStream)}
+ * gives a {@link org.jsense.serialize.Serializer} with the same output that skips the locking.
  *
  * @see org.jsense.serialize.PbAccelerometerEventDeserializer
  * @author Markus Wüstenberg
@@ -20,69 +24,67 @@ import java.io.OutputStream;
 @Beta
 public final class PbAccelerometerEventSerializer implements Serializer<AccelerometerEvent> {
 
-    private final OutputStream sink;
-    private boolean closed;
-
-    private final ProtoModel.ThreeAxisSensorEvent.Builder builder = ProtoModel.ThreeAxisSensorEvent.newBuilder();
+    private final PbAccelerometerEventWriter writer;
 
     public PbAccelerometerEventSerializer(OutputStream sink) {
-        this.sink = Preconditions.checkNotNull(sink);
+        writer = new PbAccelerometerEventWriter(sink);
     }
 
-    @Override
-    public synchronized Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
-        Preconditions.checkNotNull(event);
+    /**
+     * Create a {@code PbAccelerometerEventSerializer} that also writes a {@link org.jsense.serialize.TimestampIndex} of
+     * the events. The events must be serialized in order of absolute timestamp.
+     *
+     * @param sink The stream to write the events to.
+     * @param indexSink The stream to write the index to.
+     */
+    public PbAccelerometerEventSerializer(OutputStream sink, OutputStream indexSink) {
+        writer = new PbAccelerometerEventWriter(sink, indexSink);
+    }
 
-        checkClosed();
+    /**
+     * Create a {@link org.jsense.serialize.Serializer} with the same output as a {@code PbAccelerometerEventSerializer},
+     * which is not thread-safe. It must only be used by one thread at a time, such as the single writer at the end of a
+     * pipeline, and saves the cost of locking on every call.
+     *
+     * @param sink The stream to write the events to.
+     * @return The {@link org.jsense.serialize.Serializer}.
+     */
+    public static Serializer<AccelerometerEvent> newSingleWriterSerializer(OutputStream sink) {
+        return new PbAccelerometerEventWriter(sink);
+    }
 
-        writeEvent(event);
+    /**
+     * Create a {@link org.jsense.serialize.Serializer} like {@link #newSingleWriterSerializer(java.io.OutputStream)},
+     * which also writes a {@link org.jsense.serialize.TimestampIndex} of the events. The events must be serialized in
+     * order of absolute timestamp.
+     *
+     * @param sink The stream to write the events to.
+     * @param indexSink The stream to write the index to.
+     * @return The {@link org.jsense.serialize.Serializer}.
+     */
+    public static Serializer<AccelerometerEvent> newSingleWriterSerializer(OutputStream sink, OutputStream indexSink) {
+        return new PbAccelerometerEventWriter(sink, indexSink);
+    }
 
+    @Override
+    public synchronized Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
+        writer.serialize(event);
         return this;
     }
 
     @Override
     public synchronized Serializer<AccelerometerEvent> serialize(Iterable<AccelerometerEvent> events) throws IOException {
-        Preconditions.checkNotNull(events);
-        Preconditions.checkState(!Iterables.isEmpty(events));
-
-        checkClosed();
-
-        for (AccelerometerEvent event : events) {
-            writeEvent(event);
-        }
-
+        writer.serialize(events);
         return this;
     }
 
     @Override
     public synchronized void flush() throws IOException {
-        checkClosed();
-
-        sink.flush();
+        writer.flush();
     }
 
     @Override
     public synchronized void close() throws IOException {
-        sink.close();
-        closed = true;
-    }
-
-    private void writeEvent(AccelerometerEvent event) throws IOException {
-        builder.setAbsoluteTimestamp(event.getAbsoluteTimestamp().getMillis())
-                .setX(event.getX())
-                .setY(event.getY())
-                .setZ(event.getZ());
-        if (event.hasRelativeTimestamp()) {
-            builder.setRelativeTimestamp(event.getRelativeTimestamp());
-        }
-        ProtoModel.ThreeAxisSensorEvent proto = builder.build();
-        builder.clear();
-        proto.writeDelimitedTo(sink);
-    }
-
-    private void checkClosed() throws IOException {
-        if (closed) {
-            throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
-        }
+        writer.close();
     }
 }
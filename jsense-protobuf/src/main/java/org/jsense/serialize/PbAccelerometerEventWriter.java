@@ -0,0 +1,128 @@
+package org.jsense.serialize;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Closer;
+import com.google.protobuf.CodedOutputStream;
+import org.jsense.AccelerometerEvent;
+import org.jsense.serialize.gen.ProtoModel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The {@link org.jsense.serialize.Serializer} behind {@link org.jsense.serialize.PbAccelerometerEventSerializer}, see
+ * there for the format.
+ * <p>
+ * Messages are written length-delimited through one reused {@link com.google.protobuf.CodedOutputStream}, which buffers
+ * them and writes to the sink when full or flushed.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Markus Wüstenberg
+ */
+final class PbAccelerometerEventWriter implements Serializer<AccelerometerEvent> {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream sink;
+    private final CodedOutputStream output;
+    private final TimestampIndexWriter indexWriter;
+    private long offset;
+    private boolean closed;
+
+    private final ProtoModel.ThreeAxisSensorEvent.Builder builder = ProtoModel.ThreeAxisSensorEvent.newBuilder();
+
+    PbAccelerometerEventWriter(OutputStream sink) {
+        this.sink = Preconditions.checkNotNull(sink);
+        this.output = CodedOutputStream.newInstance(sink, BUFFER_SIZE);
+        this.indexWriter = null;
+    }
+
+    PbAccelerometerEventWriter(OutputStream sink, OutputStream indexSink) {
+        this.sink = Preconditions.checkNotNull(sink);
+        this.output = CodedOutputStream.newInstance(sink, BUFFER_SIZE);
+        this.indexWriter = new TimestampIndexWriter(indexSink, TimestampIndex.DEFAULT_INTERVAL);
+    }
+
+    @Override
+    public Serializer<AccelerometerEvent> serialize(AccelerometerEvent event) throws IOException {
+        Preconditions.checkNotNull(event);
+
+        checkClosed();
+
+        writeEvent(event);
+
+        return this;
+    }
+
+    @Override
+    public Serializer<AccelerometerEvent> serialize(Iterable<AccelerometerEvent> events) throws IOException {
+        Preconditions.checkNotNull(events);
+        Preconditions.checkState(!Iterables.isEmpty(events));
+
+        checkClosed();
+
+        for (AccelerometerEvent event : events) {
+            writeEvent(event);
+        }
+
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkClosed();
+
+        output.flush();
+        sink.flush();
+        if (indexWriter != null) {
+            indexWriter.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The sink and the index are closed even if writing the rest or closing the other fails
+        Closer closer = Closer.create();
+        if (indexWriter != null) {
+            closer.register(indexWriter);
+        }
+        closer.register(sink);
+        try {
+            if (!closed) {
+                output.flush();
+            }
+        } catch (Throwable e) {
+            throw closer.rethrow(e);
+        } finally {
+            closed = true;
+            closer.close();
+        }
+    }
+
+    private void writeEvent(AccelerometerEvent event) throws IOException {
+        builder.setAbsoluteTimestamp(event.getAbsoluteTimestampMillis())
+                .setX(event.getX())
+                .setY(event.getY())
+                .setZ(event.getZ());
+        if (event.hasRelativeTimestamp()) {
+            builder.setRelativeTimestamp(event.getRelativeTimestamp());
+        }
+        ProtoModel.ThreeAxisSensorEvent proto = builder.build();
+        builder.clear();
+        if (indexWriter != null) {
+            indexWriter.add(proto.getAbsoluteTimestamp(), offset);
+        }
+        int size = proto.getSerializedSize();
+        output.writeRawVarint32(size);
+        proto.writeTo(output);
+        offset += CodedOutputStream.computeRawVarint32Size(size) + size;
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException(Constants.SERIALIZER_CLOSED_EXCEPTION_MESSAGE);
+        }
+    }
+}
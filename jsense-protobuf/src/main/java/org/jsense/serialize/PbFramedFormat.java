@@ -0,0 +1,73 @@
+package org.jsense.serialize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/**
+ * The framed Protocol Buffers container format, shared by
+ * {@link org.jsense.serialize.PbAccelerometerEventFramedSerializer} and
+ * {@link org.jsense.serialize.PbAccelerometerEventFramedDeserializer}.
+ * <p>
+ * All values are little-endian. A header of {@link #HEADER_SIZE} bytes holds a magic number, the format version, and
+ * a random sync marker of {@link #SYNC_SIZE} bytes, which is unique to the file. It is followed by blocks, each with a
+ * header of {@link #BLOCK_HEADER_SIZE} bytes: the sync marker, the number of events, the length of the block, and the
+ * CRC-32 of the number of events, the length and the block. A block holds length-delimited
+ * {@code ThreeAxisSensorEvent} messages, like {@link org.jsense.serialize.PbAccelerometerEventSerializer} writes.
+ * <p>
+ * A reader can start anywhere in the file, after the header, by searching for the next sync marker. This is how a file
+ * is split for parallel reading, and how a reader gets past a damaged block.
+ *
+ * @author Markus Wüstenberg
+ */
+final class PbFramedFormat {
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int MAGIC = 0x464e534a; // "JSNF"
+    static final int VERSION = 1;
+
+    static final int SYNC_SIZE = 16;
+
+    static final int HEADER_SIZE = 24;
+    static final int BLOCK_HEADER_SIZE = 28;
+
+    static final int VERSION_OFFSET = 4;
+    static final int SYNC_OFFSET = 8;
+    static final int COUNT_OFFSET = 16;
+    static final int LENGTH_OFFSET = 20;
+    static final int CHECKSUM_OFFSET = 24;
+
+    /**
+     * The largest block size, which also protects readers from allocating huge buffers for damaged block headers.
+     */
+    static final int MAX_BLOCK_SIZE = 1 << 26;
+
+    private static final int CHECKSUMMED_HEADER_SIZE = 8;
+
+    private PbFramedFormat() {
+
+    }
+
+    static void checkHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a framed Protocol Buffers file, wrong magic number.");
+        }
+        int version = buffer.getInt(VERSION_OFFSET);
+        if (version != VERSION) {
+            throw new IOException("Unsupported framed Protocol Buffers format version " + version + ".");
+        }
+    }
+
+    /**
+     * Compute the checksum of a block, from its header, holding the event count and length at
+     * {@link #COUNT_OFFSET} and {@link #LENGTH_OFFSET}, and the block.
+     */
+    static int checksum(byte[] header, int headerOffset, byte[] block, int blockOffset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(header, headerOffset + COUNT_OFFSET, CHECKSUMMED_HEADER_SIZE);
+        crc.update(block, blockOffset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,220 @@
+package org.jsense.serialize;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.jsense.AccelerometerEvent;
+import org.jsense.AccelerometerEventBatch;
+import org.jsense.serialize.gen.ProtoModel;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the {@link org.jsense.serialize.PbAccelerometerEventBatchSerializer} and
+ * {@link org.jsense.serialize.PbAccelerometerEventBatchDeserializer}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestProtocolBuffersBatches {
+
+    private static final long START = 1400000000000L;
+    private static final int EVENTS = 10;
+    private static final int BATCH_SIZE = 4;
+    private static final int MANY_EVENTS = 10000;
+
+    @Test
+    public void roundTripWithAndWithoutRelativeTimestamps() throws IOException {
+        List<AccelerometerEvent> events = newEvents(EVENTS, true, false);
+        assertEquals(events, Lists.newArrayList(deserialize(serialize(events, BATCH_SIZE))));
+    }
+
+    @Test
+    public void roundTripAllWithRelativeTimestamps() throws IOException {
+        List<AccelerometerEvent> events = newEvents(EVENTS, true, true);
+        assertEquals(events, Lists.newArrayList(deserialize(serialize(events, BATCH_SIZE))));
+    }
+
+    @Test
+    public void roundTripNoneWithRelativeTimestamps() throws IOException {
+        List<AccelerometerEvent> events = newEvents(EVENTS, false, false);
+        assertEquals(events, Lists.newArrayList(deserialize(serialize(events, BATCH_SIZE))));
+    }
+
+    @Test
+    public void roundTripExtremeValues() throws IOException {
+        List<AccelerometerEvent> events = ImmutableList.of(
+                AccelerometerEvent.newBuilder().setAbsoluteTimestampMillis(Long.MAX_VALUE).setRelativeTimestamp(Long.MIN_VALUE)
+                        .setX(Float.NaN).setY(Float.POSITIVE_INFINITY).setZ(-0f).build(),
+                AccelerometerEvent.newBuilder().setAbsoluteTimestampMillis(Long.MIN_VALUE).setRelativeTimestamp(Long.MAX_VALUE)
+                        .setX(Float.MIN_VALUE).setY(Float.MAX_VALUE).setZ(Float.NEGATIVE_INFINITY).build());
+        assertEquals(events, Lists.newArrayList(deserialize(serialize(events, BATCH_SIZE))));
+    }
+
+    @Test
+    public void deserializeEmptySource() throws IOException {
+        assertFalse(deserialize(new byte[0]).iterator().hasNext());
+    }
+
+    @Test
+    public void deserializeBatches() throws IOException {
+        List<AccelerometerEvent> events = newEvents(EVENTS, true, false);
+        Deserializer<AccelerometerEvent> deserializer = new PbAccelerometerEventBatchDeserializer(new ByteArrayInputStream(serialize(events, BATCH_SIZE)));
+        List<AccelerometerEventBatch> batches = Lists.newArrayList(((PbAccelerometerEventBatchDeserializer) deserializer).deserializeBatches());
+
+        assertEquals(3, batches.size());
+        assertEquals(BATCH_SIZE, batches.get(0).size());
+        assertEquals(EVENTS % BATCH_SIZE, batches.get(2).size());
+        List<AccelerometerEvent> deserializedEvents = Lists.newArrayList();
+        for (AccelerometerEventBatch batch : batches) {
+            deserializedEvents.addAll(Lists.newArrayList(batch));
+        }
+        assertEquals(events, deserializedEvents);
+    }
+
+    @Test
+    public void flushWritesPartialBatch() throws IOException {
+        List<AccelerometerEvent> events = newEvents(EVENTS, true, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serializer<AccelerometerEvent> serializer = new PbAccelerometerEventBatchSerializer(out);
+        serializer.serialize(events.get(0));
+        serializer.flush();
+
+        assertEquals(events.subList(0, 1), Lists.newArrayList(deserialize(out.toByteArray())));
+
+        serializer.serialize(events.subList(1, EVENTS));
+        serializer.close();
+
+        assertEquals(events, Lists.newArrayList(deserialize(out.toByteArray())));
+    }
+
+    @Test
+    public void serializedBatchCanBeParsedWithGeneratedCode() throws IOException {
+        List<AccelerometerEvent> events = newEvents(EVENTS, true, false);
+        ProtoModel.ThreeAxisSensorEventBatch batch = ProtoModel.ThreeAxisSensorEventBatch.parseDelimitedFrom(
+                new ByteArrayInputStream(serialize(events, EVENTS)));
+
+        assertEquals(EVENTS, batch.getAbsoluteTimestampCount());
+        assertEquals(START, batch.getAbsoluteTimestamp(0));
+        assertEquals(1L, batch.getAbsoluteTimestamp(1));
+        assertEquals(EVENTS / 2, batch.getRelativeTimestampCount());
+        assertEquals(EVENTS, batch.getHasRelativeTimestampCount());
+        assertTrue(batch.getHasRelativeTimestamp(0));
+        assertFalse(batch.getHasRelativeTimestamp(1));
+        for (int i = 0; i < EVENTS; i++) {
+            assertEquals(events.get(i).getX(), batch.getX(i), 0);
+            assertEquals(events.get(i).getY(), batch.getY(i), 0);
+            assertEquals(events.get(i).getZ(), batch.getZ(i), 0);
+        }
+    }
+
+    @Test
+    public void messageFromGeneratedCodeCanBeDeserialized() throws IOException {
+        ProtoModel.ThreeAxisSensorEventBatch batch = ProtoModel.ThreeAxisSensorEventBatch.newBuilder()
+                .addAbsoluteTimestamp(START).addAbsoluteTimestamp(2)
+                .addRelativeTimestamp(3)
+                .addX(0.1f).addX(0.2f)
+                .addY(0.3f).addY(0.4f)
+                .addZ(0.5f).addZ(0.6f)
+                .addHasRelativeTimestamp(false).addHasRelativeTimestamp(true)
+                .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batch.writeDelimitedTo(out);
+
+        List<AccelerometerEvent> expected = ImmutableList.of(
+                AccelerometerEvent.newBuilder().setAbsoluteTimestampMillis(START).setX(0.1f).setY(0.3f).setZ(0.5f).build(),
+                AccelerometerEvent.newBuilder().setAbsoluteTimestampMillis(START + 2).setRelativeTimestamp(3).setX(0.2f).setY(0.4f).setZ(0.6f).build());
+        assertEquals(expected, Lists.newArrayList(deserialize(out.toByteArray())));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void deserializeInvalidBatch() throws IOException {
+        ProtoModel.ThreeAxisSensorEventBatch batch = ProtoModel.ThreeAxisSensorEventBatch.newBuilder()
+                .addAbsoluteTimestamp(START).addAbsoluteTimestamp(1)
+                .addX(0.1f)
+                .addY(0.3f)
+                .addZ(0.5f)
+                .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batch.writeDelimitedTo(out);
+
+        Lists.newArrayList(deserialize(out.toByteArray()));
+    }
+
+    @Test
+    public void deserializeCorruptColumnLength() throws IOException {
+        // A batch of 6 bytes, with an x column claiming to be almost 2 GB long
+        byte[] corrupt = {6, 26, (byte) 0xfc, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07};
+        try {
+            Lists.newArrayList(deserialize(corrupt));
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void deserializeCorruptBatchLength() throws IOException {
+        byte[] corrupt = {(byte) 0xfc, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07, 0};
+        try {
+            Lists.newArrayList(deserialize(corrupt));
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void batchesAreMuchSmallerThanSingleEvents() throws IOException {
+        List<AccelerometerEvent> events = newEvents(MANY_EVENTS, true, true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serializer<AccelerometerEvent> serializer = new PbAccelerometerEventSerializer(out);
+        serializer.serialize(events);
+        serializer.close();
+
+        assertTrue(serialize(events, PbAccelerometerEventBatchSerializer.DEFAULT_BATCH_SIZE).length * 3 <= out.size() * 2);
+    }
+
+    @Test(expected = IOException.class)
+    public void serializeAfterCloseFails() throws IOException {
+        Serializer<AccelerometerEvent> serializer = new PbAccelerometerEventBatchSerializer(new ByteArrayOutputStream());
+        serializer.close();
+        serializer.serialize(newEvents(1, true, false).get(0));
+    }
+
+    /**
+     * Create regularly sampled events, with a relative timestamp on every other event, or on all or none of them.
+     */
+    private static List<AccelerometerEvent> newEvents(int count, boolean withRelativeTimestamps, boolean all) {
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.reset()
+                    .setAbsoluteTimestampMillis(START + i)
+                    .setX((float) Math.sin(i))
+                    .setY((float) Math.cos(i))
+                    .setZ(9.81f + i % 3);
+            if (withRelativeTimestamps && (all || i % 2 == 0)) {
+                builder.setRelativeTimestamp(i * 1000000L);
+            }
+            events.add(builder.build());
+        }
+        return events;
+    }
+
+    private static byte[] serialize(List<AccelerometerEvent> events, int batchSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serializer<AccelerometerEvent> serializer = new PbAccelerometerEventBatchSerializer(out, batchSize);
+        serializer.serialize(events);
+        serializer.close();
+        return out.toByteArray();
+    }
+
+    private static Iterable<AccelerometerEvent> deserialize(byte[] bytes) throws IOException {
+        return new PbAccelerometerEventBatchDeserializer(new ByteArrayInputStream(bytes)).deserialize();
+    }
+}
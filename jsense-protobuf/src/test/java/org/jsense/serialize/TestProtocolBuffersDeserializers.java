@@ -1,17 +1,24 @@
 package org.jsense.serialize;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.joda.time.Instant;
 import org.joda.time.ReadableInstant;
 import org.jsense.AccelerometerEvent;
 import org.jsense.ModelFactory;
+import org.jsense.ReadableAccelerometerEvent;
+import org.jsense.serialize.gen.ProtoModel;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -28,6 +35,9 @@ public class TestProtocolBuffersDeserializers {
     private static final float X = 0.1f;
     private static final float Y = 0.2f;
     private static final float Z = 0.3f;
+    private static final int RANGE_EVENTS = 100000;
+    private static final int RANGE_FROM = 50000;
+    private static final int RANGE_TO = 50100;
 
     private AccelerometerEvent event1, event2;
 
@@ -91,6 +101,146 @@ public class TestProtocolBuffersDeserializers {
         assertFalse(eventsIterator.next().hasRelativeTimestamp());
     }
 
+    @Test
+    public void deserializeIsLazy() throws IOException {
+        // A source that never ends, repeating the same message forever
+        final byte[] message = getByteArrayFrom(ImmutableList.of(event1));
+        InputStream endless = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                int b = message[position] & 0xff;
+                position = (position + 1) % message.length;
+                return b;
+            }
+        };
+
+        Deserializer<AccelerometerEvent> deserializer = new PbAccelerometerEventDeserializer(endless);
+        Iterator<AccelerometerEvent> eventsIterator = deserializer.deserialize().iterator();
+        assertEquals(event1, eventsIterator.next());
+        assertEquals(event1, eventsIterator.next());
+    }
+
+    @Test
+    public void deserializeEmptySource() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = new PbAccelerometerEventDeserializer(new ByteArrayInputStream(new byte[0]));
+        assertFalse(deserializer.deserialize().iterator().hasNext());
+    }
+
+    @Test
+    public void serializeDeserializedEvents() throws IOException {
+        byte[] bytes = getByteArrayFrom(ImmutableList.of(event1, event2));
+        Deserializer<AccelerometerEvent> deserializer = new PbAccelerometerEventDeserializer(new ByteArrayInputStream(bytes));
+
+        assertArrayEquals(bytes, getByteArrayFrom(deserializer.deserialize()));
+    }
+
+    @Test
+    public void convertDeserializedEventsToSimpleFormat() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = new PbAccelerometerEventDeserializer(new ByteArrayInputStream(getByteArrayFrom(ImmutableList.of(event1, event2))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SimpleAccelerometerEventSerializer(out).serialize(deserializer.deserialize()).close();
+
+        Deserializer<AccelerometerEvent> simpleDeserializer = new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(ImmutableList.of(event1, event2), ImmutableList.copyOf(simpleDeserializer.deserialize()));
+    }
+
+    @Test
+    public void deserializeTimeRange() throws IOException {
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        for (int i = 0; i < RANGE_EVENTS; i++) {
+            events.add(AccelerometerEvent.newBuilder()
+                    .setAbsoluteTimestamp(new Instant(i))
+                    .setX(X)
+                    .setY(Y)
+                    .setZ(Z)
+                    .build());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexOut = new ByteArrayOutputStream();
+        new PbAccelerometerEventSerializer(out, indexOut).serialize(events).close();
+        TimestampIndex index = TimestampIndex.read(new ByteArrayInputStream(indexOut.toByteArray()));
+
+        ReadCountingInputStream in = new ReadCountingInputStream(new ByteArrayInputStream(out.toByteArray()));
+        Iterable<AccelerometerEvent> range = new PbAccelerometerEventDeserializer(in).deserialize(index, new Instant(RANGE_FROM), new Instant(RANGE_TO));
+
+        assertEquals(events.subList(RANGE_FROM, RANGE_TO), ImmutableList.copyOf(range));
+        assertTrue(in.getCount() < out.size() / 10);
+    }
+
+    @Test
+    public void chunkDecoderHandlesSplitMessages() throws IOException {
+        byte[] bytes = getByteArrayFrom(ImmutableList.of(event1, event2, event1));
+        final List<AccelerometerEvent> decoded = Lists.newArrayList();
+        ChunkDecoder<AccelerometerEvent> decoder = new PbAccelerometerEventChunkDecoder(new ChunkDecoder.Listener<AccelerometerEvent>() {
+            @Override
+            public void onValue(AccelerometerEvent event) {
+                decoded.add(event);
+            }
+        });
+
+        for (byte b : bytes) {
+            decoder.decode(ByteBuffer.wrap(new byte[]{b}));
+        }
+        decoder.finish();
+
+        assertEquals(ImmutableList.of(event1, event2, event1), decoded);
+    }
+
+    @Test(expected = EOFException.class)
+    public void chunkDecoderFailsOnPartialMessage() throws IOException {
+        byte[] bytes = getByteArrayFrom(ImmutableList.of(event1));
+        ChunkDecoder<AccelerometerEvent> decoder = new PbAccelerometerEventChunkDecoder(new ChunkDecoder.Listener<AccelerometerEvent>() {
+            @Override
+            public void onValue(AccelerometerEvent event) {
+                fail();
+            }
+        });
+
+        decoder.decode(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+        decoder.finish();
+    }
+
+    @Test
+    public void cursorReusesOneEvent() throws IOException {
+        PbAccelerometerEventDeserializer deserializer = new PbAccelerometerEventDeserializer(new ByteArrayInputStream(getByteArrayFrom(ImmutableList.of(event1, event2))));
+        Cursor<ReadableAccelerometerEvent> cursor = deserializer.cursor();
+
+        assertTrue(cursor.next());
+        ReadableAccelerometerEvent first = cursor.get();
+        assertEquals(event1, first.toAccelerometerEvent());
+        assertTrue(cursor.next());
+        assertSame(first, cursor.get());
+        assertEquals(event2, cursor.get().toAccelerometerEvent());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void cursorSkipsUnknownFieldsAndDefaultsMissingOnes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProtoModel.ThreeAxisSensorEventBatch.newBuilder().addX(X).build().writeDelimitedTo(out);
+        ProtoModel.ThreeAxisSensorEvent.newBuilder()
+                .setAbsoluteTimestamp(ABSOLUTE_TIMESTAMP.getMillis()).setRelativeTimestamp(RELATIVE_TIMESTAMP).setY(Y)
+                .build().writeDelimitedTo(out);
+        Cursor<ReadableAccelerometerEvent> cursor = new PbAccelerometerEventDeserializer(new ByteArrayInputStream(out.toByteArray())).cursor();
+
+        assertTrue(cursor.next());
+        assertEquals(AccelerometerEvent.newBuilder().setAbsoluteTimestampMillis(0).setX(0).setY(0).setZ(0).build(), cursor.get().toAccelerometerEvent());
+        assertTrue(cursor.next());
+        assertEquals(AccelerometerEvent.newBuilder().setAbsoluteTimestamp(ABSOLUTE_TIMESTAMP).setRelativeTimestamp(RELATIVE_TIMESTAMP)
+                .setX(0).setY(Y).setZ(0).build(), cursor.get().toAccelerometerEvent());
+        assertFalse(cursor.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void cantReadCursorAfterClose() throws IOException {
+        PbAccelerometerEventDeserializer deserializer = new PbAccelerometerEventDeserializer(new ByteArrayInputStream(getByteArrayFrom(ImmutableList.of(event1))));
+        Cursor<ReadableAccelerometerEvent> cursor = deserializer.cursor();
+        deserializer.close();
+        cursor.next();
+    }
+
     private byte[] getByteArrayFrom(Iterable<AccelerometerEvent> events) throws IOException {
         final ByteArrayOutputStream out = new ByteArrayOutputStream();
         new PbAccelerometerEventSerializer(out).serialize(events).flush();
@@ -0,0 +1,176 @@
+package org.jsense.serialize;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.jsense.AccelerometerEvent;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the {@link org.jsense.serialize.PbAccelerometerEventFramedSerializer} and
+ * {@link org.jsense.serialize.PbAccelerometerEventFramedDeserializer}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestProtocolBuffersFraming {
+
+    private static final long START = 1400000000000L;
+    private static final int BLOCKS = 10;
+    private static final int EVENTS_PER_BLOCK = 10;
+    private static final int SMALL_BLOCK_SIZE = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<AccelerometerEvent> events;
+    private byte[] bytes;
+    private long[] blockEnds;
+
+    @Before
+    public void setUp() throws IOException {
+        events = newEvents(BLOCKS * EVENTS_PER_BLOCK);
+        blockEnds = new long[BLOCKS];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serializer<AccelerometerEvent> serializer = new PbAccelerometerEventFramedSerializer(out);
+        for (int i = 0; i < BLOCKS; i++) {
+            serializer.serialize(events.subList(i * EVENTS_PER_BLOCK, (i + 1) * EVENTS_PER_BLOCK));
+            serializer.flush();
+            blockEnds[i] = out.size();
+        }
+        serializer.close();
+        bytes = out.toByteArray();
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        assertEquals(events, deserialize(bytes));
+    }
+
+    @Test
+    public void roundTripWithSmallBlocks() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PbAccelerometerEventFramedSerializer(out, SMALL_BLOCK_SIZE).serialize(events).close();
+        assertEquals(events, deserialize(out.toByteArray()));
+    }
+
+    @Test
+    public void emptyFileHasOnlyHeader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PbAccelerometerEventFramedSerializer(out).close();
+        assertEquals(PbFramedFormat.HEADER_SIZE, out.size());
+        assertTrue(deserialize(out.toByteArray()).isEmpty());
+    }
+
+    @Test
+    public void splitsReadEveryEventExactlyOnce() throws IOException {
+        File file = folder.newFile();
+        Files.write(bytes, file);
+        for (int splits = 1; splits <= bytes.length; splits += 7) {
+            List<AccelerometerEvent> deserialized = Lists.newArrayList();
+            long splitSize = (bytes.length + splits - 1) / splits;
+            for (long start = 0; start < bytes.length; start += splitSize) {
+                PbAccelerometerEventFramedDeserializer deserializer = new PbAccelerometerEventFramedDeserializer(file, start, start + splitSize);
+                deserialized.addAll(Lists.newArrayList(deserializer.deserialize()));
+                deserializer.close();
+                assertEquals(0, deserializer.getSkippedBlockCount());
+            }
+            assertEquals(events, deserialized);
+        }
+    }
+
+    @Test
+    public void damagedBlockIsSkipped() throws IOException {
+        for (int offset = (int) blockEnds[0]; offset < blockEnds[1]; offset++) {
+            byte[] damaged = bytes.clone();
+            damaged[offset] ^= 1;
+            PbAccelerometerEventFramedDeserializer deserializer = new PbAccelerometerEventFramedDeserializer(new ByteArrayInputStream(damaged));
+            List<AccelerometerEvent> expected = Lists.newArrayList(events.subList(0, EVENTS_PER_BLOCK));
+            expected.addAll(events.subList(2 * EVENTS_PER_BLOCK, events.size()));
+
+            assertEquals(expected, Lists.newArrayList(deserializer.deserialize()));
+            assertEquals(1, deserializer.getSkippedBlockCount());
+        }
+    }
+
+    @Test
+    public void garbageBetweenBlocksIsSkipped() throws IOException {
+        int blockEnd = (int) blockEnds[0];
+        byte[] garbage = new byte[SMALL_BLOCK_SIZE];
+        Arrays.fill(garbage, (byte) 42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(bytes, 0, blockEnd);
+        out.write(garbage);
+        out.write(bytes, blockEnd, bytes.length - blockEnd);
+        PbAccelerometerEventFramedDeserializer deserializer = new PbAccelerometerEventFramedDeserializer(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(events, Lists.newArrayList(deserializer.deserialize()));
+        assertEquals(1, deserializer.getSkippedBlockCount());
+    }
+
+    @Test
+    public void truncatedBlockIsSkipped() throws IOException {
+        PbAccelerometerEventFramedDeserializer deserializer = new PbAccelerometerEventFramedDeserializer(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+
+        assertEquals(events.subList(0, (BLOCKS - 1) * EVENTS_PER_BLOCK), Lists.newArrayList(deserializer.deserialize()));
+        assertEquals(1, deserializer.getSkippedBlockCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void wrongMagicNumberFails() throws IOException {
+        byte[] damaged = bytes.clone();
+        damaged[0] ^= 1;
+        deserialize(damaged);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedHeaderFails() throws IOException {
+        deserialize(Arrays.copyOf(bytes, PbFramedFormat.HEADER_SIZE - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void serializeAfterCloseFails() throws IOException {
+        Serializer<AccelerometerEvent> serializer = new PbAccelerometerEventFramedSerializer(new ByteArrayOutputStream());
+        serializer.close();
+        serializer.serialize(events.get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void deserializeAfterCloseFails() throws IOException {
+        Deserializer<AccelerometerEvent> deserializer = new PbAccelerometerEventFramedDeserializer(new ByteArrayInputStream(bytes));
+        deserializer.close();
+        deserializer.deserialize();
+    }
+
+    private static List<AccelerometerEvent> newEvents(int count) {
+        List<AccelerometerEvent> events = Lists.newArrayList();
+        AccelerometerEvent.Builder builder = AccelerometerEvent.newBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.reset()
+                    .setAbsoluteTimestampMillis(START + i)
+                    .setX((float) Math.sin(i))
+                    .setY((float) Math.cos(i))
+                    .setZ(9.81f + i % 3);
+            if (i % 2 == 0) {
+                builder.setRelativeTimestamp(i * 1000000L);
+            }
+            events.add(builder.build());
+        }
+        return events;
+    }
+
+    private static List<AccelerometerEvent> deserialize(byte[] bytes) throws IOException {
+        return Lists.newArrayList(new PbAccelerometerEventFramedDeserializer(new ByteArrayInputStream(bytes)).deserialize());
+    }
+}
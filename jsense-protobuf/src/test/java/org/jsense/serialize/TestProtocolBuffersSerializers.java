@@ -12,8 +12,11 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for the {@link org.jsense.serialize.PbAccelerometerEventSerializer}.
@@ -63,6 +66,41 @@ public class TestProtocolBuffersSerializers {
         validateEvent(event2, parsedEvent);
     }
 
+    @Test
+    public void serializeIsLikeWriteDelimitedTo() throws IOException {
+        serializer.serialize(ImmutableList.of(event1, event2));
+        serializer.close();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        toProto(event1).writeDelimitedTo(expected);
+        toProto(event2).writeDelimitedTo(expected);
+        assertArrayEquals(expected.toByteArray(), out.toByteArray());
+    }
+
+    @Test
+    public void singleWriterSerializerHasSameOutput() throws IOException {
+        serializer.serialize(ImmutableList.of(event1, event2));
+        serializer.close();
+
+        ByteArrayOutputStream singleWriterOut = new ByteArrayOutputStream();
+        Serializer<AccelerometerEvent> singleWriterSerializer = PbAccelerometerEventSerializer.newSingleWriterSerializer(singleWriterOut);
+        singleWriterSerializer.serialize(ImmutableList.of(event1, event2));
+        singleWriterSerializer.close();
+        assertArrayEquals(out.toByteArray(), singleWriterOut.toByteArray());
+    }
+
+    private static ProtoModel.ThreeAxisSensorEvent toProto(AccelerometerEvent event) {
+        ProtoModel.ThreeAxisSensorEvent.Builder builder = ProtoModel.ThreeAxisSensorEvent.newBuilder()
+                .setAbsoluteTimestamp(event.getAbsoluteTimestampMillis())
+                .setX(event.getX())
+                .setY(event.getY())
+                .setZ(event.getZ());
+        if (event.hasRelativeTimestamp()) {
+            builder.setRelativeTimestamp(event.getRelativeTimestamp());
+        }
+        return builder.build();
+    }
+
     private void validateEvent(AccelerometerEvent event, ProtoModel.ThreeAxisSensorEvent parsedEvent) {
         assertNotNull(parsedEvent);
         assertEquals(event.getAbsoluteTimestamp().getMillis(), parsedEvent.getAbsoluteTimestamp());
@@ -112,4 +150,17 @@ public class TestProtocolBuffersSerializers {
         serializer.close();
         serializer.flush();
     }
+
+    @Test
+    public void indexIsClosedWhenClosingTheSinkFails() throws IOException {
+        CloseTrackingOutputStream indexOut = new CloseTrackingOutputStream(false);
+        Serializer<AccelerometerEvent> serializer = new PbAccelerometerEventSerializer(new CloseTrackingOutputStream(true), indexOut);
+        serializer.serialize(event1);
+        try {
+            serializer.close();
+            fail();
+        } catch (IOException e) {
+            assertTrue(indexOut.isClosed());
+        }
+    }
 }
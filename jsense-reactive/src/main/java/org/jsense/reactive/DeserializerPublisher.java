@@ -0,0 +1,189 @@
+package org.jsense.reactive;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import org.jsense.serialize.Deserializer;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code DeserializerPublisher} is a Reactive Streams {@link org.reactivestreams.Publisher} of the values of a
+ * {@link org.jsense.serialize.Deserializer}.
+ * <p>
+ * Values are only read from the {@link org.jsense.serialize.Deserializer} when the
+ * {@link org.reactivestreams.Subscriber} has requested them, so a slow {@link org.reactivestreams.Subscriber} holds
+ * back the reading instead of data piling up in memory. At most one value is read ahead, to find the end of the
+ * stream without waiting for a request. Reading and all signals to the
+ * {@link org.reactivestreams.Subscriber} happen on the given {@link java.util.concurrent.Executor}, since
+ * deserializing usually blocks on I/O. The work is done in one task at a time, which runs until the requested values
+ * are delivered.
+ * <p>
+ * A {@link org.jsense.serialize.Deserializer} can only be read once, so a {@code DeserializerPublisher} only supports
+ * one {@link org.reactivestreams.Subscriber}. Others are rejected with an {@link java.lang.IllegalStateException}.
+ * The {@link org.jsense.serialize.Deserializer} is closed when the stream completes, fails, or is cancelled. A failure
+ * to deserialize is signalled to the {@link org.reactivestreams.Subscriber} with the
+ * {@link java.io.IOException}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <T> The type of data published.
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class DeserializerPublisher<T> implements Publisher<T> {
+
+    private final Deserializer<T> deserializer;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Create a {@code DeserializerPublisher}.
+     *
+     * @param deserializer The {@link org.jsense.serialize.Deserializer} to read values from.
+     * @param executor The {@link java.util.concurrent.Executor} to read and signal on.
+     */
+    public DeserializerPublisher(Deserializer<T> deserializer, Executor executor) {
+        this.deserializer = Preconditions.checkNotNull(deserializer);
+        this.executor = Preconditions.checkNotNull(executor);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Preconditions.checkNotNull(subscriber);
+
+        if (!subscribed.compareAndSet(false, true)) {
+            Subscriptions.reject(subscriber, "A DeserializerPublisher only supports one Subscriber.");
+            return;
+        }
+        new Emitter(subscriber).schedule();
+    }
+
+    /**
+     * The {@link org.reactivestreams.Subscription} of the {@link org.reactivestreams.Subscriber}, which reads and
+     * delivers values when run on the {@link java.util.concurrent.Executor}.
+     */
+    private final class Emitter implements Subscription, Runnable {
+
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingRuns = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+
+        // Only used by the running task
+        private boolean started;
+        private boolean terminated;
+        private Iterator<T> iterator;
+
+        private Emitter(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = Subscriptions.invalidRequest(n);
+            } else {
+                Subscriptions.addDemand(demand, n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        /**
+         * Make sure the task runs after this call, without running two tasks at once.
+         */
+        private void schedule() {
+            if (pendingRuns.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!terminated) {
+                    emit();
+                }
+                missed = pendingRuns.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            if (!started) {
+                started = true;
+                subscriber.onSubscribe(this);
+            }
+            while (true) {
+                if (cancelled) {
+                    terminate(null);
+                    return;
+                }
+                if (invalidRequest != null) {
+                    terminate(invalidRequest);
+                    return;
+                }
+                T value;
+                try {
+                    if (iterator == null) {
+                        iterator = deserializer.deserialize().iterator();
+                    }
+                    if (!iterator.hasNext()) {
+                        terminate(null);
+                        return;
+                    }
+                    if (demand.get() == 0) {
+                        return;
+                    }
+                    value = iterator.next();
+                } catch (IOException e) {
+                    terminate(e);
+                    return;
+                } catch (RuntimeException e) {
+                    // Lazy deserializers propagate I/O problems unchecked
+                    terminate(e.getCause() instanceof IOException ? e.getCause() : e);
+                    return;
+                }
+                Subscriptions.consumeDemand(demand);
+                subscriber.onNext(value);
+            }
+        }
+
+        /**
+         * Close the {@link org.jsense.serialize.Deserializer}, and signal the end of the stream unless cancelled.
+         */
+        private void terminate(Throwable failure) {
+            terminated = true;
+            Throwable cause = failure;
+            try {
+                deserializer.close();
+            } catch (IOException e) {
+                if (cause == null) {
+                    cause = e;
+                }
+            }
+            if (cancelled) {
+                return;
+            }
+            if (cause == null) {
+                subscriber.onComplete();
+            } else {
+                subscriber.onError(cause);
+            }
+        }
+    }
+}
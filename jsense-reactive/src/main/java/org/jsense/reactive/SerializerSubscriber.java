@@ -0,0 +1,171 @@
+package org.jsense.reactive;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import org.jsense.serialize.Serializer;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@code SerializerSubscriber} is a Reactive Streams {@link org.reactivestreams.Subscriber} that writes the values
+ * it receives to a {@link org.jsense.serialize.Serializer}.
+ * <p>
+ * Values are serialized on the thread delivering them, and requested in batches, so no more than the batch size is
+ * ever outstanding: when half a batch has been serialized, another half is requested. The default batch size is 256
+ * values.
+ * <p>
+ * The {@link org.jsense.serialize.Serializer} is closed when the stream completes or fails. If serializing fails,
+ * the {@link org.reactivestreams.Subscription} is cancelled. Use {@link #await()} to wait for the end of the stream,
+ * and to get any failure.
+ * <p>
+ * As the Reactive Streams specification requires, the signals to a {@code SerializerSubscriber} must not be
+ * concurrent. It can only be subscribed once.
+ *
+ * @param <T> The type of data to be serialized.
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class SerializerSubscriber<T> implements Subscriber<T> {
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final Serializer<T> serializer;
+    private final int replenishSize;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private Subscription subscription;
+    private int receivedSinceRequest;
+    private boolean done;
+    private volatile Throwable failure;
+
+    /**
+     * Create a {@code SerializerSubscriber} with the default batch size.
+     *
+     * @param serializer The {@link org.jsense.serialize.Serializer} to write to.
+     */
+    public SerializerSubscriber(Serializer<T> serializer) {
+        this(serializer, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a {@code SerializerSubscriber}.
+     *
+     * @param serializer The {@link org.jsense.serialize.Serializer} to write to.
+     * @param batchSize The maximum number of requested values not yet received, which must be at least 2.
+     */
+    public SerializerSubscriber(Serializer<T> serializer, int batchSize) {
+        Preconditions.checkArgument(batchSize > 1, "The batch size must be at least 2.");
+        this.serializer = Preconditions.checkNotNull(serializer);
+        this.replenishSize = batchSize / 2;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        Preconditions.checkNotNull(subscription);
+
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(2L * replenishSize);
+    }
+
+    @Override
+    public void onNext(T value) {
+        Preconditions.checkNotNull(value);
+
+        if (done) {
+            return;
+        }
+        try {
+            serializer.serialize(value);
+        } catch (IOException e) {
+            subscription.cancel();
+            terminate(e);
+            return;
+        }
+        if (++receivedSinceRequest == replenishSize) {
+            receivedSinceRequest = 0;
+            subscription.request(replenishSize);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        Preconditions.checkNotNull(t);
+
+        terminate(t);
+    }
+
+    @Override
+    public void onComplete() {
+        terminate(null);
+    }
+
+    /**
+     * Block until the stream has ended, and the {@link org.jsense.serialize.Serializer} is closed.
+     *
+     * @throws IOException If the stream failed, if serializing failed, or if interrupted while waiting.
+     */
+    public void await() throws IOException {
+        try {
+            terminated.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the stream to end.");
+        }
+        checkFailure();
+    }
+
+    /**
+     * Block until the stream has ended, and the {@link org.jsense.serialize.Serializer} is closed, or until the
+     * timeout.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return If the stream has ended, or false if the timeout was reached.
+     * @throws IOException If the stream failed, if serializing failed, or if interrupted while waiting.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws IOException {
+        boolean ended;
+        try {
+            ended = terminated.await(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the stream to end.");
+        }
+        if (ended) {
+            checkFailure();
+        }
+        return ended;
+    }
+
+    private void terminate(Throwable cause) {
+        if (done) {
+            return;
+        }
+        done = true;
+        Throwable result = cause;
+        try {
+            serializer.close();
+        } catch (IOException e) {
+            if (result == null) {
+                result = e;
+            }
+        }
+        failure = result;
+        terminated.countDown();
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IOException("The stream could not be serialized.", cause);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.jsense.reactive;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@code SlidingWindowProcessor} is a Reactive Streams {@link org.reactivestreams.Processor} of sliding windows over
+ * a stream of samples. It gives the same windows as a {@link org.jsense.compute.SampleBasedSlidingWindow} with the
+ * same size and step, but pushed as the samples arrive instead of pulled from an {@link java.lang.Iterable}.
+ * <p>
+ * Samples are only requested upstream when the {@link org.reactivestreams.Subscriber} has requested a window, and
+ * only as many as that window needs: the window size for the first window, and the step for the following ones. So
+ * no more than one window is ever held, however fast the upstream {@link org.reactivestreams.Publisher} is.
+ * <p>
+ * Each window is an immutable copy, since it is handed over to another stage. The last window, sent when the upstream
+ * completes, may hold less samples than the window size. A failure upstream is passed on at once, dropping a window
+ * not yet delivered.
+ * <p>
+ * A {@code SlidingWindowProcessor} supports one {@link org.reactivestreams.Subscriber}. Others are rejected with an
+ * {@link java.lang.IllegalStateException}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <E> The type in the window.
+ * @author Markus Wüstenberg
+ */
+@Beta
+public final class SlidingWindowProcessor<E> implements Processor<E, List<E>> {
+
+    private final int size;
+    private final int step;
+
+    // The window state, only used by the upstream signals, and when no samples are requested upstream
+    private final Queue<E> buffer = new ArrayDeque<E>();
+    private int pendingSkips;
+    private boolean hasNewSamples;
+
+    private final Queue<List<E>> windows = new ConcurrentLinkedQueue<List<E>>();
+    private final AtomicReference<Subscriber<? super List<E>>> downstream =
+            new AtomicReference<Subscriber<? super List<E>>>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicBoolean requestedUpstream = new AtomicBoolean();
+    private final AtomicInteger pendingDrains = new AtomicInteger();
+    private volatile Subscription upstream;
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException invalidRequest;
+
+    // Only used while draining
+    private boolean downstreamSubscribed;
+    private boolean terminated;
+
+    private SlidingWindowProcessor(Builder<E> builder) {
+        size = builder.size;
+        step = builder.hasStep ? builder.step : builder.size;
+    }
+
+    public static <E> Builder<E> newBuilder() {
+        return new Builder<E>();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super List<E>> subscriber) {
+        Preconditions.checkNotNull(subscriber);
+
+        if (!downstream.compareAndSet(null, subscriber)) {
+            Subscriptions.reject(subscriber, "A SlidingWindowProcessor only supports one Subscriber.");
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        Preconditions.checkNotNull(subscription);
+
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(E sample) {
+        Preconditions.checkNotNull(sample);
+
+        if (done) {
+            return;
+        }
+        if (pendingSkips > 0) {
+            pendingSkips--;
+            return;
+        }
+        buffer.add(sample);
+        hasNewSamples = true;
+        if (buffer.size() == size) {
+            List<E> window = ImmutableList.copyOf(buffer);
+            for (int i = Math.min(step, size); i > 0; i--) {
+                buffer.remove();
+            }
+            pendingSkips = Math.max(step - size, 0);
+            hasNewSamples = false;
+            windows.add(window);
+            requestedUpstream.set(false);
+            drain();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        Preconditions.checkNotNull(t);
+
+        error = t;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        if (hasNewSamples) {
+            windows.add(ImmutableList.copyOf(buffer));
+            hasNewSamples = false;
+        }
+        done = true;
+        drain();
+    }
+
+    /**
+     * Deliver windows, and request samples upstream, from one thread at a time. A call while another thread is
+     * draining makes that thread drain again.
+     */
+    private void drain() {
+        if (pendingDrains.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Subscriber<? super List<E>> subscriber = downstream.get();
+            if (subscriber != null && !terminated) {
+                if (!downstreamSubscribed) {
+                    downstreamSubscribed = true;
+                    subscriber.onSubscribe(new DownstreamSubscription());
+                }
+                emit(subscriber);
+            }
+            missed = pendingDrains.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit(Subscriber<? super List<E>> subscriber) {
+        if (cancelled || invalidRequest != null) {
+            terminated = true;
+            windows.clear();
+            Subscription subscription = upstream;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            if (!cancelled) {
+                subscriber.onError(invalidRequest);
+            }
+            return;
+        }
+        Throwable failure = error;
+        if (failure != null) {
+            terminated = true;
+            windows.clear();
+            subscriber.onError(failure);
+            return;
+        }
+        while (demand.get() > 0) {
+            List<E> window = windows.poll();
+            if (window == null) {
+                break;
+            }
+            Subscriptions.consumeDemand(demand);
+            subscriber.onNext(window);
+        }
+        if (windows.isEmpty()) {
+            if (done) {
+                terminated = true;
+                subscriber.onComplete();
+            } else if (demand.get() > 0 && upstream != null && requestedUpstream.compareAndSet(false, true)) {
+                upstream.request(pendingSkips + size - buffer.size());
+            }
+        }
+    }
+
+    /**
+     * The {@link org.reactivestreams.Subscription} of the downstream {@link org.reactivestreams.Subscriber}.
+     */
+    private final class DownstreamSubscription implements Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = Subscriptions.invalidRequest(n);
+            } else {
+                Subscriptions.addDemand(demand, n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+    }
+
+    /**
+     * A {@code Builder} for the {@code SlidingWindowProcessor}. The size must be set, and the step defaults to the
+     * size, like for {@link org.jsense.compute.SampleBasedSlidingWindow.Builder}.
+     *
+     * @param <E> The type in the window.
+     */
+    public static final class Builder<E> {
+
+        private int size, step;
+        private boolean hasSize, hasStep;
+
+        public Builder<E> setSize(int size) {
+            Preconditions.checkArgument(size > 0, "Size must be positive.");
+            this.size = size;
+            hasSize = true;
+            return this;
+        }
+
+        /**
+         * Set the number of samples between the starts of consecutive windows. If not set, the step is the window size.
+         *
+         * @param step The step, which must be positive.
+         * @return The {@code Builder}, for method chaining.
+         */
+        public Builder<E> setStep(int step) {
+            Preconditions.checkArgument(step > 0, "Step must be positive.");
+            this.step = step;
+            hasStep = true;
+            return this;
+        }
+
+        public SlidingWindowProcessor<E> build() {
+            Preconditions.checkState(hasSize, "Size hasn't been set.");
+            return new SlidingWindowProcessor<E>(this);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.jsense.reactive;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Helpers for implementing the Reactive Streams {@link org.reactivestreams.Subscription} rules.
+ *
+ * @author Markus Wüstenberg
+ */
+final class Subscriptions {
+
+    /**
+     * A {@link org.reactivestreams.Subscription} that does nothing, for rejected {@link org.reactivestreams.Subscriber}s.
+     */
+    static final Subscription EMPTY = new Subscription() {
+        @Override
+        public void request(long n) {
+
+        }
+
+        @Override
+        public void cancel() {
+
+        }
+    };
+
+    private Subscriptions() {
+
+    }
+
+    /**
+     * Reject a {@link org.reactivestreams.Subscriber}, because the source only supports one.
+     */
+    static void reject(Subscriber<?> subscriber, String message) {
+        subscriber.onSubscribe(EMPTY);
+        subscriber.onError(new IllegalStateException(message));
+    }
+
+    /**
+     * Add to the outstanding demand, where {@link Long#MAX_VALUE} means unbounded demand.
+     */
+    static void addDemand(AtomicLong demand, long n) {
+        while (true) {
+            long current = demand.get();
+            if (current == Long.MAX_VALUE) {
+                return;
+            }
+            long updated = current + n;
+            if (updated < 0) {
+                updated = Long.MAX_VALUE;
+            }
+            if (demand.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Subtract one delivered value from the outstanding demand, unless the demand is unbounded.
+     */
+    static void consumeDemand(AtomicLong demand) {
+        if (demand.get() != Long.MAX_VALUE) {
+            demand.decrementAndGet();
+        }
+    }
+
+    /**
+     * Get the exception for a request of a non-positive number of values.
+     */
+    static IllegalArgumentException invalidRequest(long n) {
+        return new IllegalArgumentException("The number of requested values must be positive, but was " + n + ".");
+    }
+}
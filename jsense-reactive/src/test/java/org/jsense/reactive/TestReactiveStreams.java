@@ -0,0 +1,399 @@
+package org.jsense.reactive;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.jsense.AccelerometerEvent;
+import org.jsense.ModelFactory;
+import org.jsense.compute.SampleBasedSlidingWindow;
+import org.jsense.serialize.Deserializer;
+import org.jsense.serialize.SimpleAccelerometerEventDeserializer;
+import org.jsense.serialize.SimpleAccelerometerEventSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link org.jsense.reactive.DeserializerPublisher}, {@link org.jsense.reactive.SerializerSubscriber}
+ * and {@link org.jsense.reactive.SlidingWindowProcessor}.
+ *
+ * @author Markus Wüstenberg
+ */
+public class TestReactiveStreams {
+
+    private static final int SEED = 77310;
+    private static final int EVENTS = 1000;
+    private static final int BATCH_SIZE = 16;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final Executor SAME_THREAD = MoreExecutors.sameThreadExecutor();
+
+    private List<AccelerometerEvent> events;
+    private byte[] serialized;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        ModelFactory.setSeed(SEED);
+        events = Lists.newArrayList();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(ModelFactory.newRandomAccelerometerEvent());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SimpleAccelerometerEventSerializer(out).serialize(events).close();
+        serialized = out.toByteArray();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void publisherEmitsAllValues() throws InterruptedException {
+        DeserializerPublisher<AccelerometerEvent> publisher = new DeserializerPublisher<AccelerometerEvent>(
+                new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(serialized)), executor);
+        RecordingSubscriber<AccelerometerEvent> subscriber = new RecordingSubscriber<AccelerometerEvent>(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+
+        subscriber.await();
+        assertEquals(events, subscriber.values);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void publisherOnlyReadsRequestedValues() {
+        CountingDeserializer<Integer> deserializer = new CountingDeserializer<Integer>(range(10));
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>(3);
+        new DeserializerPublisher<Integer>(deserializer, SAME_THREAD).subscribe(subscriber);
+
+        assertEquals(range(3), subscriber.values);
+        assertEquals(3, deserializer.read);
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(7);
+        assertEquals(range(10), subscriber.values);
+        assertTrue(subscriber.completed);
+        assertTrue(deserializer.closed);
+    }
+
+    @Test
+    public void publisherClosesDeserializerWhenCancelled() {
+        CountingDeserializer<Integer> deserializer = new CountingDeserializer<Integer>(range(10));
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>(2);
+        new DeserializerPublisher<Integer>(deserializer, SAME_THREAD).subscribe(subscriber);
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(2);
+        assertEquals(range(2), subscriber.values);
+        assertTrue(deserializer.closed);
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void publisherSignalsInvalidRequest() {
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>(0);
+        new DeserializerPublisher<Integer>(new CountingDeserializer<Integer>(range(10)), SAME_THREAD)
+                .subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void publisherSignalsDeserializationFailure() {
+        byte[] invalid = "1,false\n".getBytes();
+        RecordingSubscriber<AccelerometerEvent> subscriber = new RecordingSubscriber<AccelerometerEvent>(1);
+        new DeserializerPublisher<AccelerometerEvent>(
+                new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(invalid)), SAME_THREAD)
+                .subscribe(subscriber);
+
+        assertNotNull(subscriber.error);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void publisherRejectsSecondSubscriber() {
+        DeserializerPublisher<Integer> publisher = new DeserializerPublisher<Integer>(
+                new CountingDeserializer<Integer>(range(10)), SAME_THREAD);
+        publisher.subscribe(new RecordingSubscriber<Integer>(0));
+        RecordingSubscriber<Integer> second = new RecordingSubscriber<Integer>(0);
+        publisher.subscribe(second);
+
+        assertNotNull(second.subscription);
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void subscriberSerializesAllValues() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializerSubscriber<AccelerometerEvent> subscriber = new SerializerSubscriber<AccelerometerEvent>(
+                new SimpleAccelerometerEventSerializer(out), BATCH_SIZE);
+        new DeserializerPublisher<AccelerometerEvent>(
+                new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(serialized)), executor)
+                .subscribe(subscriber);
+
+        assertTrue(subscriber.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertArrayEquals(serialized, out.toByteArray());
+    }
+
+    @Test
+    public void subscriberLimitsOutstandingRequests() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SerializerSubscriber<AccelerometerEvent> subscriber = new SerializerSubscriber<AccelerometerEvent>(
+                new SimpleAccelerometerEventSerializer(out), BATCH_SIZE);
+        CountingSubscription subscription = new CountingSubscription();
+        subscriber.onSubscribe(subscription);
+
+        for (AccelerometerEvent event : events) {
+            assertTrue(subscription.requested > 0);
+            assertTrue(subscription.requested <= BATCH_SIZE);
+            subscription.requested--;
+            subscriber.onNext(event);
+        }
+        subscriber.onComplete();
+        subscriber.await();
+        assertArrayEquals(serialized, out.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void subscriberPassesOnFailure() throws IOException {
+        SerializerSubscriber<AccelerometerEvent> subscriber = new SerializerSubscriber<AccelerometerEvent>(
+                new SimpleAccelerometerEventSerializer(new ByteArrayOutputStream()));
+        subscriber.onSubscribe(new CountingSubscription());
+        subscriber.onError(new IOException("Failed."));
+        subscriber.await();
+    }
+
+    @Test
+    public void processorGivesSameWindowsAsSampleBasedSlidingWindow() {
+        int[][] sizesAndSteps = {{4, 4}, {4, 1}, {4, 2}, {4, 6}, {5, 3}, {1, 1}};
+        for (int[] sizeAndStep : sizesAndSteps) {
+            for (int count = 1; count <= 12; count++) {
+                List<Integer> data = range(count);
+                List<List<Integer>> expected = Lists.newArrayList();
+                for (Iterable<Integer> window : SampleBasedSlidingWindow.<Integer>newBuilder()
+                        .setSize(sizeAndStep[0])
+                        .setStep(sizeAndStep[1])
+                        .add(data)
+                        .build()) {
+                    expected.add(ImmutableList.copyOf(window));
+                }
+
+                SlidingWindowProcessor<Integer> processor = SlidingWindowProcessor.<Integer>newBuilder()
+                        .setSize(sizeAndStep[0])
+                        .setStep(sizeAndStep[1])
+                        .build();
+                RecordingSubscriber<List<Integer>> subscriber = new RecordingSubscriber<List<Integer>>(1);
+                subscriber.requestOnNext = true;
+                processor.subscribe(subscriber);
+                new DeserializerPublisher<Integer>(new CountingDeserializer<Integer>(data), SAME_THREAD)
+                        .subscribe(processor);
+
+                assertEquals(expected, subscriber.values);
+                assertTrue(subscriber.completed);
+            }
+        }
+    }
+
+    @Test
+    public void processorOnlyRequestsSamplesForRequestedWindows() {
+        CountingDeserializer<Integer> deserializer = new CountingDeserializer<Integer>(range(100));
+        SlidingWindowProcessor<Integer> processor = SlidingWindowProcessor.<Integer>newBuilder()
+                .setSize(8)
+                .setStep(2)
+                .build();
+        new DeserializerPublisher<Integer>(deserializer, SAME_THREAD).subscribe(processor);
+        RecordingSubscriber<List<Integer>> subscriber = new RecordingSubscriber<List<Integer>>(0);
+        processor.subscribe(subscriber);
+        assertEquals(0, deserializer.read);
+
+        subscriber.subscription.request(1);
+        assertEquals(1, subscriber.values.size());
+        assertEquals(8, deserializer.read);
+
+        subscriber.subscription.request(2);
+        assertEquals(ImmutableList.of(range(8), range(2, 10), range(4, 12)), subscriber.values);
+        assertEquals(12, deserializer.read);
+
+        subscriber.subscription.cancel();
+        assertTrue(deserializer.closed);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void processorPassesOnFailure() {
+        SlidingWindowProcessor<Integer> processor = SlidingWindowProcessor.<Integer>newBuilder().setSize(4).build();
+        RecordingSubscriber<List<Integer>> subscriber = new RecordingSubscriber<List<Integer>>(1);
+        processor.subscribe(subscriber);
+        processor.onSubscribe(new CountingSubscription());
+        processor.onNext(1);
+        IOException failure = new IOException("Failed.");
+        processor.onError(failure);
+
+        assertSame(failure, subscriber.error);
+        assertTrue(subscriber.values.isEmpty());
+    }
+
+    @Test
+    public void pipelineFromDeserializerThroughWindows() throws InterruptedException {
+        SlidingWindowProcessor<AccelerometerEvent> processor = SlidingWindowProcessor.<AccelerometerEvent>newBuilder()
+                .setSize(128)
+                .setStep(32)
+                .build();
+        RecordingSubscriber<List<AccelerometerEvent>> subscriber =
+                new RecordingSubscriber<List<AccelerometerEvent>>(1);
+        subscriber.requestOnNext = true;
+        processor.subscribe(subscriber);
+        new DeserializerPublisher<AccelerometerEvent>(
+                new SimpleAccelerometerEventDeserializer(new ByteArrayInputStream(serialized)), executor)
+                .subscribe(processor);
+
+        subscriber.await();
+        assertTrue(subscriber.completed);
+        assertEquals((EVENTS - 128 + 31) / 32 + 1, subscriber.values.size());
+        assertEquals(events.subList(0, 128), subscriber.values.get(0));
+        assertEquals(events.subList(32, 160), subscriber.values.get(1));
+    }
+
+    private static List<Integer> range(int end) {
+        return range(0, end);
+    }
+
+    private static List<Integer> range(int start, int end) {
+        List<Integer> values = Lists.newArrayList();
+        for (int i = start; i < end; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    /**
+     * A {@link org.reactivestreams.Subscriber} recording what it receives.
+     */
+    private static final class RecordingSubscriber<T> implements Subscriber<T> {
+
+        private final long initialRequest;
+        private final List<T> values = Lists.newArrayList();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private boolean requestOnNext;
+        private volatile Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        private RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(T value) {
+            values.add(value);
+            if (requestOnNext) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+
+        private void await() throws InterruptedException {
+            assertTrue(terminated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * A {@link org.jsense.serialize.Deserializer} over a list, counting the values read.
+     */
+    private static final class CountingDeserializer<T> implements Deserializer<T> {
+
+        private final List<T> values;
+        private int read;
+        private boolean closed;
+
+        private CountingDeserializer(List<T> values) {
+            this.values = values;
+        }
+
+        @Override
+        public Iterable<T> deserialize() {
+            return new Iterable<T>() {
+                @Override
+                public Iterator<T> iterator() {
+                    return new Iterator<T>() {
+                        @Override
+                        public boolean hasNext() {
+                            return read < values.size();
+                        }
+
+                        @Override
+                        public T next() {
+                            return values.get(read++);
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * A {@link org.reactivestreams.Subscription} counting the outstanding requests.
+     */
+    private static final class CountingSubscription implements Subscription {
+
+        private long requested;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+
+        }
+    }
+}